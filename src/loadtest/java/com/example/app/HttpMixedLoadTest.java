@@ -0,0 +1,231 @@
+package com.example.app;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of BackendServer under mixed blocking load, with request
+ * handlers on platform threads and then on virtual threads
+ * Slow clients copy and delete a directory through /api/files (Files.walk,
+ * disk I/O, audit inserts), while fast clients call /api/health and
+ * /api/data. With a small Jetty pool the slow requests hold every platform
+ * thread and the fast ones queue behind them; with virtual threads they
+ * should not. Each mode runs against a fresh server in its own JVM.
+ *
+ * Usage: java -cp ... com.example.app.HttpMixedLoadTest --slowClients=64 --fastClients=8 --maxThreads=32 --label=1.3.0
+ * Virtual threads need Java 21; on older JVMs both runs use platform threads.
+ */
+public class HttpMixedLoadTest {
+    private static final Gson gson = new Gson();
+
+    private final Map<String, String> options;
+    private final int slowClients;
+    private final int fastClients;
+    private final int maxThreads;
+    private final int fixtureFiles;
+    private final long warmupMs;
+    private final long durationMs;
+    private final String label;
+    private final Path outDir;
+
+    public static void main(String[] args) throws Exception {
+        new HttpMixedLoadTest(WsLoadTest.parseOptions(args)).run();
+        System.exit(0);
+    }
+
+    HttpMixedLoadTest(Map<String, String> options) {
+        this.options = options;
+        this.slowClients = Integer.parseInt(options.getOrDefault("slowClients", "64"));
+        this.fastClients = Integer.parseInt(options.getOrDefault("fastClients", "8"));
+        this.maxThreads = Integer.parseInt(options.getOrDefault("maxThreads", "32"));
+        this.fixtureFiles = Integer.parseInt(options.getOrDefault("files", "200"));
+        this.warmupMs = Long.parseLong(options.getOrDefault("warmupSeconds", "5")) * 1000;
+        this.durationMs = Long.parseLong(options.getOrDefault("durationSeconds", "20")) * 1000;
+        this.label = options.getOrDefault("label", "dev");
+        this.outDir = Paths.get(options.getOrDefault("out", "target/loadtest"), label, "http-mixed");
+    }
+
+    void run() throws Exception {
+        Files.createDirectories(outDir);
+        Path fixture = createFixture();
+
+        List<Result> results = new ArrayList<>();
+        for (String mode : options.getOrDefault("modes", "platform,virtual").split(",")) {
+            results.add(runMode(mode.trim(), fixture));
+        }
+
+        try (PrintStream out = new PrintStream(Files.newOutputStream(outDir.resolve("summary.txt")), true, StandardCharsets.UTF_8)) {
+            printSummary(out, results);
+        }
+        printSummary(System.out, results);
+        System.out.println("Report written to " + outDir.toAbsolutePath());
+    }
+
+    // A directory of small files; copying and deleting it is a slow, blocking request
+    private Path createFixture() throws IOException {
+        Path fixture = Files.createTempDirectory("loadtest-fixture");
+        byte[] content = "x".repeat(4096).getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < fixtureFiles; i++) {
+            Files.write(fixture.resolve("file-" + i + ".txt"), content);
+        }
+        return fixture;
+    }
+
+    private Result runMode(String mode, Path fixture) throws Exception {
+        System.out.println("Running " + mode + " threads: " + slowClients + " slow and " + fastClients
+            + " fast clients, Jetty maxThreads=" + maxThreads);
+        Map<String, String> settings = Map.of(
+            "server.virtualThreads", String.valueOf(mode.equals("virtual")),
+            "server.maxThreads", String.valueOf(maxThreads));
+
+        Result result = new Result(mode);
+        ExecutorService executor = WsLoadTest.clientExecutor();
+        HttpClient http = HttpClient.newBuilder().executor(executor).build();
+        try (LoadTestServerProcess server = LoadTestServerProcess.start(settings, options.get("serverJvmArgs"),
+                outDir.resolve("server-" + mode + ".log").toFile())) {
+            String baseUrl = "http://localhost:" + server.getPort();
+            Path copies = Files.createTempDirectory("loadtest-copies");
+
+            long start = System.nanoTime();
+            long measureFrom = start + TimeUnit.MILLISECONDS.toNanos(warmupMs);
+            long end = measureFrom + TimeUnit.MILLISECONDS.toNanos(durationMs);
+            AtomicInteger copyIds = new AtomicInteger();
+
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < slowClients; i++) {
+                workers.add(executor.submit(() -> loop(end, measureFrom, result.slow, () -> {
+                    String dest = copies.resolve("copy-" + copyIds.incrementAndGet()).toString();
+                    return post(http, baseUrl + "/api/files/copy", Map.of("source", fixture.toString(), "dest", dest))
+                        && delete(http, baseUrl + "/api/files/delete?path=" + dest);
+                })));
+            }
+            for (int i = 0; i < fastClients; i++) {
+                int client = i;
+                workers.add(executor.submit(() -> loop(end, measureFrom, result.fast,
+                    () -> get(http, baseUrl + (client % 2 == 0 ? "/api/health" : "/api/data")))));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        writeHistogram("fast-latency-" + mode + ".hgrm", result.fast.latency);
+        writeHistogram("slow-latency-" + mode + ".hgrm", result.slow.latency);
+        return result;
+    }
+
+    // Issue requests back to back until the run ends
+    private static void loop(long end, long measureFrom, Traffic traffic, Callable<Boolean> request) {
+        while (System.nanoTime() < end) {
+            long startedAt = System.nanoTime();
+            boolean ok;
+            try {
+                ok = request.call();
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                ok = false;
+            }
+            traffic.record(startedAt, measureFrom, ok);
+        }
+    }
+
+    private static boolean get(HttpClient http, String url) throws Exception {
+        return http.send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+    }
+
+    private static boolean post(HttpClient http, String url, Object body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(body)))
+            .build();
+        return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+    }
+
+    private static boolean delete(HttpClient http, String url) throws Exception {
+        return http.send(HttpRequest.newBuilder(URI.create(url)).DELETE().build(), HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+    }
+
+    private void printSummary(PrintStream out, List<Result> results) {
+        out.println("# Mixed blocking load: " + label);
+        out.println("date=" + Instant.now());
+        out.println("java=" + System.getProperty("java.version") + " cpus=" + Runtime.getRuntime().availableProcessors());
+        out.println("options=" + new TreeMap<>(options));
+        out.println();
+        double seconds = durationMs / 1000.0;
+        for (Result result : results) {
+            out.println("[" + result.mode + "]");
+            for (Traffic traffic : List.of(result.fast, result.slow)) {
+                LatencyHistogram latency = traffic.latency;
+                out.println(String.format(Locale.ROOT,
+                    "%s: %.1f req/s, %d errors, latency (ms) p50=%.3f p99=%.3f p99.9=%.3f max=%.3f",
+                    traffic.name, latency.getTotalCount() / seconds, traffic.errors.get(),
+                    latency.getValueAtPercentile(50) / 1000.0,
+                    latency.getValueAtPercentile(99) / 1000.0,
+                    latency.getValueAtPercentile(99.9) / 1000.0,
+                    latency.getMax() / 1000.0));
+            }
+        }
+    }
+
+    private void writeHistogram(String name, LatencyHistogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(outDir.resolve(name)), true, StandardCharsets.UTF_8)) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static final class Result {
+        private final String mode;
+        private final Traffic fast = new Traffic("fast (health, data)");
+        private final Traffic slow = new Traffic("slow (copy + delete)");
+
+        Result(String mode) {
+            this.mode = mode;
+        }
+    }
+
+    private static final class Traffic {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong errors = new AtomicLong();
+
+        Traffic(String name) {
+            this.name = name;
+        }
+
+        // Only requests started after the warmup count
+        void record(long startedAt, long measureFrom, boolean ok) {
+            if (startedAt < measureFrom) {
+                return;
+            }
+            if (ok) {
+                latency.record((System.nanoTime() - startedAt) / 1000);
+            } else {
+                errors.incrementAndGet();
+            }
+        }
+    }
+}
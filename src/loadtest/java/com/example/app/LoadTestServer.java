@@ -0,0 +1,52 @@
+package com.example.app;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * BackendServer run in its own JVM for the load tests, so heap measurements
+ * cover the server only. Arguments are the port followed by key=value
+ * settings. Reads commands from stdin and answers on stdout with lines
+ * starting with "LOADTEST ":
+ * - heap: collect garbage and report the used heap in bytes
+ * - quit: stop the server and exit
+ */
+public class LoadTestServer {
+    static final String PREFIX = "LOADTEST ";
+
+    public static void main(String[] args) throws Exception {
+        int port = Integer.parseInt(args[0]);
+
+        SettingsManager settings = SettingsManager.getInstance();
+        for (int i = 1; i < args.length; i++) {
+            int eq = args[i].indexOf('=');
+            settings.setString(args[i].substring(0, eq), args[i].substring(eq + 1));
+        }
+
+        BackendServer server = new BackendServer(port);
+        server.start();
+        System.out.println(PREFIX + "ready");
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String command;
+        while ((command = in.readLine()) != null) {
+            if (command.equals("heap")) {
+                System.out.println(PREFIX + "heap " + usedHeapAfterGc());
+            } else if (command.equals("quit")) {
+                break;
+            }
+        }
+        server.stop();
+        System.exit(0);
+    }
+
+    static long usedHeapAfterGc() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.app;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A LoadTestServer child JVM, driven over its stdin and stdout
+ * Each run gets a fresh temporary home directory, so it neither reads nor
+ * pollutes the user's settings and database. Server output goes to a log file.
+ */
+public class LoadTestServerProcess implements AutoCloseable {
+    private final Process process;
+    private final int port;
+    private final BlockingQueue<String> replies = new LinkedBlockingQueue<>();
+
+    private LoadTestServerProcess(Process process, int port) {
+        this.process = process;
+        this.port = port;
+    }
+
+    /**
+     * Start a server and wait until it accepts requests
+     *
+     * @param settings SettingsManager entries applied before the server is created
+     * @param jvmArgs extra JVM options separated by spaces; may be null
+     */
+    public static LoadTestServerProcess start(Map<String, String> settings, String jvmArgs, File log) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Path home = Files.createTempDirectory("loadtest-home");
+        String javaBin = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = new ArrayList<>(List.of(javaBin,
+            "-Duser.home=" + home,
+            "-Djava.awt.headless=true",
+            "-cp", System.getProperty("java.class.path")));
+        if (jvmArgs != null && !jvmArgs.isBlank()) {
+            command.addAll(List.of(jvmArgs.trim().split("\\s+")));
+        }
+        command.add(LoadTestServer.class.getName());
+        command.add(String.valueOf(port));
+        settings.forEach((key, value) -> command.add(key + "=" + value));
+
+        LoadTestServerProcess server = new LoadTestServerProcess(
+            new ProcessBuilder(command).redirectErrorStream(true).start(), port);
+        Thread reader = new Thread(() -> server.pumpOutput(log), "LoadTestServerOutput");
+        reader.setDaemon(true);
+        reader.start();
+
+        String ready = server.replies.poll(60, TimeUnit.SECONDS);
+        if (!"ready".equals(ready)) {
+            server.process.destroyForcibly();
+            throw new IllegalStateException("Server did not start; see " + log);
+        }
+        return server;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    // Protocol lines are handed to the driver; everything else goes to the log
+    private void pumpOutput(File log) {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(log, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith(LoadTestServer.PREFIX)) {
+                    replies.add(line.substring(LoadTestServer.PREFIX.length()));
+                } else {
+                    out.println(line);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Lost server output: " + e.getMessage());
+        }
+    }
+
+    private void command(String command) throws IOException {
+        process.getOutputStream().write((command + "\n").getBytes(StandardCharsets.UTF_8));
+        process.getOutputStream().flush();
+    }
+
+    /**
+     * Used heap in bytes after a full GC, or -1 if the server did not answer
+     */
+    public long heap() throws Exception {
+        command("heap");
+        String reply = replies.poll(30, TimeUnit.SECONDS);
+        if (reply == null || !reply.startsWith("heap ")) {
+            return -1;
+        }
+        return Long.parseLong(reply.substring(5));
+    }
+
+    @Override
+    public void close() {
+        try {
+            command("quit");
+            if (!process.waitFor(15, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (IOException | InterruptedException e) {
+            process.destroyForcibly();
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.example.app;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load generator for the /ws endpoint
+ * Starts a BackendServer in a child JVM (or targets --url), opens many
+ * WebSocket clients subscribed to the broadcast topic, then sends paced
+ * broadcasts through /api/broadcast and measures:
+ * - connect rate and handshake latency
+ * - broadcast delivery latency to each client, and fan-out time to the last client
+ * - server heap per connected session (child JVM only)
+ * Results go to a summary and .hgrm percentile files under --out/--label,
+ * so runs of different releases on the same machine can be compared.
+ *
+ * Usage: java -cp ... com.example.app.WsLoadTest --clients=500 --broadcasts=200 --rate=20 --label=1.3.0
+ */
+public class WsLoadTest {
+    private static final Gson gson = new Gson();
+
+    private final Map<String, String> options;
+    private final int clients;
+    private final int connectConcurrency;
+    private final int broadcasts;
+    private final int warmup;
+    private final double rate;
+    private final int payloadBytes;
+    private final long timeoutMs;
+    private final String label;
+    private final Path outDir;
+
+    private final LatencyHistogram connectLatency = new LatencyHistogram();
+    private final LatencyHistogram deliveryLatency = new LatencyHistogram();
+    private final LatencyHistogram fanOutLatency = new LatencyHistogram();
+    private final Map<Integer, Broadcast> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong deliveries = new AtomicLong();
+
+    private ExecutorService executor;
+    private HttpClient http;
+    private LoadTestServerProcess server;
+
+    public static void main(String[] args) throws Exception {
+        new WsLoadTest(parseOptions(args)).run();
+        System.exit(0);
+    }
+
+    WsLoadTest(Map<String, String> options) {
+        this.options = options;
+        this.clients = intOption("clients", 500);
+        this.connectConcurrency = intOption("connectConcurrency", 50);
+        this.broadcasts = intOption("broadcasts", 200);
+        this.warmup = intOption("warmup", 20);
+        this.rate = Double.parseDouble(options.getOrDefault("rate", "20"));
+        this.payloadBytes = intOption("payload", 256);
+        this.timeoutMs = intOption("timeoutMs", 10000);
+        this.label = options.getOrDefault("label", "dev");
+        this.outDir = Paths.get(options.getOrDefault("out", "target/loadtest"), label);
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    private int intOption(String name, int defaultValue) {
+        return Integer.parseInt(options.getOrDefault(name, String.valueOf(defaultValue)));
+    }
+
+    void run() throws Exception {
+        Files.createDirectories(outDir);
+        executor = clientExecutor();
+        http = HttpClient.newBuilder().executor(executor).build();
+
+        String baseUrl = options.get("url");
+        if (baseUrl == null) {
+            server = LoadTestServerProcess.start(
+                Map.of("websocket.maxConnections", String.valueOf(clients + 100)),
+                options.get("serverJvmArgs"),
+                outDir.resolve("server.log").toFile());
+            baseUrl = "http://localhost:" + server.getPort();
+        }
+        URI wsUri = URI.create(baseUrl.replaceFirst("^http", "ws") + "/ws?topics=" + WebSocketHandler.TOPIC_BROADCAST);
+        URI broadcastUri = URI.create(baseUrl + "/api/broadcast");
+
+        try {
+            long heapBefore = server != null ? server.heap() : -1;
+
+            System.out.println("Connecting " + clients + " clients to " + wsUri);
+            List<WebSocket> sockets = new ArrayList<>();
+            long connectStart = System.nanoTime();
+            int failedConnects = connect(wsUri, sockets);
+            double connectSeconds = (System.nanoTime() - connectStart) / 1e9;
+
+            long heapAfter = server != null ? server.heap() : -1;
+
+            System.out.println("Sending " + warmup + " warmup and " + broadcasts + " measured broadcasts at " + rate + "/s");
+            sendBroadcasts(broadcastUri, sockets.size(), warmup, false);
+            long missing = sendBroadcasts(broadcastUri, sockets.size(), broadcasts, true);
+
+            for (WebSocket socket : sockets) {
+                socket.sendClose(WebSocket.NORMAL_CLOSURE, "done");
+            }
+
+            writeReport(sockets.size(), failedConnects, connectSeconds, heapBefore, heapAfter, missing);
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    // Virtual threads when the JVM has them (Java 21+); otherwise a cached pool
+    static ExecutorService clientExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger ids = new AtomicInteger(1);
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "LoadTestClient-" + ids.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Open the clients with at most connectConcurrency handshakes in flight
+     *
+     * @return the number of failed connections
+     */
+    private int connect(URI uri, List<WebSocket> sockets) throws InterruptedException {
+        Semaphore handshakes = new Semaphore(connectConcurrency);
+        List<CompletableFuture<WebSocket>> pending = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            handshakes.acquire();
+            long start = System.nanoTime();
+            pending.add(http.newWebSocketBuilder()
+                .buildAsync(uri, new Client())
+                .whenComplete((socket, error) -> {
+                    handshakes.release();
+                    if (error == null) {
+                        connectLatency.record((System.nanoTime() - start) / 1000);
+                    }
+                }));
+        }
+
+        int failed = 0;
+        for (CompletableFuture<WebSocket> future : pending) {
+            try {
+                sockets.add(future.get(timeoutMs, TimeUnit.MILLISECONDS));
+            } catch (Exception e) {
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            System.err.println(failed + " clients failed to connect");
+        }
+        return failed;
+    }
+
+    /**
+     * Send broadcasts open-loop at the configured rate. Latency is measured
+     * from each broadcast's scheduled time, so a stalled server shows up as
+     * latency instead of silently lowering the send rate.
+     *
+     * @return deliveries that did not arrive within the timeout
+     */
+    private long sendBroadcasts(URI uri, int recipients, int count, boolean measured) throws Exception {
+        String padding = "x".repeat(Math.max(0, payloadBytes));
+        long intervalNanos = (long) (1e9 / rate);
+        long start = System.nanoTime();
+        List<Broadcast> sent = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            long scheduled = start + i * intervalNanos;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            int id = measured ? i : -1 - i;
+            Broadcast broadcast = new Broadcast(scheduled, recipients, measured);
+            inFlight.put(id, broadcast);
+            sent.add(broadcast);
+
+            String body = gson.toJson(Map.of("message", id + ":" + padding));
+            HttpResponse<String> response = http.send(
+                HttpRequest.newBuilder(uri).header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                System.err.println("Broadcast " + id + " failed: " + response.statusCode() + " " + response.body());
+            }
+        }
+
+        long missing = 0;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        for (Broadcast broadcast : sent) {
+            long remaining = deadline - System.nanoTime();
+            if (!broadcast.remaining.await(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                missing += broadcast.remaining.getCount();
+            }
+        }
+        inFlight.clear();
+        return missing;
+    }
+
+    private void delivered(int id, long receivedAt) {
+        Broadcast broadcast = inFlight.get(id);
+        if (broadcast == null) {
+            return;
+        }
+        if (broadcast.measured) {
+            deliveries.incrementAndGet();
+            deliveryLatency.record((receivedAt - broadcast.scheduledAt) / 1000);
+        }
+        broadcast.lastArrival.accumulateAndGet(receivedAt, Math::max);
+        if (broadcast.pending.decrementAndGet() == 0 && broadcast.measured) {
+            fanOutLatency.record((broadcast.lastArrival.get() - broadcast.scheduledAt) / 1000);
+        }
+        broadcast.remaining.countDown();
+    }
+
+    private void writeReport(int connected, int failedConnects, double connectSeconds,
+                             long heapBefore, long heapAfter, long missing) throws IOException {
+        Path summary = outDir.resolve("summary.txt");
+        try (PrintStream out = new PrintStream(Files.newOutputStream(summary), true, StandardCharsets.UTF_8)) {
+            printSummary(out, connected, failedConnects, connectSeconds, heapBefore, heapAfter, missing);
+        }
+        printSummary(System.out, connected, failedConnects, connectSeconds, heapBefore, heapAfter, missing);
+
+        writeHistogram("connect-latency.hgrm", connectLatency);
+        writeHistogram("delivery-latency.hgrm", deliveryLatency);
+        writeHistogram("fanout-latency.hgrm", fanOutLatency);
+        System.out.println("Report written to " + outDir.toAbsolutePath());
+    }
+
+    private void printSummary(PrintStream out, int connected, int failedConnects, double connectSeconds,
+                              long heapBefore, long heapAfter, long missing) {
+        out.println("# WebSocket load test: " + label);
+        out.println("date=" + Instant.now());
+        out.println("java=" + System.getProperty("java.version") + " cpus=" + Runtime.getRuntime().availableProcessors());
+        out.println("options=" + new TreeMap<>(options));
+        out.println();
+        out.println(String.format(Locale.ROOT, "connect: %d ok, %d failed in %.2fs (%.1f/s)",
+            connected, failedConnects, connectSeconds, connected / Math.max(connectSeconds, 1e-9)));
+        printPercentiles(out, "connect latency", connectLatency);
+        if (heapBefore >= 0 && heapAfter >= 0 && connected > 0) {
+            out.println(String.format(Locale.ROOT, "server heap: %.1f MB idle, %.1f MB connected, %.1f KB per session",
+                heapBefore / 1048576.0, heapAfter / 1048576.0, (heapAfter - heapBefore) / 1024.0 / connected));
+        }
+        out.println(String.format(Locale.ROOT, "broadcasts: %d x %d recipients, %d delivered, %d missing",
+            broadcasts, connected, deliveries.get(), missing));
+        printPercentiles(out, "delivery latency", deliveryLatency);
+        printPercentiles(out, "fan-out to last client", fanOutLatency);
+    }
+
+    private static void printPercentiles(PrintStream out, String name, LatencyHistogram histogram) {
+        out.println(String.format(Locale.ROOT, "%s (ms): p50=%.3f p90=%.3f p99=%.3f p99.9=%.3f max=%.3f n=%d",
+            name,
+            histogram.getValueAtPercentile(50) / 1000.0,
+            histogram.getValueAtPercentile(90) / 1000.0,
+            histogram.getValueAtPercentile(99) / 1000.0,
+            histogram.getValueAtPercentile(99.9) / 1000.0,
+            histogram.getMax() / 1000.0,
+            histogram.getTotalCount()));
+    }
+
+    private void writeHistogram(String name, LatencyHistogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(outDir.resolve(name)), true, StandardCharsets.UTF_8)) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static final class Broadcast {
+        private final long scheduledAt;
+        private final CountDownLatch remaining;
+        private final boolean measured;
+        private final AtomicInteger pending;
+        private final AtomicLong lastArrival = new AtomicLong();
+
+        Broadcast(long scheduledAt, int recipients, boolean measured) {
+            this.scheduledAt = scheduledAt;
+            this.remaining = new CountDownLatch(recipients);
+            this.pending = new AtomicInteger(recipients);
+            this.measured = measured;
+        }
+    }
+
+    // One connection; answers heartbeats and reports broadcast arrivals
+    private final class Client implements WebSocket.Listener {
+        private final StringBuilder partial = new StringBuilder();
+
+        @Override
+        public CompletionStage<?> onText(WebSocket socket, CharSequence data, boolean last) {
+            long receivedAt = System.nanoTime();
+            partial.append(data);
+            if (last) {
+                String text = partial.toString();
+                partial.setLength(0);
+                handle(socket, text, receivedAt);
+            }
+            socket.request(1);
+            return null;
+        }
+
+        private void handle(WebSocket socket, String text, long receivedAt) {
+            Map<?, ?> message = gson.fromJson(text, Map.class);
+            Object type = message.get("type");
+            if ("ping".equals(type) && message.get("id") instanceof Number id) {
+                socket.sendText("{\"type\":\"pong\",\"id\":" + id.longValue() + "}", true);
+            } else if ("broadcast".equals(type) && message.get("message") instanceof String body) {
+                int colon = body.indexOf(':');
+                if (colon > 0) {
+                    delivered(Integer.parseInt(body.substring(0, colon)), receivedAt);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.app;
+
+import io.javalin.http.Context;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-route latency of the HTTP API
+ * BackendServer's before and after handlers time every request with
+ * System.nanoTime. Each route, keyed by method and path pattern such as
+ * "GET /api/tasks/{taskId}", gets its own lock-free histogram. One in N
+ * calls to /api routes is also written to api_calls with its real response
+ * time; failed calls are always kept. Those inserts go through the audit
+ * write-behind writer, which batches them off the request thread.
+ */
+public class ApiMetrics {
+    private static final String START_ATTRIBUTE = "apiMetrics.startNanos";
+    // Requests slower than this share the top bucket; max stays exact
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(5);
+    // Requests that matched no route are grouped under one path
+    static final String UNMATCHED_ROUTE = "(unmatched)";
+
+    private final int sampleRate;
+    private final long startedAt = System.currentTimeMillis();
+    // Method -> route pattern -> stats; nested so a lookup builds no key string
+    private final Map<String, Map<String, RouteStats>> routes = new ConcurrentHashMap<>();
+    private final AtomicLong persisted = new AtomicLong();
+
+    /**
+     * @param sampleRate keep one in this many successful calls in api_calls; 0 keeps none
+     */
+    public ApiMetrics(int sampleRate) {
+        this.sampleRate = Math.max(0, sampleRate);
+    }
+
+    public void start(Context ctx) {
+        ctx.attribute(START_ATTRIBUTE, System.nanoTime());
+    }
+
+    public void finish(Context ctx) {
+        Long startNanos = ctx.attribute(START_ATTRIBUTE);
+        if (startNanos == null) {
+            return;
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        record(ctx.method().name(), routeOf(ctx), ctx.statusCode(), elapsedNanos);
+    }
+
+    private static String routeOf(Context ctx) {
+        String route = ctx.endpointHandlerPath();
+        // Classpath static files match "*"; 404s get a description instead of a path
+        return route == null || !route.startsWith("/") ? UNMATCHED_ROUTE : route;
+    }
+
+    void record(String method, String route, int status, long elapsedNanos) {
+        // Recording allocates nothing once a route has been seen
+        Map<String, RouteStats> byRoute = routes.get(method);
+        if (byRoute == null) {
+            byRoute = routes.computeIfAbsent(method, key -> new ConcurrentHashMap<>());
+        }
+        RouteStats stats = byRoute.get(route);
+        if (stats == null) {
+            stats = byRoute.computeIfAbsent(route, key -> new RouteStats(method, key));
+        }
+        long call = stats.record(status, elapsedNanos);
+
+        boolean success = status < 400;
+        if (route.startsWith("/api/") && (!success || (sampleRate > 0 && call % sampleRate == 0))) {
+            long responseMs = Math.round(elapsedNanos / 1_000_000.0);
+            DatabaseManager.getInstance().logApiCall(method, route, status, responseMs, success);
+            persisted.incrementAndGet();
+        }
+    }
+
+    /**
+     * Counts and latency percentiles in milliseconds for every route seen
+     */
+    public Map<String, Object> getMetrics() {
+        List<RouteStats> sorted = getRoutes();
+        sorted.sort(Comparator.comparing((RouteStats r) -> r.route).thenComparing(r -> r.method));
+
+        List<Map<String, Object>> routeList = new ArrayList<>();
+        for (RouteStats stats : sorted) {
+            routeList.add(stats.toMap());
+        }
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("since", startedAt);
+        metrics.put("routes", routeList);
+        metrics.put("api_log", Map.of("sample_rate", sampleRate, "persisted", persisted.get()));
+        return metrics;
+    }
+
+    /**
+     * Snapshot of every route, for exporters
+     */
+    public List<RouteStats> getRoutes() {
+        List<RouteStats> list = new ArrayList<>();
+        routes.values().forEach(byRoute -> list.addAll(byRoute.values()));
+        return list;
+    }
+
+    private static double millis(double nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    public static class RouteStats {
+        private final String method;
+        private final String route;
+        private final LatencyHistogram latency = new LatencyHistogram(HIGHEST_TRACKABLE_NANOS);
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        // Responses by status class: 1xx through 5xx
+        private final AtomicLongArray statusClasses = new AtomicLongArray(5);
+
+        RouteStats(String method, String route) {
+            this.method = method;
+            this.route = route;
+        }
+
+        // Returns the zero-based index of this call
+        long record(int status, long elapsedNanos) {
+            latency.record(elapsedNanos);
+            totalNanos.addAndGet(elapsedNanos);
+            int statusClass = status / 100 - 1;
+            if (statusClass >= 0 && statusClass < 5) {
+                statusClasses.incrementAndGet(statusClass);
+            }
+            return calls.getAndIncrement();
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getRoute() {
+            return route;
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getCount() {
+            return calls.get();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.get();
+        }
+
+        // Count of responses with the given status class, e.g. 5 for 5xx
+        public long getStatusClassCount(int statusClass) {
+            return statusClass >= 1 && statusClass <= 5 ? statusClasses.get(statusClass - 1) : 0;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("method", method);
+            map.put("route", route);
+            map.put("count", calls.get());
+            Map<String, Long> statuses = new HashMap<>();
+            for (int i = 1; i <= 5; i++) {
+                long count = getStatusClassCount(i);
+                if (count > 0) {
+                    statuses.put(i + "xx", count);
+                }
+            }
+            map.put("status", statuses);
+            map.put("mean_ms", millis(latency.getMean()));
+            map.put("p50_ms", millis(latency.getValueAtPercentile(50)));
+            map.put("p95_ms", millis(latency.getValueAtPercentile(95)));
+            map.put("p99_ms", millis(latency.getValueAtPercentile(99)));
+            map.put("max_ms", millis(latency.getMax()));
+            return map;
+        }
+    }
+}
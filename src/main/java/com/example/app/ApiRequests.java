@@ -0,0 +1,300 @@
+package com.example.app;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Typed bodies for the REST endpoints, parsed straight from the request stream
+ * Every record has a hand-written adapter registered up front, so a body is
+ * decoded in one pass with no intermediate String, no LinkedTreeMap and no
+ * reflection. A large /api/files/write body is only copied into its content
+ * string. Unknown fields are skipped, missing ones read as null, and an empty
+ * body reads as a record of nulls. Malformed JSON or a field of the wrong
+ * type throws JsonParseException. Records written with the same Gson, e.g.
+ * when logged, come out as the JSON object they were read from.
+ */
+public final class ApiRequests {
+    public record CalculateRequest(Double num1, Double num2, String operation) {}
+
+    public record BroadcastRequest(String message) {}
+
+    // Also used for /api/files/append and /api/files/mkdir
+    public record FileWriteRequest(String path, String content) {}
+
+    // /api/files/copy and /api/files/move
+    public record FileTransferRequest(String source, String dest) {}
+
+    public record NotificationRequest(String title, String message, String type) {}
+
+    public record FileOperationNotificationRequest(String operation, String filePath, Boolean success) {}
+
+    public record WebSocketNotificationRequest(String event, String details) {}
+
+    public record SystemNotificationRequest(String status, String details) {}
+
+    public record TaskSubmitRequest(String name, String description, String type, String source, String destination) {
+        // Same fields from JSON-RPC params, which arrive already parsed
+        static TaskSubmitRequest fromParams(Map<?, ?> params) {
+            return new TaskSubmitRequest(stringParam(params, "name"), stringParam(params, "description"),
+                stringParam(params, "type"), stringParam(params, "source"), stringParam(params, "destination"));
+        }
+    }
+
+    // value may be any JSON; strings and numbers keep their literal text, objects and arrays their JSON
+    public record UserDataRequest(String key, String value, String dataType) {}
+
+    public record ExportRequest(List<String> tables, String format, String directory) {}
+
+    public record ImportRequest(String path) {}
+
+    private enum Kind { STRING, NUMBER, BOOLEAN, TEXT, STRING_LIST }
+
+    private record Field(String name, Kind kind) {}
+
+    private static final Map<Class<?>, RecordAdapter<?>> adapters = new HashMap<>();
+    private static final Gson gson;
+
+    static {
+        register(CalculateRequest.class, v -> new CalculateRequest((Double) v[0], (Double) v[1], (String) v[2]),
+            number("num1"), number("num2"), string("operation"));
+        register(BroadcastRequest.class, v -> new BroadcastRequest((String) v[0]),
+            string("message"));
+        register(FileWriteRequest.class, v -> new FileWriteRequest((String) v[0], (String) v[1]),
+            string("path"), string("content"));
+        register(FileTransferRequest.class, v -> new FileTransferRequest((String) v[0], (String) v[1]),
+            string("source"), string("dest"));
+        register(NotificationRequest.class, v -> new NotificationRequest((String) v[0], (String) v[1], (String) v[2]),
+            string("title"), string("message"), string("type"));
+        register(FileOperationNotificationRequest.class,
+            v -> new FileOperationNotificationRequest((String) v[0], (String) v[1], (Boolean) v[2]),
+            string("operation"), string("filePath"), bool("success"));
+        register(WebSocketNotificationRequest.class, v -> new WebSocketNotificationRequest((String) v[0], (String) v[1]),
+            string("event"), string("details"));
+        register(SystemNotificationRequest.class, v -> new SystemNotificationRequest((String) v[0], (String) v[1]),
+            string("status"), string("details"));
+        register(TaskSubmitRequest.class,
+            v -> new TaskSubmitRequest((String) v[0], (String) v[1], (String) v[2], (String) v[3], (String) v[4]),
+            string("name"), string("description"), string("type"), string("source"), string("destination"));
+        register(UserDataRequest.class, v -> new UserDataRequest((String) v[0], (String) v[1], (String) v[2]),
+            string("key"), new Field("value", Kind.TEXT), string("dataType"));
+        register(ExportRequest.class, v -> new ExportRequest(stringList(v[0]), (String) v[1], (String) v[2]),
+            new Field("tables", Kind.STRING_LIST), string("format"), string("directory"));
+        register(ImportRequest.class, v -> new ImportRequest((String) v[0]),
+            string("path"));
+
+        GsonBuilder builder = new GsonBuilder();
+        adapters.forEach(builder::registerTypeAdapter);
+        gson = builder.create();
+    }
+
+    private ApiRequests() {
+    }
+
+    /**
+     * Parse a request body into the given record type
+     */
+    public static <T> T read(InputStream body, Class<T> type) {
+        @SuppressWarnings("unchecked")
+        RecordAdapter<T> adapter = (RecordAdapter<T>) adapters.get(type);
+        if (adapter == null) {
+            throw new IllegalArgumentException("No request adapter for " + type.getName());
+        }
+        T value = gson.fromJson(reader(body), type);
+        return value != null ? value : adapter.empty();
+    }
+
+    /**
+     * Parse a free-form object body, for endpoints that take arbitrary keys
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> readMap(InputStream body) {
+        Map<String, Object> value = gson.fromJson(reader(body), Map.class);
+        return value != null ? value : Map.of();
+    }
+
+    private static Reader reader(InputStream body) {
+        return new InputStreamReader(body, StandardCharsets.UTF_8);
+    }
+
+    private static <T> void register(Class<T> type, Function<Object[], T> factory, Field... fields) {
+        adapters.put(type, new RecordAdapter<>(type, factory, fields));
+    }
+
+    private static Field string(String name) {
+        return new Field(name, Kind.STRING);
+    }
+
+    private static Field number(String name) {
+        return new Field(name, Kind.NUMBER);
+    }
+
+    private static Field bool(String name) {
+        return new Field(name, Kind.BOOLEAN);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> stringList(Object value) {
+        return (List<String>) value;
+    }
+
+    private static String stringParam(Map<?, ?> params, String key) {
+        Object value = params != null ? params.get(key) : null;
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * Reads a JSON object into constructor arguments in field order, and
+     * writes the record's components back out in the same order
+     */
+    private static final class RecordAdapter<T> extends TypeAdapter<T> {
+        private final Function<Object[], T> factory;
+        private final Field[] fields;
+        private final RecordComponent[] components;
+
+        RecordAdapter(Class<T> type, Function<Object[], T> factory, Field[] fields) {
+            this.factory = factory;
+            this.fields = fields;
+            this.components = type.getRecordComponents();
+            if (components.length != fields.length) {
+                throw new IllegalStateException(type.getSimpleName() + " has " + components.length
+                    + " components but " + fields.length + " fields");
+            }
+        }
+
+        T empty() {
+            return factory.apply(new Object[fields.length]);
+        }
+
+        @Override
+        public T read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Object[] values = new Object[fields.length];
+            in.beginObject();
+            while (in.hasNext()) {
+                int index = indexOf(in.nextName());
+                if (index < 0) {
+                    in.skipValue();
+                } else {
+                    values[index] = readValue(in, fields[index].kind());
+                }
+            }
+            in.endObject();
+            return factory.apply(values);
+        }
+
+        private int indexOf(String name) {
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i].name().equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static Object readValue(JsonReader in, Kind kind) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            switch (kind) {
+                case NUMBER:
+                    // nextDouble accepts numeric strings but lets a NumberFormatException
+                    // escape for anything else, which Gson does not wrap
+                    try {
+                        return in.nextDouble();
+                    } catch (NumberFormatException e) {
+                        throw new JsonSyntaxException("Expected a number at " + in.getPreviousPath(), e);
+                    }
+                case BOOLEAN:
+                    return in.nextBoolean();
+                case TEXT:
+                    switch (in.peek()) {
+                        case STRING:
+                        case NUMBER:
+                            return in.nextString();
+                        case BOOLEAN:
+                            return String.valueOf(in.nextBoolean());
+                        default:
+                            return JsonParser.parseReader(in).toString();
+                    }
+                case STRING_LIST:
+                    if (in.peek() != JsonToken.BEGIN_ARRAY) {
+                        in.skipValue();
+                        return null;
+                    }
+                    List<String> list = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        list.add(in.peek() == JsonToken.BOOLEAN ? String.valueOf(in.nextBoolean()) : in.nextString());
+                    }
+                    in.endArray();
+                    return list;
+                default:
+                    return in.nextString();
+            }
+        }
+
+        @Override
+        public void write(JsonWriter out, T value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            for (int i = 0; i < fields.length; i++) {
+                out.name(fields[i].name());
+                writeValue(out, component(value, i));
+            }
+            out.endObject();
+        }
+
+        private Object component(T value, int index) {
+            try {
+                return components[index].getAccessor().invoke(value);
+            } catch (ReflectiveOperationException e) {
+                throw new JsonIOException("Cannot read " + components[index].getName(), e);
+            }
+        }
+
+        // TEXT values are written as the strings they were read into
+        private static void writeValue(JsonWriter out, Object value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+            } else if (value instanceof Number number) {
+                out.value(number);
+            } else if (value instanceof Boolean bool) {
+                out.value(bool);
+            } else if (value instanceof List<?> list) {
+                out.beginArray();
+                for (Object item : list) {
+                    writeValue(out, item);
+                }
+                out.endArray();
+            } else {
+                out.value(value.toString());
+            }
+        }
+    }
+}
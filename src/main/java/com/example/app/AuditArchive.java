@@ -0,0 +1,535 @@
+package com.example.app;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bulk export and import of the audit tables
+ *
+ * The binary format is a gzip stream of length-prefixed, type-tagged values:
+ * <pre>
+ *   "JWAUDIT" (UTF), version (int), table (UTF), column count (int), column names (UTF...)
+ *   per row: ROW marker (byte), then one tagged value per column
+ *   END marker (byte), row count (long)
+ * </pre>
+ * CSV export is for reading by people and spreadsheets; only the binary
+ * format can be imported back.
+ */
+public class AuditArchive {
+    public static final List<String> TABLES = List.of(
+        "app_logs", "file_operations", "websocket_messages", "api_calls", "notifications"
+    );
+
+    public static final String BINARY_EXTENSION = ".audit.gz";
+    public static final String CSV_EXTENSION = ".csv";
+
+    private static final String MAGIC = "JWAUDIT";
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int IMPORT_BATCH_SIZE = 5000;
+    // Lengths read from a file are checked against these before anything is allocated
+    private static final int MAX_COLUMNS = 2000;
+    private static final int MAX_VALUE_BYTES = 64 * 1024 * 1024;
+
+    private static final byte END = 0;
+    private static final byte ROW = 1;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_INTEGER = 1;
+    private static final byte TAG_REAL = 2;
+    private static final byte TAG_TEXT = 3;
+    private static final byte TAG_BLOB = 4;
+
+    public enum Format {
+        BINARY, CSV;
+
+        public static Format fromString(String value) {
+            if (value == null || value.isEmpty()) {
+                return BINARY;
+            }
+            try {
+                return Format.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown export format: " + value);
+            }
+        }
+
+        public String extension() {
+            return this == BINARY ? BINARY_EXTENSION : CSV_EXTENSION;
+        }
+    }
+
+    private final ConnectionPool pool;
+    // Current row count of a table, used only to report export progress
+    private final ToLongFunction<String> rowCounts;
+    // Concurrent imports each get their own staging table
+    private final AtomicInteger nextStage = new AtomicInteger(1);
+
+    public AuditArchive(ConnectionPool pool, DatabaseManager databaseManager) {
+        this(pool, databaseManager::getRowCount);
+    }
+
+    AuditArchive(ConnectionPool pool, ToLongFunction<String> rowCounts) {
+        this.pool = pool;
+        this.rowCounts = rowCounts;
+    }
+
+    public static void requireAuditTable(String table) {
+        if (!TABLES.contains(table)) {
+            throw new IllegalArgumentException("Unknown audit table: " + table);
+        }
+    }
+
+    /**
+     * Export every row of an audit table, oldest first, to the target file.
+     * Progress is reported as a percentage of the expected row count.
+     */
+    public long exportTable(String table, Format format, Path target, Consumer<Double> progress)
+            throws SQLException, IOException {
+        requireAuditTable(table);
+        long expected = Math.max(1, rowCounts.applyAsLong(table));
+        ProgressTracker tracker = new ProgressTracker(progress);
+
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        try (ConnectionPool.PooledConnection conn = pool.reader();
+             PreparedStatement stmt = conn.prepareStatement("SELECT * FROM " + table + " ORDER BY id");
+             ResultSet rs = stmt.executeQuery()) {
+            ResultSetMetaData meta = rs.getMetaData();
+            int columns = meta.getColumnCount();
+            String[] names = new String[columns];
+            for (int i = 0; i < columns; i++) {
+                names[i] = meta.getColumnName(i + 1);
+            }
+
+            long rows = format == Format.BINARY
+                ? writeBinary(table, names, rs, target, expected, tracker)
+                : writeCsv(names, rs, target, expected, tracker);
+            tracker.report(1.0);
+            return rows;
+        }
+    }
+
+    private long writeBinary(String table, String[] names, ResultSet rs, Path target, long expected,
+                             ProgressTracker tracker) throws SQLException, IOException {
+        long rows = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(target), BUFFER_SIZE), BUFFER_SIZE))) {
+            out.writeUTF(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(table);
+            out.writeInt(names.length);
+            for (String name : names) {
+                out.writeUTF(name);
+            }
+
+            while (rs.next()) {
+                out.writeByte(ROW);
+                for (int i = 1; i <= names.length; i++) {
+                    writeValue(out, rs.getObject(i));
+                }
+                rows++;
+                tracker.report((double) rows / expected);
+            }
+            out.writeByte(END);
+            out.writeLong(rows);
+        }
+        return rows;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            out.writeByte(TAG_INTEGER);
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            out.writeByte(TAG_REAL);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof byte[] bytes) {
+            out.writeByte(TAG_BLOB);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else {
+            // writeUTF is limited to 64 KB, so text gets an int length prefix
+            byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+            out.writeByte(TAG_TEXT);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private long writeCsv(String[] names, ResultSet rs, Path target, long expected, ProgressTracker tracker)
+            throws SQLException, IOException {
+        long rows = 0;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(target),
+                StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            writeCsvRow(out, names);
+
+            String[] values = new String[names.length];
+            while (rs.next()) {
+                for (int i = 0; i < names.length; i++) {
+                    Object value = rs.getObject(i + 1);
+                    values[i] = value instanceof byte[] bytes
+                        ? Base64.getEncoder().encodeToString(bytes)
+                        : value != null ? value.toString() : null;
+                }
+                writeCsvRow(out, values);
+                rows++;
+                tracker.report((double) rows / expected);
+            }
+        }
+        return rows;
+    }
+
+    private static void writeCsvRow(Writer out, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            String value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                out.write('"');
+                out.write(value.replace("\"", "\"\""));
+                out.write('"');
+            } else {
+                out.write(value);
+            }
+        }
+        out.write("\r\n");
+    }
+
+    /**
+     * Import a binary export into the table named in its header. Rows get new
+     * ids; all other columns, including timestamps, are kept. The import is all
+     * or nothing: rows are first staged in batches into a temporary table, one
+     * short writer transaction each so audit logging keeps flowing, and only
+     * copied into the audit table in one transaction once the whole file has
+     * been read and its row count checked. A truncated or corrupt file leaves
+     * the table untouched, so the import can simply be run again.
+     */
+    public Map<String, Object> importFile(Path source, Consumer<Double> progress) throws SQLException, IOException {
+        long fileSize = Math.max(1, Files.size(source));
+        ProgressTracker tracker = new ProgressTracker(progress);
+
+        try (CountingInputStream counter = new CountingInputStream(
+                new BufferedInputStream(Files.newInputStream(source), BUFFER_SIZE));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(
+                 new GZIPInputStream(counter, BUFFER_SIZE), BUFFER_SIZE))) {
+
+            if (!MAGIC.equals(in.readUTF())) {
+                throw new IOException("Not an audit export file: " + source);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported audit export version: " + version);
+            }
+            String table = in.readUTF();
+            requireAuditTable(table);
+
+            int columnCount = in.readInt();
+            if (columnCount <= 0 || columnCount > MAX_COLUMNS) {
+                throw new IOException("Corrupt audit export: invalid column count " + columnCount);
+            }
+            String[] names = new String[columnCount];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = in.readUTF();
+            }
+
+            // Only columns the table actually has are inserted; ids are reassigned
+            Set<String> known = tableColumns(table);
+            List<Integer> kept = new ArrayList<>();
+            for (int i = 0; i < names.length; i++) {
+                if (!"id".equalsIgnoreCase(names[i]) && known.contains(names[i])) {
+                    kept.add(i);
+                }
+            }
+            if (kept.isEmpty()) {
+                throw new IOException("Export has no columns matching table " + table);
+            }
+            String stage = "audit_import_" + nextStage.getAndIncrement();
+            createStage(stage, names, kept);
+            try {
+                long imported = stageRows(in, counter, fileSize, tracker, stage, names, kept);
+                publishStage(stage, table, names, kept);
+                tracker.report(1.0);
+
+                Map<String, Object> summary = new HashMap<>();
+                summary.put("table", table);
+                summary.put("rows", imported);
+                return summary;
+            } finally {
+                dropStage(stage);
+            }
+        } catch (EOFException e) {
+            throw new IOException("Export is truncated: " + source, e);
+        }
+    }
+
+    // Read every row into the staging table; returns the row count, checked against the file's trailer
+    private long stageRows(DataInputStream in, CountingInputStream counter, long fileSize, ProgressTracker tracker,
+                           String stage, String[] names, List<Integer> kept) throws SQLException, IOException {
+        String sql = insertSql("temp." + stage, names, kept);
+        long imported = 0;
+        Object[] row = new Object[names.length];
+        boolean more = true;
+        while (more) {
+            List<Object[]> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+            while (batch.size() < IMPORT_BATCH_SIZE) {
+                byte marker = in.readByte();
+                if (marker == END) {
+                    long declared = in.readLong();
+                    if (declared != imported + batch.size()) {
+                        throw new IOException("Export is truncated: expected " + declared + " rows");
+                    }
+                    more = false;
+                    break;
+                }
+                if (marker != ROW) {
+                    throw new IOException("Corrupt audit export: unexpected marker " + marker);
+                }
+                for (int i = 0; i < names.length; i++) {
+                    row[i] = readValue(in);
+                }
+                Object[] values = new Object[kept.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = row[kept.get(i)];
+                }
+                batch.add(values);
+            }
+
+            insertBatch(sql, batch);
+            imported += batch.size();
+            // Reading is most of the work; the final copy takes the last bit
+            tracker.report(0.95 * counter.getCount() / fileSize);
+        }
+        return imported;
+    }
+
+    // Temporary tables live only on the writer connection and never take the database's write lock
+    private void createStage(String stage, String[] names, List<Integer> kept) throws SQLException {
+        String columns = columnList(names, kept);
+        try (ConnectionPool.PooledConnection conn = pool.writer();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TEMP TABLE " + stage + " (" + columns + ")");
+        }
+    }
+
+    // Copy the staged rows into the audit table in one transaction, in file order
+    private void publishStage(String stage, String table, String[] names, List<Integer> kept) throws SQLException {
+        String columns = columnList(names, kept);
+        try (ConnectionPool.PooledConnection conn = pool.writer()) {
+            Connection connection = conn.connection();
+            connection.setAutoCommit(false);
+            try (Statement stmt = connection.createStatement()) {
+                stmt.executeUpdate("INSERT INTO " + table + " (" + columns + ") SELECT " + columns
+                    + " FROM temp." + stage + " ORDER BY rowid");
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static String columnList(String[] names, List<Integer> kept) {
+        StringBuilder columns = new StringBuilder();
+        for (int index : kept) {
+            if (columns.length() > 0) {
+                columns.append(", ");
+            }
+            columns.append(names[index]);
+        }
+        return columns.toString();
+    }
+
+    private void dropStage(String stage) {
+        try (ConnectionPool.PooledConnection conn = pool.writer();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS temp." + stage);
+        } catch (SQLException e) {
+            System.err.println("Failed to drop import staging table " + stage + ": " + e.getMessage());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_INTEGER:
+                return in.readLong();
+            case TAG_REAL:
+                return in.readDouble();
+            case TAG_TEXT:
+                return new String(readBytes(in), StandardCharsets.UTF_8);
+            case TAG_BLOB:
+                return readBytes(in);
+            default:
+                throw new IOException("Corrupt audit export: unknown value tag " + tag);
+        }
+    }
+
+    /**
+     * A length-prefixed value. The declared length is checked before anything
+     * is allocated, and the bytes are read as they arrive, so a corrupt length
+     * ends in an IOException at the end of the data instead of a huge array.
+     */
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_VALUE_BYTES) {
+            throw new IOException("Corrupt audit export: invalid value length " + length);
+        }
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException("Value needs " + length + " bytes, only " + bytes.length + " left");
+        }
+        return bytes;
+    }
+
+    private Set<String> tableColumns(String table) throws SQLException {
+        Set<String> columns = new HashSet<>();
+        try (ConnectionPool.PooledConnection conn = pool.reader();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                columns.add(rs.getString("name"));
+            }
+        }
+        return columns;
+    }
+
+    private static String insertSql(String table, String[] names, List<Integer> kept) {
+        StringBuilder columns = new StringBuilder();
+        StringBuilder placeholders = new StringBuilder();
+        for (int index : kept) {
+            if (columns.length() > 0) {
+                columns.append(", ");
+                placeholders.append(", ");
+            }
+            columns.append(names[index]);
+            placeholders.append('?');
+        }
+        return "INSERT INTO " + table + " (" + columns + ") VALUES (" + placeholders + ")";
+    }
+
+    private void insertBatch(String sql, List<Object[]> batch) throws SQLException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try (ConnectionPool.PooledConnection conn = pool.writer()) {
+            Connection connection = conn.connection();
+            connection.setAutoCommit(false);
+            // Not cached: each import stages into a table of its own that is dropped afterwards
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (Object[] values : batch) {
+                    for (int i = 0; i < values.length; i++) {
+                        stmt.setObject(i + 1, values[i]);
+                    }
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Reports progress as a percentage, only when it moves by a whole percent
+    private static class ProgressTracker {
+        private final Consumer<Double> callback;
+        private int lastPercent = -1;
+
+        ProgressTracker(Consumer<Double> callback) {
+            this.callback = callback;
+        }
+
+        void report(double fraction) {
+            int percent = (int) Math.min(100, Math.floor(fraction * 100));
+            if (percent > lastPercent && callback != null) {
+                lastPercent = percent;
+                callback.accept((double) percent);
+            }
+        }
+    }
+
+    // Counts compressed bytes consumed, for import progress
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.example.app;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind writer for the audit tables
+ * Buffers INSERTs in a bounded queue and persists them from a dedicated
+ * thread in batched transactions, flushing on size or elapsed time
+ */
+public class AuditLogWriter {
+    // How often a producer blocked on a full queue checks for shutdown
+    private static final long BLOCK_RECHECK_MS = 100;
+
+    private final ConnectionPool pool;
+    private final BlockingQueue<Entry> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final int sampleRate;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong overflowCounter = new AtomicLong();
+
+    public AuditLogWriter(ConnectionPool pool, int queueCapacity, int batchSize,
+                          long flushIntervalMs, OverflowPolicy overflowPolicy, int sampleRate) {
+        this.pool = pool;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMs));
+        this.overflowPolicy = overflowPolicy;
+        this.sampleRate = Math.max(1, sampleRate);
+
+        this.writerThread = new Thread(this::runWriter, "AuditLogWriter");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queue an INSERT for asynchronous execution
+     */
+    public void submit(String sql, Object... params) {
+        if (!running) {
+            dropped.incrementAndGet();
+            return;
+        }
+
+        Entry entry = new Entry(sql, params);
+        if (queue.offer(entry)) {
+            accepted(entry);
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case BLOCK:
+                // Wait for room, but give up once shutdown starts so no entry is left behind
+                try {
+                    while (running) {
+                        if (queue.offer(entry, BLOCK_RECHECK_MS, TimeUnit.MILLISECONDS)) {
+                            accepted(entry);
+                            return;
+                        }
+                    }
+                    dropped.incrementAndGet();
+                } catch (InterruptedException e) {
+                    dropped.incrementAndGet();
+                    Thread.currentThread().interrupt();
+                }
+                break;
+
+            case SAMPLE:
+                // Under sustained overflow keep only every Nth entry
+                if (overflowCounter.incrementAndGet() % sampleRate != 0) {
+                    dropped.incrementAndGet();
+                    break;
+                }
+                replaceOldest(entry);
+                break;
+
+            case DROP_OLDEST:
+            default:
+                replaceOldest(entry);
+                break;
+        }
+    }
+
+    private void replaceOldest(Entry entry) {
+        while (!queue.offer(entry)) {
+            if (queue.poll() != null) {
+                dropped.incrementAndGet();
+            }
+        }
+        accepted(entry);
+    }
+
+    /**
+     * Count a queued entry, unless it arrived after the writer's final drain.
+     * Such an entry would never be written, so it is taken back out and
+     * counted as dropped. An entry queued while the writer was still alive is
+     * written by the writer or by the drain in shutdown().
+     */
+    private void accepted(Entry entry) {
+        if (!running && !writerThread.isAlive() && queue.remove(entry)) {
+            dropped.incrementAndGet();
+            return;
+        }
+        enqueued.incrementAndGet();
+    }
+
+    private void runWriter() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Keep collecting until the batch is full or the flush interval elapses
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (!running || remaining <= 0) {
+                        break;
+                    }
+                    Entry next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutdown requested; remaining entries are drained below
+                running = false;
+            } finally {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+
+        // Drain whatever arrived while stopping
+        queue.drainTo(batch);
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+    }
+
+    private void writeBatch(List<Entry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Map<String, PreparedStatement> statements = new LinkedHashMap<>();
+        try (ConnectionPool.PooledConnection handle = pool.writer()) {
+            Connection connection = handle.connection();
+            connection.setAutoCommit(false);
+            boolean committed = false;
+            try {
+                for (Entry entry : batch) {
+                    PreparedStatement stmt = statements.get(entry.sql);
+                    if (stmt == null) {
+                        stmt = handle.prepareCached(entry.sql);
+                        statements.put(entry.sql, stmt);
+                    }
+                    for (int i = 0; i < entry.params.length; i++) {
+                        stmt.setObject(i + 1, entry.params[i]);
+                    }
+                    stmt.addBatch();
+                }
+                for (PreparedStatement stmt : statements.values()) {
+                    stmt.executeBatch();
+                }
+                connection.commit();
+                committed = true;
+                written.addAndGet(batch.size());
+                batches.incrementAndGet();
+            } catch (SQLException e) {
+                // Cached statements outlive this batch, so drop anything still queued on them
+                for (PreparedStatement stmt : statements.values()) {
+                    stmt.clearBatch();
+                }
+                connection.rollback();
+                System.err.println("Audit batch of " + batch.size() + " entries failed, retrying one at a time: "
+                    + e.getMessage());
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            if (!committed) {
+                writeEach(handle, batch);
+            }
+        } catch (SQLException e) {
+            failed.addAndGet(batch.size());
+            System.err.println("Failed to write audit batch of " + batch.size() + " entries: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replay a rolled-back batch in autocommit mode so one bad entry
+     * only loses itself rather than the whole batch
+     */
+    private void writeEach(ConnectionPool.PooledConnection handle, List<Entry> batch) {
+        int lost = 0;
+        String lastError = null;
+        for (Entry entry : batch) {
+            try {
+                PreparedStatement stmt = handle.prepareCached(entry.sql);
+                for (int i = 0; i < entry.params.length; i++) {
+                    stmt.setObject(i + 1, entry.params[i]);
+                }
+                stmt.executeUpdate();
+                written.incrementAndGet();
+            } catch (SQLException e) {
+                failed.incrementAndGet();
+                lost++;
+                lastError = e.getMessage();
+            }
+        }
+        if (lost > 0) {
+            System.err.println("Failed to write " + lost + " of " + batch.size() + " audit entries: " + lastError);
+        }
+    }
+
+    /**
+     * Stop accepting entries and flush everything still queued
+     */
+    public void shutdown(long timeoutMs) {
+        running = false;
+        try {
+            writerThread.join(timeoutMs);
+            if (writerThread.isAlive()) {
+                System.err.println("Audit log writer did not finish flushing within " + timeoutMs + "ms");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        // Entries queued by producers that raced the writer's final drain
+        List<Entry> late = new ArrayList<>();
+        queue.drainTo(late);
+        writeBatch(late);
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queue_depth", queue.size());
+        stats.put("queue_capacity", queue.size() + queue.remainingCapacity());
+        stats.put("overflow_policy", overflowPolicy.toString());
+        stats.put("enqueued", enqueued.get());
+        stats.put("written", written.get());
+        stats.put("dropped", dropped.get());
+        stats.put("failed", failed.get());
+        stats.put("batches", batches.get());
+        return stats;
+    }
+
+    // Overflow policy applied when the queue is full
+    public enum OverflowPolicy {
+        BLOCK, DROP_OLDEST, SAMPLE;
+
+        public static OverflowPolicy fromString(String value, OverflowPolicy defaultValue) {
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                return defaultValue;
+            }
+        }
+    }
+
+    // Queued INSERT
+    private static class Entry {
+        private final String sql;
+        private final Object[] params;
+
+        Entry(String sql, Object[] params) {
+            this.sql = sql;
+            this.params = params;
+        }
+    }
+}
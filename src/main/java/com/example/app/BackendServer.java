@@ -1,10 +1,28 @@
 package com.example.app;
 
 import io.javalin.Javalin;
+import io.javalin.config.JavalinConfig;
+import io.javalin.http.Context;
 import io.javalin.http.staticfiles.Location;
 import com.google.gson.Gson;
-
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.VirtualThreads;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
@@ -23,15 +41,27 @@ public class BackendServer {
     private final UpdateManager updateManager;
     private final TaskManager taskManager;
     private final DatabaseManager databaseManager;
+    private final ApiMetrics apiMetrics;
+    private final MetricsExporter metricsExporter;
+    private final WebAssetCache assets;
 
     public BackendServer(int port) {
         this.port = port;
         this.startTime = System.currentTimeMillis();
+        WebAssetCache assets = loadAssets();
+        this.assets = assets;
         this.app = Javalin.create(config -> {
-            // Serve static files from resources
-            config.staticFiles.add("/webview", Location.CLASSPATH);
+            // Serve static files from resources, unless they are served from memory
+            if (assets == null) {
+                config.staticFiles.add("/webview", Location.CLASSPATH);
+            }
             // Enable CORS for WebView
             config.plugins.enableCors(cors -> cors.add(it -> it.anyHost()));
+            // Jetty negotiates permessage-deflate whenever the client offers it
+            if (!SettingsManager.getInstance().isWebSocketCompression()) {
+                config.jetty.wsFactoryConfig(factory -> factory.getAvailableExtensionNames().remove("permessage-deflate"));
+            }
+            configureThreadPool(config);
         });
         this.gson = new Gson();
         this.fileSystemManager = FileSystemManager.getInstance();
@@ -40,10 +70,72 @@ public class BackendServer {
         this.updateManager = UpdateManager.getInstance();
         this.taskManager = TaskManager.getInstance();
         this.databaseManager = DatabaseManager.getInstance();
+        this.apiMetrics = new ApiMetrics(settingsManager.getApiLogSampleRate());
+        this.metricsExporter = new MetricsExporter(apiMetrics);
         setupRoutes();
+        setupRpcMethods();
+    }
+
+    /**
+     * Handlers run on Jetty's bounded pool of platform threads by default. With
+     * server.virtualThreads on Java 21+, each request is handled on its own
+     * virtual thread instead, so slow blocking handlers cannot starve the pool;
+     * Jetty's selectors and acceptors stay on platform threads either way.
+     */
+    private static void configureThreadPool(JavalinConfig config) {
+        SettingsManager settings = SettingsManager.getInstance();
+        // Same sizing as Javalin's default pool
+        QueuedThreadPool pool = new QueuedThreadPool(settings.getServerMaxThreads(), 8, 60_000);
+        pool.setName("JettyServerThreadPool");
+        if (settings.isServerVirtualThreads()) {
+            if (VirtualThreads.areSupported()) {
+                pool.setVirtualThreadsExecutor(VirtualThreads.getDefaultVirtualThreadsExecutor());
+                System.out.println("Request handlers run on virtual threads");
+            } else {
+                System.err.println("server.virtualThreads needs Java 21 or later (running " + Runtime.version().feature() + "), using platform threads");
+            }
+        }
+        // Javalin would otherwise pick its own pool, switching every thread to virtual threads on Java 21
+        config.jetty.server(() -> new Server(pool));
+    }
+
+    /**
+     * The webview's files are read into memory once, with fingerprinted names,
+     * ETags and compressed copies. Turn server.assetCache off to serve them
+     * straight from the classpath, e.g. while editing them.
+     */
+    private static WebAssetCache loadAssets() {
+        if (!SettingsManager.getInstance().isServerAssetCache()) {
+            return null;
+        }
+        try {
+            WebAssetCache assets = WebAssetCache.load();
+            System.out.println("Serving " + assets.getAssetCount() + " webview assets from memory");
+            return assets;
+        } catch (IOException e) {
+            System.err.println("Failed to load webview assets, serving from the classpath: " + e.getMessage());
+            return null;
+        }
     }
 
     private void setupRoutes() {
+        // Time every HTTP request; WebSocket traffic is measured by WebSocketHandler
+        app.before(apiMetrics::start);
+        app.after(apiMetrics::finish);
+
+        if (assets != null) {
+            for (String path : assets.getPaths()) {
+                app.get(path, assets::serve);
+            }
+        }
+
+        // Request bodies that are not valid JSON, or have a field of the wrong type
+        app.exception(JsonParseException.class, (e, ctx) -> {
+            ctx.status(400);
+            ctx.contentType("application/json");
+            ctx.result(gson.toJson(Map.of("error", "Invalid request body: " + e.getMessage())));
+        });
+
         // WebSocket endpoint for real-time communication
         app.ws("/ws", ws -> {
             ws.onConnect(ctx -> WebSocketHandler.handleConnect(ctx));
@@ -96,8 +188,7 @@ public class BackendServer {
 
         // Example POST endpoint
         app.post("/api/process", ctx -> {
-            String requestBody = ctx.body();
-            Map<String, Object> request = gson.fromJson(requestBody, Map.class);
+            Map<String, Object> request = ApiRequests.readMap(ctx.bodyInputStream());
             
             Map<String, Object> response = new HashMap<>();
             response.put("received", request);
@@ -109,12 +200,15 @@ public class BackendServer {
 
         // Example calculation endpoint
         app.post("/api/calculate", ctx -> {
-            Map<String, Object> request = gson.fromJson(ctx.body(), Map.class);
+            ApiRequests.CalculateRequest request = ApiRequests.read(ctx.bodyInputStream(), ApiRequests.CalculateRequest.class);
             
             try {
-                double num1 = ((Number) request.get("num1")).doubleValue();
-                double num2 = ((Number) request.get("num2")).doubleValue();
-                String operation = (String) request.getOrDefault("operation", "add");
+                if (request.num1() == null || request.num2() == null) {
+                    throw new IllegalArgumentException("num1 and num2 are required");
+                }
+                double num1 = request.num1();
+                double num2 = request.num2();
+                String operation = request.operation() != null ? request.operation() : "add";
                 
                 double result;
                 switch (operation) {
@@ -139,15 +233,15 @@ public class BackendServer {
 
         // Broadcast endpoint - sends message to all WebSocket clients
         app.post("/api/broadcast", ctx -> {
-            Map<String, Object> request = gson.fromJson(ctx.body(), Map.class);
-            String message = (String) request.get("message");
+            String message = ApiRequests.read(ctx.bodyInputStream(), ApiRequests.BroadcastRequest.class).message();
             
             if (message != null && !message.isEmpty()) {
-                WebSocketHandler.broadcast("{\"type\":\"broadcast\",\"message\":\"" + message + "\"}");
+                int recipients = WebSocketHandler.publish(WebSocketHandler.TOPIC_BROADCAST,
+                    () -> Map.of("type", "broadcast", "message", message), null);
                 
                 Map<String, Object> response = new HashMap<>();
                 response.put("status", "sent");
-                response.put("recipients", WebSocketHandler.getConnectionCount());
+                response.put("recipients", recipients);
                 ctx.contentType("application/json");
                 ctx.result(gson.toJson(response));
             } else {
@@ -157,6 +251,47 @@ public class BackendServer {
             }
         });
 
+        // Per-session outbound queue metrics
+        app.get("/api/websocket/sessions", ctx -> {
+            Map<String, Object> response = new HashMap<>();
+            response.put("sessions", WebSocketHandler.getSessionStats());
+            response.put("count", WebSocketHandler.getConnectionCount());
+            response.put("queue_capacity", settingsManager.getWebSocketSendQueueCapacity());
+            response.put("slow_consumer_policy", settingsManager.getWebSocketSlowConsumerPolicy());
+            response.put("resumable", WebSocketHandler.getParkedSessionCount());
+            ctx.contentType("application/json");
+            ctx.result(gson.toJson(response));
+        });
+
+        // Per-session heartbeat RTT and traffic, plus connection limits
+        app.get("/api/websocket/connections", ctx -> {
+            Map<String, Object> response = new HashMap<>();
+            response.put("connections", WebSocketHandler.getConnectionStats());
+            response.put("count", WebSocketHandler.getConnectionCount());
+            response.put("max_connections", settingsManager.getWebSocketMaxConnections());
+            response.put("rejected", WebSocketHandler.getRejectedConnectionCount());
+            response.put("evicted", WebSocketHandler.getEvictedSessionCount());
+            response.put("write_timeouts", WebSocketHandler.getWriteTimeoutCount());
+            response.put("write_timeout_ms", settingsManager.getWebSocketWriteTimeoutMs());
+            response.put("heartbeat_interval_ms", settingsManager.getWebSocketHeartbeatIntervalMs());
+            response.put("idle_timeout_ms", settingsManager.getWebSocketIdleTimeoutMs());
+            response.put("traffic_log", WebSocketHandler.getTrafficLogStats());
+            ctx.contentType("application/json");
+            ctx.result(gson.toJson(response));
+        });
+
+        // Per-route request counts and latency percentiles
+        app.get("/api/metrics", ctx -> {
+            ctx.contentType("application/json");
+            ctx.result(gson.toJson(apiMetrics.getMetrics()));
+        });
+
+        // Prometheus scrape target
+        app.get("/metrics", ctx -> {
+            ctx.contentType(MetricsExporter.CONTENT_TYPE);
+            ctx.result(metricsExporter.scrape());
+        });
+
         // File system endpoints
         app.get("/api/files/info", ctx -> {
             String path = ctx.queryParam("path");
@@ -205,9 +340,9 @@ public class BackendServer {
         });
 
         app.post("/api/files/write", ctx -> {
-            Map<String, Object> request = gson.fromJson(ctx.body(), Map.class);
-            String path = (String) request.get("path");
-            String content = (String) request.get("content");
+            ApiRequests.FileWriteRequest request = ApiRequests.read(ctx.bodyInputStream(), ApiRequests.FileWriteRequest.class);
+            String path = request.path();
+            String content = request.content();
 
             if (path == null || path.isEmpty()) {
                 ctx.status(400);
@@ -222,9 +357,9 @@ public class BackendServer {
         });
 
         app.post("/api/files/append", ctx -> {
-            Map<String, Object> request = gson.fromJson(ctx.body(), Map.class);
-            String path = (String) request.get("path");
-            String content = (String) request.get("content");
+            ApiRequests.FileWriteRequest request = ApiRequests.read(ctx.bodyInputStream(), ApiRequests.FileWriteRequest.class);
+            String path = request.path();
+            String content = request.content();
 
             if (path == null || path.isEmpty()) {
                 ctx.status(400);
@@ -253,9 +388,9 @@ public class BackendServer {
         });
 
         app.post("/api/files/copy", ctx -> {
-            Map<String, Object> request = gson.fromJson(ctx.body(), Map.class);
-            String source = (String) request.get("source");
-            String dest = (String) request.get("dest");
+            ApiRequests.FileTransferRequest request = ApiRequests.read(ctx.bodyInputStream(), ApiRequests.FileTransferRequest.class);
+            String source = request.source();
+            String dest = request.dest();
 
             if (source == null || source.isEmpty() || dest == null || dest.isEmpty()) {
                 ctx.status(400);
@@ -270,9 +405,9 @@ public class BackendServer {
         });
 
         app.post("/api/files/move", ctx -> {
-            Map<String, Object> request = gson.fromJson(ctx.body(), Map.class);
-            String source = (String) request.get("source");
-            String dest = (String) request.get("dest");
+            ApiRequests.FileTransferRequest request = ApiRequests.read(ctx.bodyInputStream(), ApiRequests.FileTransferRequest.class);
+            String source = request.source();
+            String dest = request.dest();
 
             if (source == null || source.isEmpty() || dest == null || dest.isEmpty()) {
                 ctx.status(400);
@@ -287,8 +422,7 @@ public class BackendServer {
         });
 
         app.post("/api/files/mkdir", ctx -> {
-            Map<String, Object> request = gson.fromJson(ctx.body(), Map.class);
-            String path = (String) request.get("path");
+            String path = ApiRequests.read(ctx.bodyInputStream(), ApiRequests.FileWriteRequest.class).path();
 
             if (path == null || path.isEmpty()) {
                 ctx.status(400);
@@ -362,10 +496,10 @@ public class BackendServer {
 
         // Notification endpoints
         app.post("/api/notifications/show", ctx -> {
-            Map<String, Object> request = gson.fromJson(ctx.body(), Map.class);
-            String title = (String) request.get("title");
-            String message = (String) request.get("message");
-            String type = (String) request.getOrDefault("type", "info");
+            ApiRequests.NotificationRequest request = ApiRequests.read(ctx.bodyInputStream(), ApiRequests.NotificationRequest.class);
+            String title = request.title();
+            String message = request.message();
+            String type = request.type() != null ? request.type() : "info";
 
             if (title == null || title.isEmpty() || message == null || message.isEmpty()) {
                 ctx.status(400);
@@ -408,10 +542,11 @@ public class BackendServer {
         });
 
         app.post("/api/notifications/file-operation", ctx -> {
-            Map<String, Object> request = gson.fromJson(ctx.body(), Map.class);
-            String operation = (String) request.get("operation");
-            String filePath = (String) request.get("filePath");
-            Boolean success = (Boolean) request.get("success");
+            ApiRequests.FileOperationNotificationRequest request =
+                ApiRequests.read(ctx.bodyInputStream(), ApiRequests.FileOperationNotificationRequest.class);
+            String operation = request.operation();
+            String filePath = request.filePath();
+            Boolean success = request.success();
 
             if (operation == null || filePath == null || success == null) {
                 ctx.status(400);
@@ -427,9 +562,10 @@ public class BackendServer {
         });
 
         app.post("/api/notifications/websocket", ctx -> {
-            Map<String, Object> request = gson.fromJson(ctx.body(), Map.class);
-            String event = (String) request.get("event");
-            String details = (String) request.get("details");
+            ApiRequests.WebSocketNotificationRequest request =
+                ApiRequests.read(ctx.bodyInputStream(), ApiRequests.WebSocketNotificationRequest.class);
+            String event = request.event();
+            String details = request.details();
 
             if (event == null || details == null) {
                 ctx.status(400);
@@ -445,9 +581,10 @@ public class BackendServer {
         });
 
         app.post("/api/notifications/system", ctx -> {
-            Map<String, Object> request = gson.fromJson(ctx.body(), Map.class);
-            String status = (String) request.get("status");
-            String details = (String) request.get("details");
+            ApiRequests.SystemNotificationRequest request =
+                ApiRequests.read(ctx.bodyInputStream(), ApiRequests.SystemNotificationRequest.class);
+            String status = request.status();
+            String details = request.details();
 
             if (status == null || details == null) {
                 ctx.status(400);
@@ -464,28 +601,12 @@ public class BackendServer {
 
         // Settings endpoints
         app.get("/api/settings/all", ctx -> {
-            Properties settings = settingsManager.getAllSettings();
-            Map<String, String> settingsMap = new HashMap<>();
-            settings.forEach((key, value) -> settingsMap.put(key.toString(), value.toString()));
             ctx.contentType("application/json");
-            ctx.result(gson.toJson(settingsMap));
+            ctx.result(gson.toJson(getAllSettings()));
         });
 
         app.post("/api/settings/save", ctx -> {
-            Map<String, Object> request = gson.fromJson(ctx.body(), Map.class);
-
-            // Save each setting
-            request.forEach((key, value) -> {
-                if (value instanceof Boolean) {
-                    settingsManager.setBoolean(key, (Boolean) value);
-                } else if (value instanceof Number) {
-                    settingsManager.setInt(key, ((Number) value).intValue());
-                } else {
-                    settingsManager.setString(key, value.toString());
-                }
-            });
-
-            settingsManager.saveSettings();
+            saveSettings(ApiRequests.readMap(ctx.bodyInputStream()));
 
             ctx.contentType("application/json");
             ctx.result(gson.toJson(Map.of("success", true, "message", "Settings saved successfully")));
@@ -525,72 +646,16 @@ public class BackendServer {
         });
 
         app.post("/api/tasks/submit", ctx -> {
-            var request = gson.fromJson(ctx.body(), Map.class);
-            String name = (String) request.get("name");
-            String description = (String) request.get("description");
-            String type = (String) request.get("type");
-
-            if (name == null || description == null) {
+            var request = ApiRequests.read(ctx.bodyInputStream(), ApiRequests.TaskSubmitRequest.class);
+            String taskId;
+            try {
+                taskId = submitTask(request);
+            } catch (IllegalArgumentException e) {
                 ctx.status(400);
-                ctx.result(gson.toJson(Map.of("error", "Name and description are required")));
+                ctx.result(gson.toJson(Map.of("error", e.getMessage())));
                 return;
             }
 
-            String taskId;
-            switch (type != null ? type : "simple") {
-                case "file-copy":
-                    String source = (String) request.get("source");
-                    String destination = (String) request.get("destination");
-                    if (source == null || destination == null) {
-                        ctx.status(400);
-                        ctx.result(gson.toJson(Map.of("error", "Source and destination are required for file copy")));
-                        return;
-                    }
-                    taskId = taskManager.submitProgressTask(name, description, progress -> {
-                        var result = fileSystemManager.copy(source, destination);
-                        if (!result.isSuccess()) {
-                            throw new RuntimeException(result.getMessage());
-                        }
-                        return "File copied successfully";
-                    });
-                    break;
-
-                case "file-move":
-                    source = (String) request.get("source");
-                    destination = (String) request.get("destination");
-                    if (source == null || destination == null) {
-                        ctx.status(400);
-                        ctx.result(gson.toJson(Map.of("error", "Source and destination are required for file move")));
-                        return;
-                    }
-                    taskId = taskManager.submitProgressTask(name, description, progress -> {
-                        var result = fileSystemManager.move(source, destination);
-                        if (!result.isSuccess()) {
-                            throw new RuntimeException(result.getMessage());
-                        }
-                        return "File moved successfully";
-                    });
-                    break;
-
-                case "update-download":
-                    taskId = taskManager.submitProgressTask(name, description, progress -> {
-                        var result = updateManager.downloadUpdate();
-                        return result;
-                    });
-                    break;
-
-                default:
-                    // Simple task - just run a demo operation
-                    taskId = taskManager.submitProgressTask(name, description, progress -> {
-                        // Simulate some work
-                        for (int i = 0; i <= 100; i += 10) {
-                            progress.accept((double) i);
-                            Thread.sleep(200);
-                        }
-                        return "Task completed successfully";
-                    });
-            }
-
             ctx.contentType("application/json");
             ctx.result(gson.toJson(Map.of("taskId", taskId, "status", "submitted")));
         });
@@ -611,7 +676,8 @@ public class BackendServer {
 
         // Database endpoints
         app.get("/api/database/stats", ctx -> {
-            Map<String, Object> stats = databaseManager.getDatabaseStats();
+            boolean exact = Boolean.parseBoolean(ctx.queryParam("exact"));
+            Map<String, Object> stats = databaseManager.getDatabaseStats(exact);
             ctx.contentType("application/json");
             ctx.result(gson.toJson(stats));
         });
@@ -623,10 +689,10 @@ public class BackendServer {
         });
 
         app.post("/api/database/userdata", ctx -> {
-            Map<String, Object> request = gson.fromJson(ctx.body(), Map.class);
-            String key = (String) request.get("key");
-            Object value = request.get("value");
-            String dataType = (String) request.get("dataType");
+            ApiRequests.UserDataRequest request = ApiRequests.read(ctx.bodyInputStream(), ApiRequests.UserDataRequest.class);
+            String key = request.key();
+            String value = request.value();
+            String dataType = request.dataType();
 
             if (key == null || key.isEmpty()) {
                 ctx.status(400);
@@ -635,9 +701,8 @@ public class BackendServer {
                 return;
             }
 
-            String valueStr = value != null ? value.toString() : "";
             try {
-                databaseManager.setUserData(key, valueStr, dataType != null ? dataType : "string");
+                databaseManager.setUserData(key, value != null ? value : "", dataType != null ? dataType : "string");
                 ctx.contentType("application/json");
                 ctx.result(gson.toJson(Map.of("success", true)));
             } catch (Exception e) {
@@ -654,31 +719,380 @@ public class BackendServer {
             ctx.result(gson.toJson(Map.of("deleted", deleted)));
         });
 
+        // History endpoints: pass ?cursor= (empty for the first page) to get
+        // {items, nextCursor, hasMore} pages instead of a plain array, or
+        // ?stream=true / ?format=ndjson to stream every matching row
         app.get("/api/database/logs", ctx -> {
-            String limit = ctx.queryParam("limit");
-            int limitInt = limit != null ? Integer.parseInt(limit) : 100;
-            var logs = databaseManager.getLogs(limitInt);
-            ctx.contentType("application/json");
-            ctx.result(gson.toJson(logs));
+            String cursor = ctx.queryParam("cursor");
+            try {
+                if (isStreamRequest(ctx)) {
+                    String category = ctx.queryParam("category");
+                    int limitInt = parseLimit(ctx.queryParam("limit"), 0);
+                    streamRows(ctx, callback -> databaseManager.streamLogs(category, limitInt, callback));
+                    return;
+                }
+                int limitInt = parseLimit(ctx.queryParam("limit"), 100);
+                var page = databaseManager.getLogsPage(ctx.queryParam("category"), cursor, limitInt);
+                ctx.contentType("application/json");
+                ctx.result(gson.toJson(cursor != null ? page : page.get("items")));
+            } catch (IllegalArgumentException e) {
+                ctx.status(400);
+                ctx.contentType("application/json");
+                ctx.result(gson.toJson(Map.of("error", e.getMessage())));
+            }
+        });
+
+        app.get("/api/database/file-operations", ctx -> {
+            String cursor = ctx.queryParam("cursor");
+            try {
+                if (isStreamRequest(ctx)) {
+                    int limitInt = parseLimit(ctx.queryParam("limit"), 0);
+                    streamRows(ctx, callback -> databaseManager.streamFileOperations(limitInt, callback));
+                    return;
+                }
+                int limitInt = parseLimit(ctx.queryParam("limit"), 100);
+                var page = databaseManager.getFileOperationsPage(cursor, limitInt);
+                ctx.contentType("application/json");
+                ctx.result(gson.toJson(cursor != null ? page : page.get("items")));
+            } catch (IllegalArgumentException e) {
+                ctx.status(400);
+                ctx.contentType("application/json");
+                ctx.result(gson.toJson(Map.of("error", e.getMessage())));
+            }
         });
 
         app.get("/api/database/notifications", ctx -> {
-            String limit = ctx.queryParam("limit");
-            int limitInt = limit != null ? Integer.parseInt(limit) : 50;
-            var notifications = databaseManager.getNotifications(limitInt);
-            ctx.contentType("application/json");
-            ctx.result(gson.toJson(notifications));
+            String cursor = ctx.queryParam("cursor");
+            try {
+                if (isStreamRequest(ctx)) {
+                    int limitInt = parseLimit(ctx.queryParam("limit"), 0);
+                    streamRows(ctx, callback -> databaseManager.streamNotifications(limitInt, callback));
+                    return;
+                }
+                int limitInt = parseLimit(ctx.queryParam("limit"), 50);
+                var page = databaseManager.getNotificationsPage(cursor, limitInt);
+                ctx.contentType("application/json");
+                ctx.result(gson.toJson(cursor != null ? page : page.get("items")));
+            } catch (IllegalArgumentException e) {
+                ctx.status(400);
+                ctx.contentType("application/json");
+                ctx.result(gson.toJson(Map.of("error", e.getMessage())));
+            }
         });
 
         app.get("/api/database/api-calls", ctx -> {
-            String limit = ctx.queryParam("limit");
-            int limitInt = limit != null ? Integer.parseInt(limit) : 100;
-            var apiCalls = databaseManager.getApiCalls(limitInt);
+            String cursor = ctx.queryParam("cursor");
+            try {
+                if (isStreamRequest(ctx)) {
+                    String endpoint = ctx.queryParam("endpoint");
+                    int limitInt = parseLimit(ctx.queryParam("limit"), 0);
+                    streamRows(ctx, callback -> databaseManager.streamApiCalls(endpoint, limitInt, callback));
+                    return;
+                }
+                int limitInt = parseLimit(ctx.queryParam("limit"), 100);
+                var page = databaseManager.getApiCallsPage(ctx.queryParam("endpoint"), cursor, limitInt);
+                ctx.contentType("application/json");
+                ctx.result(gson.toJson(cursor != null ? page : page.get("items")));
+            } catch (IllegalArgumentException e) {
+                ctx.status(400);
+                ctx.contentType("application/json");
+                ctx.result(gson.toJson(Map.of("error", e.getMessage())));
+            }
+        });
+
+        // Ranked full-text search over logs (default) or file operations
+        app.get("/api/database/search", ctx -> {
+            try {
+                String scope = ctx.queryParam("table");
+                String table = scope == null || scope.equals("logs") ? "app_logs"
+                    : scope.equals("file-operations") ? "file_operations" : scope;
+                int limitInt = parseLimit(ctx.queryParam("limit"), 50);
+                boolean raw = Boolean.parseBoolean(ctx.queryParam("raw"));
+                boolean newestFirst = "recent".equals(ctx.queryParam("sort"));
+                var page = databaseManager.search(table, ctx.queryParam("q"), raw, newestFirst,
+                    ctx.queryParam("cursor"), limitInt);
+                ctx.contentType("application/json");
+                ctx.result(gson.toJson(page));
+            } catch (IllegalArgumentException e) {
+                ctx.status(400);
+                ctx.contentType("application/json");
+                ctx.result(gson.toJson(Map.of("error", e.getMessage())));
+            }
+        });
+
+        // Bulk export/import of the audit tables, run as progress tasks
+        app.post("/api/database/export", ctx -> {
+            ApiRequests.ExportRequest request = ApiRequests.read(ctx.bodyInputStream(), ApiRequests.ExportRequest.class);
+            try {
+                List<String> tables = request.tables() != null ? request.tables() : AuditArchive.TABLES;
+                tables.forEach(AuditArchive::requireAuditTable);
+                AuditArchive.Format format = AuditArchive.Format.fromString(request.format());
+                String directoryParam = request.directory();
+                Path directory = directoryParam != null && !directoryParam.isEmpty()
+                    ? Paths.get(directoryParam)
+                    : databaseManager.getExportDirectory().resolve("export-" + System.currentTimeMillis());
+
+                String taskId = taskManager.submitProgressTask("Database export",
+                    "Export " + tables.size() + " audit tables as " + format.name().toLowerCase(),
+                    progress -> databaseManager.exportAuditTables(tables, format, directory, progress));
+                ctx.contentType("application/json");
+                ctx.result(gson.toJson(Map.of("taskId", taskId, "status", "submitted", "directory", directory.toString())));
+            } catch (IllegalArgumentException e) {
+                ctx.status(400);
+                ctx.contentType("application/json");
+                ctx.result(gson.toJson(Map.of("error", e.getMessage())));
+            }
+        });
+
+        app.post("/api/database/import", ctx -> {
+            String path = ApiRequests.read(ctx.bodyInputStream(), ApiRequests.ImportRequest.class).path();
+            if (path == null || path.isEmpty()) {
+                ctx.status(400);
+                ctx.contentType("application/json");
+                ctx.result(gson.toJson(Map.of("error", "Path parameter is required")));
+                return;
+            }
+            Path source = Paths.get(path);
+            if (!Files.isRegularFile(source)) {
+                ctx.status(404);
+                ctx.contentType("application/json");
+                ctx.result(gson.toJson(Map.of("error", "File not found")));
+                return;
+            }
+
+            String taskId = taskManager.submitProgressTask("Database import", "Import " + source.getFileName(),
+                progress -> databaseManager.importAuditFile(source, progress));
+            ctx.contentType("application/json");
+            ctx.result(gson.toJson(Map.of("taskId", taskId, "status", "submitted")));
+        });
+
+        // Retention endpoints
+        app.get("/api/database/retention", ctx -> {
             ctx.contentType("application/json");
-            ctx.result(gson.toJson(apiCalls));
+            ctx.result(gson.toJson(databaseManager.getRetentionStatus()));
+        });
+
+        app.post("/api/database/retention/run", ctx -> {
+            try {
+                Map<String, Object> summary = databaseManager.runRetention();
+                ctx.contentType("application/json");
+                ctx.result(gson.toJson(summary));
+            } catch (Exception e) {
+                ctx.status(500);
+                ctx.contentType("application/json");
+                ctx.result(gson.toJson(Map.of("error", "Retention failed: " + e.getMessage())));
+            }
+        });
+
+        // One-time switch of an older database to incremental vacuum; a full VACUUM, so it runs as a task
+        app.post("/api/database/vacuum/convert", ctx -> {
+            String taskId = taskManager.submitProgressTask("Database vacuum conversion",
+                "Rewrite the database with auto_vacuum=INCREMENTAL",
+                progress -> Map.of("converted", databaseManager.convertToIncrementalVacuum()));
+            ctx.contentType("application/json");
+            ctx.result(gson.toJson(Map.of("taskId", taskId, "status", "submitted")));
+        });
+
+        // Hourly aggregates of rows that retention has already removed
+        app.get("/api/database/rollups/{table}", ctx -> {
+            try {
+                int limitInt = parseLimit(ctx.queryParam("limit"), 168);
+                var rows = databaseManager.getHourlyRollup(ctx.pathParam("table"), limitInt);
+                ctx.contentType("application/json");
+                ctx.result(gson.toJson(rows));
+            } catch (IllegalArgumentException e) {
+                ctx.status(400);
+                ctx.contentType("application/json");
+                ctx.result(gson.toJson(Map.of("error", e.getMessage())));
+            }
         });
     }
 
+    private static int parseLimit(String limit, int defaultValue) {
+        return limit != null ? Integer.parseInt(limit) : defaultValue;
+    }
+
+    private static boolean isStreamRequest(Context ctx) {
+        return Boolean.parseBoolean(ctx.queryParam("stream")) || "ndjson".equals(ctx.queryParam("format"));
+    }
+
+    /**
+     * Write rows to the response as they are read from the database, either as
+     * one JSON array or as newline-delimited JSON, without building the result in memory
+     */
+    private void streamRows(Context ctx, RowStream source) {
+        boolean ndjson = "ndjson".equals(ctx.queryParam("format"));
+        ctx.contentType(ndjson ? "application/x-ndjson" : "application/json");
+
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(ctx.outputStream(), StandardCharsets.UTF_8))) {
+            if (ndjson) {
+                source.stream(row -> {
+                    gson.toJson(row, out);
+                    out.write('\n');
+                });
+            } else {
+                JsonWriter json = new JsonWriter(out);
+                json.beginArray();
+                source.stream(row -> gson.toJson(row, Map.class, json));
+                json.endArray();
+                json.flush();
+            }
+        } catch (SQLException e) {
+            // Headers are already sent, so the truncated body is the only signal to the client
+            databaseManager.logError("API", "Streaming query failed", e.getMessage());
+        } catch (IOException | JsonIOException e) {
+            System.err.println("Streaming response aborted: " + e.getMessage());
+        }
+    }
+
+    // Runs a streaming query against the given row callback
+    @FunctionalInterface
+    private interface RowStream {
+        void stream(DatabaseManager.RowCallback callback) throws SQLException, IOException;
+    }
+
+    /**
+     * Create and start the task described by a submit request
+     *
+     * @throws IllegalArgumentException if required fields are missing
+     */
+    private String submitTask(ApiRequests.TaskSubmitRequest request) {
+        String name = request.name();
+        String description = request.description();
+        String type = request.type();
+
+        if (name == null || description == null) {
+            throw new IllegalArgumentException("Name and description are required");
+        }
+
+        switch (type != null ? type : "simple") {
+            case "file-copy": {
+                String source = request.source();
+                String destination = request.destination();
+                if (source == null || destination == null) {
+                    throw new IllegalArgumentException("Source and destination are required for file copy");
+                }
+                return taskManager.submitProgressTask(name, description, progress -> {
+                    var result = fileSystemManager.copy(source, destination);
+                    if (!result.isSuccess()) {
+                        throw new RuntimeException(result.getMessage());
+                    }
+                    return "File copied successfully";
+                });
+            }
+
+            case "file-move": {
+                String source = request.source();
+                String destination = request.destination();
+                if (source == null || destination == null) {
+                    throw new IllegalArgumentException("Source and destination are required for file move");
+                }
+                return taskManager.submitProgressTask(name, description, progress -> {
+                    var result = fileSystemManager.move(source, destination);
+                    if (!result.isSuccess()) {
+                        throw new RuntimeException(result.getMessage());
+                    }
+                    return "File moved successfully";
+                });
+            }
+
+            case "update-download":
+                return taskManager.submitProgressTask(name, description, progress -> {
+                    var result = updateManager.downloadUpdate();
+                    return result;
+                });
+
+            default:
+                // Simple task - just run a demo operation
+                return taskManager.submitProgressTask(name, description, progress -> {
+                    // Simulate some work
+                    for (int i = 0; i <= 100; i += 10) {
+                        progress.accept((double) i);
+                        Thread.sleep(200);
+                    }
+                    return "Task completed successfully";
+                });
+        }
+    }
+
+    private Map<String, String> getAllSettings() {
+        Properties settings = settingsManager.getAllSettings();
+        Map<String, String> settingsMap = new HashMap<>();
+        settings.forEach((key, value) -> settingsMap.put(key.toString(), value.toString()));
+        return settingsMap;
+    }
+
+    private void saveSettings(Map<String, Object> request) {
+        // Save each setting
+        request.forEach((key, value) -> {
+            if (value instanceof Boolean) {
+                settingsManager.setBoolean(key, (Boolean) value);
+            } else if (value instanceof Number) {
+                settingsManager.setInt(key, ((Number) value).intValue());
+            } else {
+                settingsManager.setString(key, value.toString());
+            }
+        });
+
+        settingsManager.saveSettings();
+    }
+
+    /**
+     * The file, task and settings operations, also callable as JSON-RPC over /ws
+     */
+    private void setupRpcMethods() {
+        RpcDispatcher rpc = RpcDispatcher.getInstance();
+
+        rpc.register("files.info", params -> {
+            FileSystemManager.FileInfo info = fileSystemManager.getFileInfo(
+                RpcDispatcher.requireString(params, "path", "Path parameter is required"));
+            if (info == null) {
+                throw new RpcDispatcher.RpcException(RpcDispatcher.NOT_FOUND, "File not found");
+            }
+            return info;
+        });
+        rpc.register("files.list", params -> {
+            String path = RpcDispatcher.optionalString(params, "path");
+            return fileSystemManager.listDirectory(path == null || path.isEmpty() ? fileSystemManager.getCurrentDirectory() : path);
+        });
+        rpc.register("files.read", params -> fileSystemManager.readTextFile(
+            RpcDispatcher.requireString(params, "path", "Path parameter is required")));
+        rpc.register("files.write", params -> fileSystemManager.writeTextFile(
+            RpcDispatcher.requireString(params, "path", "Path parameter is required"),
+            RpcDispatcher.optionalString(params, "content")));
+        rpc.register("files.append", params -> fileSystemManager.appendTextFile(
+            RpcDispatcher.requireString(params, "path", "Path parameter is required"),
+            RpcDispatcher.optionalString(params, "content")));
+        rpc.register("files.delete", params -> fileSystemManager.delete(
+            RpcDispatcher.requireString(params, "path", "Path parameter is required")));
+        rpc.register("files.copy", params -> fileSystemManager.copy(
+            RpcDispatcher.requireString(params, "source", "Source and dest parameters are required"),
+            RpcDispatcher.requireString(params, "dest", "Source and dest parameters are required")));
+        rpc.register("files.move", params -> fileSystemManager.move(
+            RpcDispatcher.requireString(params, "source", "Source and dest parameters are required"),
+            RpcDispatcher.requireString(params, "dest", "Source and dest parameters are required")));
+        rpc.register("files.mkdir", params -> fileSystemManager.createDirectory(
+            RpcDispatcher.requireString(params, "path", "Path parameter is required")));
+        rpc.register("files.exists", params -> Map.of("exists", fileSystemManager.exists(
+            RpcDispatcher.requireString(params, "path", "Path parameter is required"))));
+
+        rpc.register("settings.all", params -> getAllSettings());
+        rpc.register("settings.save", params -> {
+            saveSettings(params);
+            return Map.of("success", true, "message", "Settings saved successfully");
+        });
+
+        rpc.register("tasks.list", params -> Map.of("tasks", taskManager.getActiveTasks()));
+        rpc.register("tasks.stats", params -> taskManager.getTaskStatistics());
+        rpc.register("tasks.get", params -> taskManager.getTaskStatus(
+            RpcDispatcher.requireString(params, "taskId", "Task id is required")));
+        rpc.register("tasks.submit", params -> Map.of("taskId", submitTask(ApiRequests.TaskSubmitRequest.fromParams(params)), "status", "submitted"));
+        rpc.register("tasks.cancel", params -> Map.of("cancelled", taskManager.cancelTask(
+            RpcDispatcher.requireString(params, "taskId", "Task id is required"))));
+        rpc.register("tasks.remove", params -> Map.of("removed", taskManager.removeTask(
+            RpcDispatcher.requireString(params, "taskId", "Task id is required"))));
+    }
+
     public void start() {
         app.start(port);
         System.out.println("Backend server started on http://localhost:" + port);
@@ -686,6 +1100,9 @@ public class BackendServer {
 
     public void stop() {
         app.stop();
+        RpcDispatcher.getInstance().shutdown();
+        WebSocketHandler.shutdown();
+        databaseManager.close();
     }
 
     public int getPort() {
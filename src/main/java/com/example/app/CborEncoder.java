@@ -0,0 +1,195 @@
+package com.example.app;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Minimal CBOR (RFC 8949) encoder for WebSocket messages
+ * Covers the values our messages are built from: maps, lists, strings,
+ * numbers, booleans and null. Anything else is converted the way Gson
+ * would serialize it, so a CBOR message decodes to the same value as its
+ * JSON counterpart. Like Gson, null map entries are left out.
+ */
+public class CborEncoder {
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+
+    private static final int FALSE = 0xF4;
+    private static final int TRUE = 0xF5;
+    private static final int NULL = 0xF6;
+    private static final int FLOAT32 = 0xFA;
+    private static final int FLOAT64 = 0xFB;
+
+    // Integral doubles up to 2^53 are written as integers; JavaScript reads both the same
+    private static final double MAX_SAFE_INTEGER = 9007199254740992.0;
+
+    private final Gson gson;
+
+    public CborEncoder(Gson gson) {
+        this.gson = gson;
+    }
+
+    public void write(Object value, OutputStream out) throws IOException {
+        if (value == null) {
+            out.write(NULL);
+        } else if (value instanceof String s) {
+            writeText(s, out);
+        } else if (value instanceof Boolean b) {
+            out.write(b ? TRUE : FALSE);
+        } else if (value instanceof Number n) {
+            writeNumber(n, out);
+        } else if (value instanceof Map<?, ?> map) {
+            int count = 0;
+            for (Object entryValue : map.values()) {
+                if (entryValue != null) {
+                    count++;
+                }
+            }
+            writeHead(MAJOR_MAP, count, out);
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (entry.getValue() != null) {
+                    writeText(String.valueOf(entry.getKey()), out);
+                    write(entry.getValue(), out);
+                }
+            }
+        } else if (value instanceof Collection<?> collection) {
+            writeHead(MAJOR_ARRAY, collection.size(), out);
+            for (Object item : collection) {
+                write(item, out);
+            }
+        } else if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            writeHead(MAJOR_ARRAY, length, out);
+            for (int i = 0; i < length; i++) {
+                write(Array.get(value, i), out);
+            }
+        } else if (value instanceof Character || value instanceof Enum<?>) {
+            writeText(value instanceof Enum<?> e ? e.name() : value.toString(), out);
+        } else if (value instanceof JsonElement element) {
+            writeJson(element, out);
+        } else {
+            writeJson(gson.toJsonTree(value), out);
+        }
+    }
+
+    private void writeJson(JsonElement element, OutputStream out) throws IOException {
+        if (element == null || element.isJsonNull()) {
+            out.write(NULL);
+        } else if (element instanceof JsonObject object) {
+            int count = 0;
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                if (!entry.getValue().isJsonNull()) {
+                    count++;
+                }
+            }
+            writeHead(MAJOR_MAP, count, out);
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                if (!entry.getValue().isJsonNull()) {
+                    writeText(entry.getKey(), out);
+                    writeJson(entry.getValue(), out);
+                }
+            }
+        } else if (element instanceof JsonArray array) {
+            writeHead(MAJOR_ARRAY, array.size(), out);
+            for (JsonElement item : array) {
+                writeJson(item, out);
+            }
+        } else {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if (primitive.isBoolean()) {
+                out.write(primitive.getAsBoolean() ? TRUE : FALSE);
+            } else if (primitive.isNumber()) {
+                writeNumber(primitive.getAsNumber(), out);
+            } else {
+                writeText(primitive.getAsString(), out);
+            }
+        }
+    }
+
+    private void writeNumber(Number n, OutputStream out) throws IOException {
+        if (n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte) {
+            writeInteger(n.longValue(), out);
+            return;
+        }
+        if (n instanceof BigInteger big && big.bitLength() < 64) {
+            writeInteger(big.longValue(), out);
+            return;
+        }
+        if (n instanceof BigDecimal || n instanceof BigInteger) {
+            // Beyond 64 bits; JavaScript can only hold it as a double anyway
+            writeDouble(n.doubleValue(), out);
+            return;
+        }
+        double d = n.doubleValue();
+        if (d == Math.rint(d) && Math.abs(d) <= MAX_SAFE_INTEGER && !(d == 0.0 && 1 / d < 0)) {
+            writeInteger((long) d, out);
+        } else {
+            writeDouble(d, out);
+        }
+    }
+
+    private void writeDouble(double d, OutputStream out) throws IOException {
+        float f = (float) d;
+        if (f == d || Double.isNaN(d)) {
+            out.write(FLOAT32);
+            writeBytes(Float.floatToIntBits(f), 4, out);
+        } else {
+            out.write(FLOAT64);
+            writeBytes(Double.doubleToLongBits(d), 8, out);
+        }
+    }
+
+    private void writeInteger(long value, OutputStream out) throws IOException {
+        if (value >= 0) {
+            writeHead(MAJOR_UNSIGNED, value, out);
+        } else {
+            writeHead(MAJOR_NEGATIVE, -1 - value, out);
+        }
+    }
+
+    private void writeText(String text, OutputStream out) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeHead(MAJOR_TEXT, bytes.length, out);
+        out.write(bytes);
+    }
+
+    private static void writeHead(int major, long value, OutputStream out) throws IOException {
+        int type = major << 5;
+        if (value < 24) {
+            out.write(type | (int) value);
+        } else if (value < 0x100) {
+            out.write(type | 24);
+            out.write((int) value);
+        } else if (value < 0x10000) {
+            out.write(type | 25);
+            writeBytes(value, 2, out);
+        } else if (value < 0x100000000L) {
+            out.write(type | 26);
+            writeBytes(value, 4, out);
+        } else {
+            out.write(type | 27);
+            writeBytes(value, 8, out);
+        }
+    }
+
+    private static void writeBytes(long value, int count, OutputStream out) throws IOException {
+        for (int shift = (count - 1) * 8; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift) & 0xFF);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.app;
+
+import org.sqlite.SQLiteConfig;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SQLite connection pool
+ * One writer connection guarded by a lock plus a fixed set of read-only
+ * reader connections, all running in WAL mode so reads never wait on writes
+ */
+public class ConnectionPool {
+    private static final int BUSY_TIMEOUT_MS = 5000;
+    private static final long ACQUIRE_TIMEOUT_MS = 10000;
+
+    private final Connection writerConnection;
+    private final StatementCache writerStatements;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // Nanoseconds spent waiting for, then holding, the writer connection
+    private final LatencyHistogram writerWait = new LatencyHistogram(TimeUnit.MINUTES.toNanos(1));
+    private final LatencyHistogram writerHold = new LatencyHistogram(TimeUnit.MINUTES.toNanos(1));
+    private final List<Connection> readerConnections = new ArrayList<>();
+    private final Map<Connection, StatementCache> readerStatements = new HashMap<>();
+    private final BlockingQueue<Connection> idleReaders;
+    private volatile boolean closed = false;
+
+    public ConnectionPool(String dbUrl, int readerCount, int cacheSizeKb, long mmapSizeBytes,
+                          int statementCacheSize) throws SQLException {
+        int readers = Math.max(1, readerCount);
+        this.idleReaders = new ArrayBlockingQueue<>(readers);
+
+        this.writerConnection = DriverManager.getConnection(dbUrl, baseConfig(cacheSizeKb).toProperties());
+        this.writerStatements = new StatementCache(writerConnection, statementCacheSize);
+        try (Statement stmt = writerConnection.createStatement()) {
+            // auto_vacuum only takes effect on a brand-new file, so it must precede the WAL switch
+            stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+            // The writer switches the database file to WAL; the setting is persistent
+            stmt.execute("PRAGMA journal_mode = WAL");
+        }
+        applyMmapSize(writerConnection, mmapSizeBytes);
+
+        try {
+            for (int i = 0; i < readers; i++) {
+                SQLiteConfig readerConfig = baseConfig(cacheSizeKb);
+                readerConfig.setReadOnly(true);
+                Connection reader = DriverManager.getConnection(dbUrl, readerConfig.toProperties());
+                applyMmapSize(reader, mmapSizeBytes);
+                readerConnections.add(reader);
+                readerStatements.put(reader, new StatementCache(reader, statementCacheSize));
+                idleReaders.add(reader);
+            }
+        } catch (SQLException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private static SQLiteConfig baseConfig(int cacheSizeKb) {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        config.setBusyTimeout(BUSY_TIMEOUT_MS);
+        config.setTempStore(SQLiteConfig.TempStore.MEMORY);
+        // Negative cache_size is in KiB rather than pages
+        config.setCacheSize(-Math.max(1, cacheSizeKb));
+        return config;
+    }
+
+    private static void applyMmapSize(Connection conn, long mmapSizeBytes) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA mmap_size = " + Math.max(0, mmapSizeBytes));
+        }
+    }
+
+    /**
+     * Borrow a read-only connection; close the handle to return it
+     */
+    public PooledConnection reader() throws SQLException {
+        try {
+            if (closed) {
+                throw new SQLException("Database connection pool is closed");
+            }
+            Connection conn = idleReaders.poll(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (conn == null) {
+                throw new SQLException("Timed out waiting for a database reader connection");
+            }
+            if (closed) {
+                // close() is waiting for every reader to come back
+                idleReaders.offer(conn);
+                throw new SQLException("Database connection pool is closed");
+            }
+            return new PooledConnection(conn, readerStatements.get(conn), () -> idleReaders.offer(conn));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database reader connection", e);
+        }
+    }
+
+    /**
+     * Acquire exclusive use of the writer connection; close the handle to release it
+     */
+    public PooledConnection writer() throws SQLException {
+        long requestedAt = System.nanoTime();
+        try {
+            if (!writeLock.tryLock(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out waiting for the database writer connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the database writer connection", e);
+        }
+        long acquiredAt = System.nanoTime();
+        writerWait.record(acquiredAt - requestedAt);
+        return new PooledConnection(writerConnection, writerStatements, () -> {
+            writerHold.record(System.nanoTime() - acquiredAt);
+            writeLock.unlock();
+        });
+    }
+
+    public LatencyHistogram getWriterWaitLatency() {
+        return writerWait;
+    }
+
+    // How long each write transaction or statement kept the writer busy
+    public LatencyHistogram getWriterHoldLatency() {
+        return writerHold;
+    }
+
+    public int getWriterWaiting() {
+        return writeLock.getQueueLength();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("readers_total", readerConnections.size());
+        stats.put("readers_idle", idleReaders.size());
+        stats.put("writer_locked", writeLock.isLocked());
+        stats.put("writer_waiting", writeLock.getQueueLength());
+        return stats;
+    }
+
+    public Map<String, Object> getStatementCacheStats() {
+        long hits = writerStatements.getHits();
+        long misses = writerStatements.getMisses();
+        long evictions = writerStatements.getEvictions();
+        for (StatementCache cache : readerStatements.values()) {
+            hits += cache.getHits();
+            misses += cache.getMisses();
+            evictions += cache.getEvictions();
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("evictions", evictions);
+        stats.put("hit_ratio", hits + misses > 0 ? (double) hits / (hits + misses) : 0.0);
+        return stats;
+    }
+
+    /**
+     * Close every connection. Like the writer, readers still borrowed by a
+     * running query or export are waited for, up to the acquire timeout,
+     * so they are not closed in the middle of iterating a result set.
+     */
+    public void close() {
+        closed = true;
+        awaitReaders();
+        for (Connection reader : readerConnections) {
+            readerStatements.get(reader).close();
+            closeQuietly(reader);
+        }
+        readerConnections.clear();
+        idleReaders.clear();
+
+        if (writerConnection != null) {
+            writeLock.lock();
+            try {
+                // Fold the WAL back into the main file so the .db is self-contained
+                try (Statement stmt = writerConnection.createStatement()) {
+                    stmt.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+                } catch (SQLException e) {
+                    System.err.println("Failed to checkpoint WAL: " + e.getMessage());
+                }
+                writerStatements.close();
+                closeQuietly(writerConnection);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private void awaitReaders() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ACQUIRE_TIMEOUT_MS);
+        try {
+            while (idleReaders.size() < readerConnections.size()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    System.err.println((readerConnections.size() - idleReaders.size())
+                        + " database reader connection(s) still in use; closing them anyway");
+                    return;
+                }
+                Thread.sleep(Math.min(10, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing database connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Borrowed connection handle, released back to the pool on close
+     */
+    public static class PooledConnection implements AutoCloseable {
+        private final Connection connection;
+        private final StatementCache statements;
+        private final Runnable release;
+        private boolean released = false;
+
+        PooledConnection(Connection connection, StatementCache statements, Runnable release) {
+            this.connection = connection;
+            this.statements = statements;
+            this.release = release;
+        }
+
+        public Connection connection() {
+            return connection;
+        }
+
+        /**
+         * Cached statement owned by this connection; do not close it
+         */
+        public PreparedStatement prepareCached(String sql) throws SQLException {
+            return statements.prepare(sql);
+        }
+
+        public PreparedStatement prepareStatement(String sql) throws SQLException {
+            return connection.prepareStatement(sql);
+        }
+
+        public Statement createStatement() throws SQLException {
+            return connection.createStatement();
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release.run();
+            }
+        }
+    }
+}
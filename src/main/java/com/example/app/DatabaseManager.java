@@ -2,14 +2,18 @@ package com.example.app;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * SQLite database manager for local data storage
@@ -18,9 +22,140 @@ import java.util.Map;
 public class DatabaseManager {
     private static final String DB_NAME = "java-webview.db";
     private static final String APP_DATA_DIR = ".java-webview-app";
+    private static final long AUDIT_FLUSH_TIMEOUT_MS = 5000;
+    private static final int MAX_PAGE_SIZE = 1000;
+    static final int STREAM_CHUNK_SIZE = 500;
+    private static final String[] COUNTED_TABLES = {
+        "app_logs", "user_data", "file_operations", "websocket_messages", "api_calls", "notifications"
+    };
+
+    // Full-text indexed tables and their indexed columns
+    private static final String[][] FTS_TABLES = {
+        { "app_logs", "message", "details" },
+        { "file_operations", "file_path", "error_message" }
+    };
+
+    // Schema migrations, applied in order; PRAGMA user_version records how many have run
+    private static final String[][] MIGRATIONS = {
+        // 1: timestamp indexes for newest-first history queries and keyset pagination
+        {
+            "CREATE INDEX IF NOT EXISTS idx_app_logs_timestamp ON app_logs(timestamp)",
+            "CREATE INDEX IF NOT EXISTS idx_app_logs_category_timestamp ON app_logs(category, timestamp)",
+            "CREATE INDEX IF NOT EXISTS idx_file_operations_timestamp ON file_operations(timestamp)",
+            "CREATE INDEX IF NOT EXISTS idx_websocket_messages_timestamp ON websocket_messages(timestamp)",
+            "CREATE INDEX IF NOT EXISTS idx_api_calls_timestamp ON api_calls(timestamp)",
+            "CREATE INDEX IF NOT EXISTS idx_api_calls_endpoint_timestamp ON api_calls(endpoint, timestamp)",
+            "CREATE INDEX IF NOT EXISTS idx_notifications_timestamp ON notifications(timestamp)"
+        },
+        // 2: hourly roll-up tables filled by the retention job before raw rows are deleted
+        {
+            """
+            CREATE TABLE IF NOT EXISTS app_logs_hourly (
+                hour TEXT NOT NULL,
+                level TEXT NOT NULL,
+                category TEXT NOT NULL,
+                count INTEGER NOT NULL DEFAULT 0,
+                PRIMARY KEY (hour, level, category)
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS file_operations_hourly (
+                hour TEXT NOT NULL,
+                operation_type TEXT NOT NULL,
+                count INTEGER NOT NULL DEFAULT 0,
+                failures INTEGER NOT NULL DEFAULT 0,
+                total_bytes INTEGER NOT NULL DEFAULT 0,
+                PRIMARY KEY (hour, operation_type)
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS websocket_messages_hourly (
+                hour TEXT NOT NULL,
+                direction TEXT NOT NULL,
+                message_type TEXT NOT NULL,
+                count INTEGER NOT NULL DEFAULT 0,
+                PRIMARY KEY (hour, direction, message_type)
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS api_calls_hourly (
+                hour TEXT NOT NULL,
+                method TEXT NOT NULL,
+                endpoint TEXT NOT NULL,
+                count INTEGER NOT NULL DEFAULT 0,
+                failures INTEGER NOT NULL DEFAULT 0,
+                total_response_time INTEGER NOT NULL DEFAULT 0, -- milliseconds
+                max_response_time INTEGER NOT NULL DEFAULT 0,
+                PRIMARY KEY (hour, method, endpoint)
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS notifications_hourly (
+                hour TEXT NOT NULL,
+                type TEXT NOT NULL,
+                count INTEGER NOT NULL DEFAULT 0,
+                failures INTEGER NOT NULL DEFAULT 0,
+                PRIMARY KEY (hour, type)
+            )
+            """
+        },
+        // 3: trigger-maintained row counts so stats never need a full COUNT(*) scan
+        countTriggerMigration(),
+        // 4: FTS5 indexes over log and file-operation text
+        ftsMigration()
+    };
+
+    private static String[] countTriggerMigration() {
+        List<String> statements = new ArrayList<>();
+        statements.add("""
+            CREATE TABLE IF NOT EXISTS table_counts (
+                table_name TEXT PRIMARY KEY,
+                row_count INTEGER NOT NULL DEFAULT 0
+            )
+            """);
+        for (String table : COUNTED_TABLES) {
+            // Seeded once here; the triggers keep it current from then on
+            statements.add("INSERT OR REPLACE INTO table_counts (table_name, row_count) "
+                + "SELECT '" + table + "', COUNT(*) FROM " + table);
+            statements.add("CREATE TRIGGER IF NOT EXISTS trg_" + table + "_count_insert AFTER INSERT ON " + table
+                + " BEGIN UPDATE table_counts SET row_count = row_count + 1 WHERE table_name = '" + table + "'; END");
+            statements.add("CREATE TRIGGER IF NOT EXISTS trg_" + table + "_count_delete AFTER DELETE ON " + table
+                + " BEGIN UPDATE table_counts SET row_count = row_count - 1 WHERE table_name = '" + table + "'; END");
+        }
+        return statements.toArray(new String[0]);
+    }
+
+    private static String[] ftsMigration() {
+        List<String> statements = new ArrayList<>();
+        for (String[] spec : FTS_TABLES) {
+            String table = spec[0];
+            String fts = table + "_fts";
+            String columns = String.join(", ", Arrays.copyOfRange(spec, 1, spec.length));
+            String newValues = "new." + String.join(", new.", Arrays.copyOfRange(spec, 1, spec.length));
+            String oldValues = "old." + String.join(", old.", Arrays.copyOfRange(spec, 1, spec.length));
+
+            // External-content index: the text lives only in the base table
+            statements.add("CREATE VIRTUAL TABLE IF NOT EXISTS " + fts + " USING fts5(" + columns
+                + ", content='" + table + "', content_rowid='id')");
+            statements.add("CREATE TRIGGER IF NOT EXISTS trg_" + fts + "_insert AFTER INSERT ON " + table
+                + " BEGIN INSERT INTO " + fts + " (rowid, " + columns + ") VALUES (new.id, " + newValues + "); END");
+            statements.add("CREATE TRIGGER IF NOT EXISTS trg_" + fts + "_delete AFTER DELETE ON " + table
+                + " BEGIN INSERT INTO " + fts + " (" + fts + ", rowid, " + columns + ") VALUES ('delete', old.id, " + oldValues + "); END");
+            statements.add("CREATE TRIGGER IF NOT EXISTS trg_" + fts + "_update AFTER UPDATE ON " + table
+                + " BEGIN INSERT INTO " + fts + " (" + fts + ", rowid, " + columns + ") VALUES ('delete', old.id, " + oldValues + ");"
+                + " INSERT INTO " + fts + " (rowid, " + columns + ") VALUES (new.id, " + newValues + "); END");
+            // Index the rows that existed before the triggers
+            statements.add("INSERT INTO " + fts + " (" + fts + ") VALUES ('rebuild')");
+        }
+        return statements.toArray(new String[0]);
+    }
 
     private static DatabaseManager instance;
-    private Connection connection;
+    private ConnectionPool pool;
+    private AuditLogWriter auditWriter;
+    private RetentionManager retentionManager;
+    private UserDataCache userDataCache;
+    private AuditArchive auditArchive;
 
     private DatabaseManager() {
         initializeDatabase();
@@ -43,22 +178,53 @@ public class DatabaseManager {
             Path dbPath = appDataDir.resolve(DB_NAME);
             String dbUrl = "jdbc:sqlite:" + dbPath.toString();
 
-            // Create connection
-            connection = DriverManager.getConnection(dbUrl);
+            // Create connection pool (WAL writer + read-only readers)
+            SettingsManager settings = SettingsManager.getInstance();
+            pool = new ConnectionPool(
+                dbUrl,
+                settings.getDatabaseReaderCount(),
+                settings.getDatabaseCacheSizeKb(),
+                settings.getDatabaseMmapSizeMb() * 1024L * 1024L,
+                settings.getDatabaseStatementCacheSize()
+            );
             System.out.println("Database initialized at: " + dbPath);
 
             // Create tables
             createTables();
+            runMigrations();
+
+            // Audit inserts go through a write-behind writer sharing the pool's writer connection
+            auditWriter = createAuditWriter(settings);
 
             // Initialize default data
             initializeDefaultData();
 
+            // user_data is small and hot, so it is served from memory
+            userDataCache = new UserDataCache(pool, settings.getUserDataFlushIntervalMs());
+
+            auditArchive = new AuditArchive(pool, this);
+
+            // Scheduled retention, roll-up and incremental vacuum of the audit tables
+            retentionManager = new RetentionManager(pool, this, settings);
+            retentionManager.start();
+
         } catch (SQLException | IOException e) {
             System.err.println("Failed to initialize database: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    private AuditLogWriter createAuditWriter(SettingsManager settings) {
+        return new AuditLogWriter(
+            pool,
+            settings.getAuditQueueCapacity(),
+            settings.getAuditBatchSize(),
+            settings.getAuditFlushIntervalMs(),
+            AuditLogWriter.OverflowPolicy.fromString(settings.getAuditOverflowPolicy(), AuditLogWriter.OverflowPolicy.BLOCK),
+            settings.getAuditSampleRate()
+        );
+    }
+
     private void createTables() throws SQLException {
         // Application logs table
         String createLogsTable = """
@@ -143,6 +309,34 @@ public class DatabaseManager {
         System.out.println("Database tables created successfully");
     }
 
+    private void runMigrations() throws SQLException {
+        try (ConnectionPool.PooledConnection conn = pool.writer()) {
+            Connection connection = conn.connection();
+            int version;
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+                version = rs.next() ? rs.getInt(1) : 0;
+            }
+
+            for (int i = version; i < MIGRATIONS.length; i++) {
+                connection.setAutoCommit(false);
+                try (Statement stmt = connection.createStatement()) {
+                    for (String sql : MIGRATIONS[i]) {
+                        stmt.executeUpdate(sql);
+                    }
+                    stmt.executeUpdate("PRAGMA user_version = " + (i + 1));
+                    connection.commit();
+                    System.out.println("Applied database migration " + (i + 1));
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+        }
+    }
+
     private void initializeDefaultData() throws SQLException {
         // Insert some default user data if not exists
         String insertDefaultData = """
@@ -175,50 +369,28 @@ public class DatabaseManager {
 
     private void log(String level, String category, String message, String details) {
         String sql = "INSERT INTO app_logs (level, category, message, details) VALUES (?, ?, ?, ?)";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, level);
-            stmt.setString(2, category);
-            stmt.setString(3, message);
-            stmt.setString(4, details);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            System.err.println("Failed to log message: " + e.getMessage());
-        }
+        submitAudit(sql, level, category, message, details);
     }
 
-    // User data methods
+    // User data methods (served from the in-memory cache)
     public void setUserData(String key, String value, String dataType) {
-        String sql = """
-            INSERT INTO user_data (key, value, data_type, updated_at)
-            VALUES (?, ?, ?, CURRENT_TIMESTAMP)
-            ON CONFLICT(key) DO UPDATE SET
-            value = excluded.value,
-            data_type = excluded.data_type,
-            updated_at = CURRENT_TIMESTAMP;
-            """;
-
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, key);
-            stmt.setString(2, value);
-            stmt.setString(3, dataType);
-            stmt.executeUpdate();
+        try {
+            userDataCache.set(key, value, dataType);
         } catch (SQLException e) {
             logError("Database", "Failed to set user data: " + key, e.getMessage());
         }
     }
 
     public String getUserData(String key, String defaultValue) {
-        String sql = "SELECT value FROM user_data WHERE key = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, key);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getString("value");
-            }
-        } catch (SQLException e) {
-            logError("Database", "Failed to get user data: " + key, e.getMessage());
-        }
-        return defaultValue;
+        return userDataCache.get(key, defaultValue);
+    }
+
+    /**
+     * Atomically add delta to an integer user data entry and return the new value.
+     * The new value is persisted by the cache's next coalesced flush.
+     */
+    public long incrementUserData(String key, long delta) {
+        return userDataCache.increment(key, delta);
     }
 
     public int getUserDataInt(String key, int defaultValue) {
@@ -241,16 +413,7 @@ public class DatabaseManager {
             VALUES (?, ?, ?, ?, ?);
             """;
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, operationType);
-            stmt.setString(2, filePath);
-            stmt.setLong(3, fileSize);
-            stmt.setBoolean(4, success);
-            stmt.setString(5, errorMessage);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            logError("Database", "Failed to log file operation", e.getMessage());
-        }
+        submitAudit(sql, operationType, filePath, fileSize, success ? 1 : 0, errorMessage);
     }
 
     // Notification history
@@ -261,14 +424,7 @@ public class DatabaseManager {
             VALUES (?, ?, ?);
             """;
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, type);
-            stmt.setString(2, message);
-            stmt.setBoolean(3, success);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            logError("Database", "Failed to log notification", e.getMessage());
-        }
+        submitAudit(sql, type, message, success ? 1 : 0);
     }
 
     // WebSocket messages history
@@ -279,15 +435,7 @@ public class DatabaseManager {
             VALUES (?, ?, ?, ?);
             """;
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, direction);
-            stmt.setString(2, messageType);
-            stmt.setString(3, content);
-            stmt.setString(4, sessionId);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            logError("Database", "Failed to log WebSocket message", e.getMessage());
-        }
+        submitAudit(sql, direction, messageType, content, sessionId);
     }
 
     // API calls history
@@ -298,27 +446,20 @@ public class DatabaseManager {
             VALUES (?, ?, ?, ?, ?);
             """;
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, method);
-            stmt.setString(2, endpoint);
-            stmt.setInt(3, statusCode);
-            stmt.setLong(4, responseTime);
-            stmt.setBoolean(5, success);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            logError("Database", "Failed to log API call", e.getMessage());
-        }
+        submitAudit(sql, method, endpoint, statusCode, responseTime, success ? 1 : 0);
     }
 
     // Statistics methods
     public void incrementLaunchCount() {
-        int current = getUserDataInt("stats.totalLaunches", 0);
-        setUserData("stats.totalLaunches", String.valueOf(current + 1), "integer");
+        incrementUserData("stats.totalLaunches", 1);
     }
 
     public void incrementWebSocketMessageCount() {
-        int current = getUserDataInt("stats.totalWebSocketMessages", 0);
-        setUserData("stats.totalWebSocketMessages", String.valueOf(current + 1), "integer");
+        incrementWebSocketMessageCount(1);
+    }
+
+    public void incrementWebSocketMessageCount(long count) {
+        incrementUserData("stats.totalWebSocketMessages", count);
     }
 
     public int getLaunchCount() {
@@ -331,84 +472,384 @@ public class DatabaseManager {
 
     // Query methods
     public List<Map<String, Object>> getRecentLogs(int limit) {
-        List<Map<String, Object>> logs = new ArrayList<>();
-        String sql = """
-            SELECT timestamp, level, category, message, details
-            FROM app_logs
-            ORDER BY timestamp DESC
-            LIMIT ?;
-            """;
+        return pageItems(getLogsPage(null, null, limit));
+    }
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setInt(1, limit);
-            ResultSet rs = stmt.executeQuery();
+    public List<Map<String, Object>> getRecentFileOperations(int limit) {
+        return pageItems(getFileOperationsPage(null, limit));
+    }
 
-            while (rs.next()) {
-                Map<String, Object> log = new HashMap<>();
-                log.put("timestamp", rs.getString("timestamp"));
-                log.put("level", rs.getString("level"));
-                log.put("category", rs.getString("category"));
-                log.put("message", rs.getString("message"));
-                log.put("details", rs.getString("details"));
-                logs.add(log);
+    // History row mappers shared by the paged and streaming queries
+    private static final String LOG_COLUMNS = "timestamp, level, category, message, details";
+    private static final RowMapper LOG_ROW = rs -> {
+        Map<String, Object> log = new HashMap<>();
+        log.put("timestamp", rs.getString("timestamp"));
+        log.put("level", rs.getString("level"));
+        log.put("category", rs.getString("category"));
+        log.put("message", rs.getString("message"));
+        log.put("details", rs.getString("details"));
+        return log;
+    };
+
+    private static final String FILE_OPERATION_COLUMNS = "operation_type, file_path, file_size, success, error_message, timestamp";
+    private static final RowMapper FILE_OPERATION_ROW = rs -> {
+        Map<String, Object> op = new HashMap<>();
+        op.put("operation_type", rs.getString("operation_type"));
+        op.put("file_path", rs.getString("file_path"));
+        op.put("file_size", rs.getLong("file_size"));
+        op.put("success", rs.getBoolean("success"));
+        op.put("error_message", rs.getString("error_message"));
+        op.put("timestamp", rs.getString("timestamp"));
+        return op;
+    };
+
+    private static final String NOTIFICATION_COLUMNS = "type, message, success, timestamp";
+    private static final RowMapper NOTIFICATION_ROW = rs -> {
+        Map<String, Object> notification = new HashMap<>();
+        notification.put("type", rs.getString("type"));
+        notification.put("message", rs.getString("message"));
+        notification.put("success", rs.getBoolean("success"));
+        notification.put("timestamp", rs.getString("timestamp"));
+        return notification;
+    };
+
+    private static final String API_CALL_COLUMNS = "method, endpoint, status_code, response_time, success, timestamp";
+    private static final RowMapper API_CALL_ROW = rs -> {
+        Map<String, Object> apiCall = new HashMap<>();
+        apiCall.put("method", rs.getString("method"));
+        apiCall.put("endpoint", rs.getString("endpoint"));
+        apiCall.put("status_code", rs.getInt("status_code"));
+        apiCall.put("response_time", rs.getLong("response_time"));
+        apiCall.put("success", rs.getBoolean("success"));
+        apiCall.put("timestamp", rs.getString("timestamp"));
+        return apiCall;
+    };
+
+    // Keyset-paginated queries; cursor is the opaque nextCursor of the previous page
+    public Map<String, Object> getLogsPage(String category, String cursor, int limit) {
+        return queryPage(LOG_COLUMNS, "app_logs", "category", category, cursor, limit,
+            LOG_ROW, "Failed to get recent logs");
+    }
+
+    public Map<String, Object> getFileOperationsPage(String cursor, int limit) {
+        return queryPage(FILE_OPERATION_COLUMNS, "file_operations", null, null, cursor, limit,
+            FILE_OPERATION_ROW, "Failed to get recent file operations");
+    }
+
+    public Map<String, Object> getNotificationsPage(String cursor, int limit) {
+        return queryPage(NOTIFICATION_COLUMNS, "notifications", null, null, cursor, limit,
+            NOTIFICATION_ROW, "Failed to get notifications");
+    }
+
+    public Map<String, Object> getApiCallsPage(String endpoint, String cursor, int limit) {
+        return queryPage(API_CALL_COLUMNS, "api_calls", "endpoint", endpoint, cursor, limit,
+            API_CALL_ROW, "Failed to get API calls");
+    }
+
+    // Streaming queries: every matching row, newest first, handed to the callback
+    // as it is read. A limit of 0 or less means no limit. Returns the row count.
+    public long streamLogs(String category, int limit, RowCallback callback) throws SQLException, IOException {
+        return streamRows(LOG_COLUMNS, "app_logs", "category", category, limit, LOG_ROW, callback);
+    }
+
+    public long streamFileOperations(int limit, RowCallback callback) throws SQLException, IOException {
+        return streamRows(FILE_OPERATION_COLUMNS, "file_operations", null, null, limit, FILE_OPERATION_ROW, callback);
+    }
+
+    public long streamNotifications(int limit, RowCallback callback) throws SQLException, IOException {
+        return streamRows(NOTIFICATION_COLUMNS, "notifications", null, null, limit, NOTIFICATION_ROW, callback);
+    }
+
+    public long streamApiCalls(String endpoint, int limit, RowCallback callback) throws SQLException, IOException {
+        return streamRows(API_CALL_COLUMNS, "api_calls", "endpoint", endpoint, limit, API_CALL_ROW, callback);
+    }
+
+    /**
+     * Newest-first page over (timestamp, id) using the timestamp indexes.
+     * Fetches one extra row to decide whether another page exists.
+     */
+    private Map<String, Object> queryPage(String columns, String table, String filterColumn, String filterValue,
+                                          String cursor, int limit, RowMapper mapper, String errorMessage) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        String[] after = cursor != null && !cursor.isEmpty() ? decodeCursor(cursor) : null;
+        boolean filtered = filterColumn != null && filterValue != null && !filterValue.isEmpty();
+        String sql = historySql(columns, table, filtered ? filterColumn : null, after != null);
+
+        List<Map<String, Object>> items = new ArrayList<>();
+        String nextCursor = null;
+        try (ConnectionPool.PooledConnection conn = pool.reader()) {
+            PreparedStatement stmt = conn.prepareCached(sql);
+            int index = 1;
+            if (filtered) {
+                stmt.setString(index++, filterValue);
+            }
+            if (after != null) {
+                stmt.setString(index++, after[0]);
+                stmt.setLong(index++, Long.parseLong(after[1]));
+            }
+            stmt.setInt(index, pageSize + 1);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                String lastTimestamp = null;
+                long lastId = 0;
+                while (rs.next()) {
+                    if (items.size() == pageSize) {
+                        nextCursor = encodeCursor(lastTimestamp, lastId);
+                        break;
+                    }
+                    lastTimestamp = rs.getString("timestamp");
+                    lastId = rs.getLong("id");
+                    items.add(mapper.map(rs));
+                }
             }
         } catch (SQLException e) {
-            logError("Database", "Failed to get recent logs", e.getMessage());
+            logError("Database", errorMessage, e.getMessage());
         }
 
-        return logs;
+        Map<String, Object> page = new HashMap<>();
+        page.put("items", items);
+        page.put("nextCursor", nextCursor);
+        page.put("hasMore", nextCursor != null);
+        return page;
     }
 
-    public List<Map<String, Object>> getRecentFileOperations(int limit) {
-        List<Map<String, Object>> operations = new ArrayList<>();
-        String sql = """
-            SELECT operation_type, file_path, file_size, success, error_message, timestamp
-            FROM file_operations
-            ORDER BY timestamp DESC
-            LIMIT ?;
-            """;
+    /**
+     * Read matching rows in keyset chunks of STREAM_CHUNK_SIZE, resuming each
+     * chunk after the last (timestamp, id) seen. The reader connection is only
+     * held while a chunk is read and goes back to the pool before the rows are
+     * handed to the callback, so a slow consumer never pins a reader or an open
+     * WAL snapshot. Memory stays bounded by one chunk however many rows match.
+     */
+    private long streamRows(String columns, String table, String filterColumn, String filterValue, int limit,
+                            RowMapper mapper, RowCallback callback) throws SQLException, IOException {
+        boolean filtered = filterColumn != null && filterValue != null && !filterValue.isEmpty();
+        String firstSql = historySql(columns, table, filtered ? filterColumn : null, false);
+        String nextSql = historySql(columns, table, filtered ? filterColumn : null, true);
+
+        long count = 0;
+        String lastTimestamp = null;
+        long lastId = 0;
+        List<Map<String, Object>> chunk = new ArrayList<>();
+        while (limit <= 0 || count < limit) {
+            int chunkSize = limit > 0 ? (int) Math.min(STREAM_CHUNK_SIZE, limit - count) : STREAM_CHUNK_SIZE;
+            chunk.clear();
+            try (ConnectionPool.PooledConnection conn = pool.reader()) {
+                PreparedStatement stmt = conn.prepareCached(count == 0 ? firstSql : nextSql);
+                int index = 1;
+                if (filtered) {
+                    stmt.setString(index++, filterValue);
+                }
+                if (count > 0) {
+                    stmt.setString(index++, lastTimestamp);
+                    stmt.setLong(index++, lastId);
+                }
+                stmt.setInt(index, chunkSize);
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setInt(1, limit);
-            ResultSet rs = stmt.executeQuery();
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        lastTimestamp = rs.getString("timestamp");
+                        lastId = rs.getLong("id");
+                        chunk.add(mapper.map(rs));
+                    }
+                }
+            }
 
-            while (rs.next()) {
-                Map<String, Object> op = new HashMap<>();
-                op.put("operation_type", rs.getString("operation_type"));
-                op.put("file_path", rs.getString("file_path"));
-                op.put("file_size", rs.getLong("file_size"));
-                op.put("success", rs.getBoolean("success"));
-                op.put("error_message", rs.getString("error_message"));
-                op.put("timestamp", rs.getString("timestamp"));
-                operations.add(op);
+            for (Map<String, Object> row : chunk) {
+                callback.accept(row);
+            }
+            count += chunk.size();
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    private static String historySql(String columns, String table, String filterColumn, boolean after) {
+        StringBuilder sql = new StringBuilder("SELECT id, ").append(columns).append(" FROM ").append(table);
+        if (filterColumn != null || after) {
+            sql.append(" WHERE ");
+            if (filterColumn != null) {
+                sql.append(filterColumn).append(" = ?");
+            }
+            if (after) {
+                sql.append(filterColumn != null ? " AND " : "").append("(timestamp, id) < (?, ?)");
+            }
+        }
+        sql.append(" ORDER BY timestamp DESC, id DESC LIMIT ?");
+        return sql.toString();
+    }
+
+    /**
+     * Ranked full-text search over app_logs (message, details) or
+     * file_operations (file_path, error_message), best matches first.
+     * Plain queries match rows containing every word, the last one as a
+     * prefix; raw queries are passed through as FTS5 query syntax. Ranking
+     * scores every match, so very common terms are faster with newestFirst.
+     */
+    public Map<String, Object> search(String table, String query, boolean raw, boolean newestFirst,
+                                      String cursor, int limit) {
+        String columns;
+        RowMapper mapper;
+        if ("app_logs".equals(table)) {
+            columns = LOG_COLUMNS;
+            mapper = LOG_ROW;
+        } else if ("file_operations".equals(table)) {
+            columns = FILE_OPERATION_COLUMNS;
+            mapper = FILE_OPERATION_ROW;
+        } else {
+            throw new IllegalArgumentException("Search is not available for table: " + table);
+        }
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+
+        String match = raw ? query : plainFtsQuery(query);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        int offset = cursor != null && !cursor.isEmpty() ? decodeOffsetCursor(cursor) : 0;
+        String fts = table + "_fts";
+        String sql = "SELECT t.id, t." + columns.replace(", ", ", t.")
+            + ", snippet(" + fts + ", -1, '[', ']', '...', 16) AS snippet, " + fts + ".rank AS rank"
+            + " FROM " + fts + " JOIN " + table + " t ON t.id = " + fts + ".rowid"
+            + " WHERE " + fts + " MATCH ? ORDER BY " + (newestFirst ? fts + ".rowid DESC" : "rank")
+            + " LIMIT ? OFFSET ?";
+
+        List<Map<String, Object>> items = new ArrayList<>();
+        boolean hasMore = false;
+        try (ConnectionPool.PooledConnection conn = pool.reader()) {
+            PreparedStatement stmt = conn.prepareCached(sql);
+            stmt.setString(1, match);
+            stmt.setInt(2, pageSize + 1);
+            stmt.setInt(3, offset);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (items.size() == pageSize) {
+                        hasMore = true;
+                        break;
+                    }
+                    Map<String, Object> item = mapper.map(rs);
+                    item.put("id", rs.getLong("id"));
+                    item.put("snippet", rs.getString("snippet"));
+                    item.put("rank", rs.getDouble("rank"));
+                    items.add(item);
+                }
             }
         } catch (SQLException e) {
-            logError("Database", "Failed to get recent file operations", e.getMessage());
+            if (raw) {
+                // Malformed FTS5 syntax is a client error
+                throw new IllegalArgumentException("Invalid search query: " + e.getMessage());
+            }
+            logError("Database", "Failed to search " + table, e.getMessage());
+        }
+
+        String nextCursor = hasMore ? encodeOffsetCursor(offset + pageSize) : null;
+        Map<String, Object> page = new HashMap<>();
+        page.put("items", items);
+        page.put("nextCursor", nextCursor);
+        page.put("hasMore", hasMore);
+        return page;
+    }
+
+    // Quote every word so user input cannot be read as FTS5 operators
+    private static String plainFtsQuery(String query) {
+        String[] words = query.trim().split("\\s+");
+        StringBuilder match = new StringBuilder();
+        for (int i = 0; i < words.length; i++) {
+            if (i > 0) {
+                match.append(' ');
+            }
+            match.append('"').append(words[i].replace("\"", "\"\"")).append('"');
+        }
+        // Prefix match on the last word so partial input still finds results
+        return match.append('*').toString();
+    }
+
+    // Search results page by offset, since bm25 scores have no stable keyset
+    static String encodeOffsetCursor(int offset) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(("offset|" + offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static int decodeOffsetCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith("offset|")) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return Math.max(0, Integer.parseInt(raw.substring("offset|".length())));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
         }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> pageItems(Map<String, Object> page) {
+        return (List<Map<String, Object>>) page.get("items");
+    }
+
+    static String encodeCursor(String timestamp, long id) {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
 
-        return operations;
+    static String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            String id = raw.substring(separator + 1);
+            Long.parseLong(id);
+            return new String[] { raw.substring(0, separator), id };
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
     }
 
     // API methods for REST endpoints
     public Map<String, Object> getDatabaseStats() {
+        return getDatabaseStats(false);
+    }
+
+    /**
+     * Database statistics; row counts come from the trigger-maintained
+     * table_counts unless exact is set, which forces a COUNT(*) per table
+     */
+    public Map<String, Object> getDatabaseStats(boolean exact) {
         Map<String, Object> stats = new HashMap<>();
         try {
             // Count records in each table
-            String[] tables = {"app_logs", "user_data", "file_operations", "websocket_messages", "api_calls", "notifications"};
-            for (String table : tables) {
-                String sql = "SELECT COUNT(*) FROM " + table;
-                try (Statement stmt = connection.createStatement();
-                     ResultSet rs = stmt.executeQuery(sql)) {
-                    if (rs.next()) {
-                        stats.put(table + "_count", rs.getInt(1));
+            try (ConnectionPool.PooledConnection conn = pool.reader()) {
+                if (exact) {
+                    for (String table : COUNTED_TABLES) {
+                        try (ResultSet rs = conn.prepareCached("SELECT COUNT(*) FROM " + table).executeQuery()) {
+                            if (rs.next()) {
+                                stats.put(table + "_count", rs.getLong(1));
+                            }
+                        }
                     }
+                } else {
+                    stats.putAll(getCachedRowCounts(conn));
                 }
             }
+            stats.put("counts_exact", exact);
 
             // Database file size
             stats.put("database_path", getDatabasePath().toString());
             stats.put("database_size_kb", getDatabasePath().toFile().length() / 1024.0);
             stats.put("healthy", isHealthy());
+            stats.put("connection_pool", pool.getStats());
+            stats.put("statement_cache", pool.getStatementCacheStats());
+            if (auditWriter != null) {
+                stats.put("audit_writer", auditWriter.getStats());
+            }
+            if (userDataCache != null) {
+                stats.put("user_data_cache", Map.of(
+                    "entries", userDataCache.size(),
+                    "pending_writes", userDataCache.getPendingCount()
+                ));
+            }
 
         } catch (SQLException e) {
             logError("Database", "Failed to get database stats", e.getMessage());
@@ -416,45 +857,65 @@ public class DatabaseManager {
         return stats;
     }
 
-    public Map<String, Object> getAllUserData() {
-        Map<String, Object> userData = new HashMap<>();
-        String sql = "SELECT key, value, data_type, created_at, updated_at FROM user_data ORDER BY key";
+    private Map<String, Object> getCachedRowCounts(ConnectionPool.PooledConnection conn) throws SQLException {
+        Map<String, Object> counts = new HashMap<>();
+        try (ResultSet rs = conn.prepareCached("SELECT table_name, row_count FROM table_counts").executeQuery()) {
+            while (rs.next()) {
+                counts.put(rs.getString("table_name") + "_count", rs.getLong("row_count"));
+            }
+        }
+        return counts;
+    }
 
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+    /**
+     * Current row count of an audit table from table_counts
+     */
+    public long getRowCount(String table) {
+        try (ConnectionPool.PooledConnection conn = pool.reader()) {
+            PreparedStatement stmt = conn.prepareCached("SELECT row_count FROM table_counts WHERE table_name = ?");
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        } catch (SQLException e) {
+            logError("Database", "Failed to get row count: " + table, e.getMessage());
+            return 0;
+        }
+    }
 
-            while (rs.next()) {
-                String key = rs.getString("key");
-                String value = rs.getString("value");
-                String dataType = rs.getString("data_type");
+    public Map<String, Object> getAllUserData() {
+        Map<String, Object> userData = new HashMap<>();
+        for (Map.Entry<String, UserDataCache.Entry> e : userDataCache.snapshot().entrySet()) {
+            UserDataCache.Entry entry = e.getValue();
+            String value = entry.getValue();
+            String dataType = entry.getDataType();
 
-                // Convert value based on data type
-                Object convertedValue = switch (dataType) {
-                    case "integer" -> Integer.parseInt(value);
+            // Convert value based on data type
+            Object convertedValue;
+            try {
+                convertedValue = switch (dataType) {
+                    case "integer" -> Long.parseLong(value);
                     case "boolean" -> Boolean.parseBoolean(value);
                     case "float", "double" -> Double.parseDouble(value);
                     default -> value;
                 };
-
-                userData.put(key, Map.of(
-                    "value", convertedValue,
-                    "data_type", dataType,
-                    "created_at", rs.getString("created_at"),
-                    "updated_at", rs.getString("updated_at")
-                ));
+            } catch (NumberFormatException ex) {
+                convertedValue = value;
             }
-        } catch (SQLException e) {
-            logError("Database", "Failed to get all user data", e.getMessage());
+
+            userData.put(e.getKey(), Map.of(
+                "value", convertedValue,
+                "data_type", dataType,
+                "created_at", entry.getCreatedAt(),
+                "updated_at", entry.getUpdatedAt()
+            ));
         }
         return userData;
     }
 
     public boolean deleteUserData(String key) {
-        String sql = "DELETE FROM user_data WHERE key = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, key);
-            int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+        try {
+            return userDataCache.delete(key);
         } catch (SQLException e) {
             logError("Database", "Failed to delete user data: " + key, e.getMessage());
             return false;
@@ -466,79 +927,131 @@ public class DatabaseManager {
     }
 
     public List<Map<String, Object>> getNotifications(int limit) {
-        List<Map<String, Object>> notifications = new ArrayList<>();
-        String sql = """
-            SELECT type, message, success, timestamp
-            FROM notifications
-            ORDER BY timestamp DESC
-            LIMIT ?;
-            """;
+        return pageItems(getNotificationsPage(null, limit));
+    }
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setInt(1, limit);
-            ResultSet rs = stmt.executeQuery();
+    public List<Map<String, Object>> getApiCalls(int limit) {
+        return pageItems(getApiCallsPage(null, null, limit));
+    }
 
-            while (rs.next()) {
-                Map<String, Object> notification = new HashMap<>();
-                notification.put("type", rs.getString("type"));
-                notification.put("message", rs.getString("message"));
-                notification.put("success", rs.getBoolean("success"));
-                notification.put("timestamp", rs.getString("timestamp"));
-                notifications.add(notification);
-            }
-        } catch (SQLException e) {
-            logError("Database", "Failed to get notifications", e.getMessage());
+    // Utility methods
+    private void submitAudit(String sql, Object... params) {
+        if (auditWriter == null) {
+            System.err.println("Audit writer not available, dropping entry");
+            return;
         }
+        auditWriter.submit(sql, params);
+    }
 
-        return notifications;
+    private void executeUpdate(String sql) throws SQLException {
+        try (ConnectionPool.PooledConnection conn = pool.writer();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+        }
     }
 
-    public List<Map<String, Object>> getApiCalls(int limit) {
-        List<Map<String, Object>> apiCalls = new ArrayList<>();
-        String sql = """
-            SELECT method, endpoint, status_code, response_time, success, timestamp
-            FROM api_calls
-            ORDER BY timestamp DESC
-            LIMIT ?;
-            """;
+    // Retention methods
+    public Map<String, Object> runRetention() throws Exception {
+        return retentionManager.runNow();
+    }
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setInt(1, limit);
-            ResultSet rs = stmt.executeQuery();
+    public Map<String, Object> getRetentionStatus() {
+        return retentionManager.getLastRun();
+    }
 
-            while (rs.next()) {
-                Map<String, Object> apiCall = new HashMap<>();
-                apiCall.put("method", rs.getString("method"));
-                apiCall.put("endpoint", rs.getString("endpoint"));
-                apiCall.put("status_code", rs.getInt("status_code"));
-                apiCall.put("response_time", rs.getLong("response_time"));
-                apiCall.put("success", rs.getBoolean("success"));
-                apiCall.put("timestamp", rs.getString("timestamp"));
-                apiCalls.add(apiCall);
-            }
+    public boolean convertToIncrementalVacuum() throws SQLException {
+        boolean converted = retentionManager.convertToIncrementalVacuum();
+        if (converted) {
+            logInfo("Retention", "Converted database to incremental auto-vacuum");
+        }
+        return converted;
+    }
+
+    public List<Map<String, Object>> getHourlyRollup(String table, int limit) {
+        try {
+            return retentionManager.getHourlyRollup(table, limit);
         } catch (SQLException e) {
-            logError("Database", "Failed to get API calls", e.getMessage());
+            logError("Database", "Failed to get hourly roll-up: " + table, e.getMessage());
+            return new ArrayList<>();
         }
+    }
 
-        return apiCalls;
+    // Export/import methods
+    public Path getExportDirectory() {
+        return Paths.get(System.getProperty("user.home"), APP_DATA_DIR, "exports");
     }
 
-    // Utility methods
-    private void executeUpdate(String sql) throws SQLException {
-        try (Statement stmt = connection.createStatement()) {
-            stmt.executeUpdate(sql);
+    /**
+     * Export audit tables, one file per table, into the directory.
+     * Progress covers all tables, 0-100.
+     */
+    public Map<String, Object> exportAuditTables(List<String> tables, AuditArchive.Format format, Path directory,
+                                                 Consumer<Double> progress) throws SQLException, IOException {
+        tables.forEach(AuditArchive::requireAuditTable);
+
+        Map<String, Object> files = new HashMap<>();
+        Map<String, Object> rows = new HashMap<>();
+        long totalRows = 0;
+        for (int i = 0; i < tables.size(); i++) {
+            String table = tables.get(i);
+            Path target = directory.resolve(table + format.extension());
+            int done = i;
+            long count = auditArchive.exportTable(table, format, target,
+                percent -> progress.accept((done * 100.0 + percent) / tables.size()));
+            files.put(table, target.toString());
+            rows.put(table, count);
+            totalRows += count;
         }
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("directory", directory.toString());
+        summary.put("format", format.name().toLowerCase());
+        summary.put("files", files);
+        summary.put("rows", rows);
+        summary.put("total_rows", totalRows);
+        logInfo("Database", "Exported " + totalRows + " audit rows to " + directory);
+        return summary;
+    }
+
+    public Map<String, Object> importAuditFile(Path source, Consumer<Double> progress) throws SQLException, IOException {
+        Map<String, Object> summary = auditArchive.importFile(source, progress);
+        logInfo("Database", "Imported " + summary.get("rows") + " rows into " + summary.get("table") + " from " + source);
+        return summary;
     }
 
     public void close() {
-        if (connection != null) {
-            try {
-                connection.close();
-                System.out.println("Database connection closed");
-            } catch (SQLException e) {
-                System.err.println("Error closing database connection: " + e.getMessage());
-            }
+        if (retentionManager != null) {
+            retentionManager.shutdown();
+        }
+        // Persist pending counter increments
+        if (userDataCache != null) {
+            userDataCache.shutdown();
+        }
+        // Flush pending audit entries before the connections go away
+        if (auditWriter != null) {
+            auditWriter.shutdown(AUDIT_FLUSH_TIMEOUT_MS);
         }
+        if (pool != null) {
+            pool.close();
+            System.out.println("Database connection closed");
+        }
+    }
+
+    // Writer connection timings, or null if the database failed to open
+    public LatencyHistogram getWriterWaitLatency() {
+        return pool != null ? pool.getWriterWaitLatency() : null;
+    }
+
+    public LatencyHistogram getWriterHoldLatency() {
+        return pool != null ? pool.getWriterHoldLatency() : null;
+    }
+
+    public int getWriterWaiting() {
+        return pool != null ? pool.getWriterWaiting() : 0;
+    }
+
+    public Map<String, Object> getAuditWriterStats() {
+        return auditWriter != null ? auditWriter.getStats() : Map.of();
     }
 
     // Get database file path
@@ -549,13 +1062,27 @@ public class DatabaseManager {
     // Check if database is healthy
     public boolean isHealthy() {
         try {
-            String sql = "SELECT COUNT(*) FROM app_logs";
-            try (Statement stmt = connection.createStatement();
-                 ResultSet rs = stmt.executeQuery(sql)) {
+            String sql = "SELECT 1";
+            try (ConnectionPool.PooledConnection conn = pool.reader();
+                 ResultSet rs = conn.prepareCached(sql).executeQuery()) {
                 return rs.next();
             }
         } catch (SQLException e) {
             return false;
         }
     }
+
+    // Maps the current result set row to a response object
+    @FunctionalInterface
+    private interface RowMapper {
+        Map<String, Object> map(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Receives streamed rows one at a time; the map is not retained by the caller
+     */
+    @FunctionalInterface
+    public interface RowCallback {
+        void accept(Map<String, Object> row) throws IOException;
+    }
 }
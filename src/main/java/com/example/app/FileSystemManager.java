@@ -27,6 +27,12 @@ public class FileSystemManager {
         return instance;
     }
 
+    // Record the operation in history and tell subscribers of the "files" topic
+    private void recordOperation(String operationType, String filePath, long fileSize, boolean success, String errorMessage) {
+        dbManager.logFileOperation(operationType, filePath, fileSize, success, errorMessage);
+        WebSocketHandler.publishFileOperation(operationType, filePath, fileSize, success, errorMessage);
+    }
+
     /**
      * File operation result
      */
@@ -34,7 +40,8 @@ public class FileSystemManager {
         private final boolean success;
         private final String message;
         private final long fileSize;
-        private final Exception exception;
+        // Kept for callers only; not part of the serialized result
+        private final transient Exception exception;
 
         public FileOperationResult(boolean success, String message, long fileSize, Exception exception) {
             this.success = success;
@@ -126,11 +133,11 @@ public class FileSystemManager {
             fileSize = Files.size(path);
             String content = Files.readString(path);
 
-            dbManager.logFileOperation("read", filePath, fileSize, true, null);
+            recordOperation("read", filePath, fileSize, true, null);
             return new FileOperationResult(true, content, fileSize, null);
 
         } catch (IOException e) {
-            dbManager.logFileOperation("read", filePath, fileSize, false, e.getMessage());
+            recordOperation("read", filePath, fileSize, false, e.getMessage());
             notificationManager.showFileOperationNotification("read", filePath, false);
             return new FileOperationResult(false, "Failed to read file: " + e.getMessage(), fileSize, e);
         }
@@ -150,12 +157,12 @@ public class FileSystemManager {
             Files.writeString(path, content != null ? content : "");
             fileSize = Files.size(path);
 
-            dbManager.logFileOperation("write", filePath, fileSize, true, null);
+            recordOperation("write", filePath, fileSize, true, null);
             notificationManager.showFileOperationNotification("write", filePath, true);
             return new FileOperationResult(true, "File written successfully", fileSize, null);
 
         } catch (IOException e) {
-            dbManager.logFileOperation("write", filePath, fileSize, false, e.getMessage());
+            recordOperation("write", filePath, fileSize, false, e.getMessage());
             notificationManager.showFileOperationNotification("write", filePath, false);
             return new FileOperationResult(false, "Failed to write file: " + e.getMessage(), fileSize, e);
         }
@@ -178,11 +185,11 @@ public class FileSystemManager {
                             StandardOpenOption.APPEND);
 
             long newSize = Files.size(path);
-            dbManager.logFileOperation("append", filePath, newSize - originalSize, true, null);
+            recordOperation("append", filePath, newSize - originalSize, true, null);
             return new FileOperationResult(true, "Content appended successfully", newSize, null);
 
         } catch (IOException e) {
-            dbManager.logFileOperation("append", filePath, originalSize, false, e.getMessage());
+            recordOperation("append", filePath, originalSize, false, e.getMessage());
             return new FileOperationResult(false, "Failed to append to file: " + e.getMessage(), originalSize, e);
         }
     }
@@ -222,12 +229,12 @@ public class FileSystemManager {
                 Files.delete(filePath);
             }
 
-            dbManager.logFileOperation("delete", path, fileSize, true, null);
+            recordOperation("delete", path, fileSize, true, null);
             notificationManager.showFileOperationNotification("delete", path, true);
             return new FileOperationResult(true, "Deleted successfully", fileSize, null);
 
         } catch (IOException e) {
-            dbManager.logFileOperation("delete", path, fileSize, false, e.getMessage());
+            recordOperation("delete", path, fileSize, false, e.getMessage());
             notificationManager.showFileOperationNotification("delete", path, false);
             return new FileOperationResult(false, "Failed to delete: " + e.getMessage(), fileSize, e);
         }
@@ -245,11 +252,11 @@ public class FileSystemManager {
             }
 
             Files.createDirectories(path);
-            dbManager.logFileOperation("create_dir", dirPath, 0, true, null);
+            recordOperation("create_dir", dirPath, 0, true, null);
             return new FileOperationResult(true, "Directory created successfully", 0, null);
 
         } catch (IOException e) {
-            dbManager.logFileOperation("create_dir", dirPath, 0, false, e.getMessage());
+            recordOperation("create_dir", dirPath, 0, false, e.getMessage());
             return new FileOperationResult(false, "Failed to create directory: " + e.getMessage(), 0, e);
         }
     }
@@ -346,11 +353,11 @@ public class FileSystemManager {
                 Files.copy(source, dest, StandardCopyOption.REPLACE_EXISTING);
             }
 
-            dbManager.logFileOperation("copy", sourcePath + " -> " + destPath, totalSize, true, null);
+            recordOperation("copy", sourcePath + " -> " + destPath, totalSize, true, null);
             return new FileOperationResult(true, "Copied successfully", totalSize, null);
 
         } catch (IOException e) {
-            dbManager.logFileOperation("copy", sourcePath + " -> " + destPath, totalSize, false, e.getMessage());
+            recordOperation("copy", sourcePath + " -> " + destPath, totalSize, false, e.getMessage());
             return new FileOperationResult(false, "Failed to copy: " + e.getMessage(), totalSize, e);
         }
     }
@@ -402,11 +409,11 @@ public class FileSystemManager {
 
             Files.move(source, dest, StandardCopyOption.REPLACE_EXISTING);
 
-            dbManager.logFileOperation("move", sourcePath + " -> " + destPath, fileSize, true, null);
+            recordOperation("move", sourcePath + " -> " + destPath, fileSize, true, null);
             return new FileOperationResult(true, "Moved successfully", fileSize, null);
 
         } catch (IOException e) {
-            dbManager.logFileOperation("move", sourcePath + " -> " + destPath, fileSize, false, e.getMessage());
+            recordOperation("move", sourcePath + " -> " + destPath, fileSize, false, e.getMessage());
             return new FileOperationResult(false, "Failed to move: " + e.getMessage(), fileSize, e);
         }
     }
@@ -0,0 +1,155 @@
+package com.example.app;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-precision latency histogram in the style of HdrHistogram
+ * Values below 256 are counted exactly; larger values fall into buckets
+ * 1/128 of a power of two wide, so every reported value is within 0.8%
+ * of a recorded one. Recording is lock-free and allocation-free.
+ * An optional highest trackable value bounds the memory used; larger
+ * values share the top bucket, while the maximum stays exact.
+ * The percentile distribution is written in HdrHistogram's .hgrm text
+ * format, so reports can be plotted and compared with its tools.
+ */
+public class LatencyHistogram {
+    private static final int EXACT_LIMIT = 256;
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int FIRST_EXPONENT = 8;
+    private static final int TICKS_PER_HALF_DISTANCE = 5;
+
+    private final int bucketCount;
+    private final AtomicLongArray counts;
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong();
+
+    public LatencyHistogram() {
+        this(Long.MAX_VALUE);
+    }
+
+    public LatencyHistogram(long highestTrackableValue) {
+        int topExponent = 63 - Long.numberOfLeadingZeros(Math.max(EXACT_LIMIT, highestTrackableValue));
+        this.bucketCount = EXACT_LIMIT + (topExponent - FIRST_EXPONENT + 1) * SUB_BUCKETS;
+        this.counts = new AtomicLongArray(bucketCount);
+    }
+
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(indexOf(v));
+        total.incrementAndGet();
+        sum.addAndGet(v);
+        min.accumulateAndGet(v, Math::min);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    private int indexOf(long value) {
+        if (value < EXACT_LIMIT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return Math.min(EXACT_LIMIT + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + subBucket, bucketCount - 1);
+    }
+
+    // Largest value that lands in the same bucket
+    private static long highestEquivalent(int index) {
+        if (index < EXACT_LIMIT) {
+            return index;
+        }
+        int exponent = (index - EXACT_LIMIT) / SUB_BUCKETS + FIRST_EXPONENT;
+        long subBucket = (index - EXACT_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    public long getTotalCount() {
+        return total.get();
+    }
+
+    public long getMin() {
+        return total.get() == 0 ? 0 : min.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = total.get();
+        return count == 0 ? 0 : (double) sum.get() / count;
+    }
+
+    /**
+     * Value at or below which the given percentage of recorded values fall
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = total.get();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                // The top bucket also holds everything above the trackable range
+                return i == bucketCount - 1 ? max.get() : Math.min(highestEquivalent(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    private long getCountAtOrBelow(long value) {
+        long seen = 0;
+        int last = indexOf(value);
+        for (int i = 0; i <= last; i++) {
+            seen += counts.get(i);
+        }
+        return seen;
+    }
+
+    /**
+     * Write the distribution in HdrHistogram's percentile format
+     *
+     * @param scale divisor applied to every value, e.g. 1000.0 to print microseconds as milliseconds
+     */
+    public void outputPercentileDistribution(PrintStream out, double scale) {
+        long count = total.get();
+        out.println(String.format(Locale.ROOT, "%12s %14s %10s %14s", "Value", "Percentile", "TotalCount", "1/(1-Percentile)"));
+        out.println();
+        if (count > 0) {
+            double percentile = 0;
+            while (true) {
+                long value = getValueAtPercentile(percentile);
+                long countAtValue = getCountAtOrBelow(value);
+                double fraction = (double) countAtValue / count;
+                if (countAtValue >= count) {
+                    out.println(String.format(Locale.ROOT, "%12.3f %2.12f %10d", max.get() / scale, 1.0, count));
+                    break;
+                }
+                out.println(String.format(Locale.ROOT, "%12.3f %2.12f %10d %14.2f", value / scale, fraction, countAtValue, 1 / (1 - fraction)));
+                // Halve the distance to 100% every TICKS_PER_HALF_DISTANCE lines, like HdrHistogram
+                long ticks = TICKS_PER_HALF_DISTANCE * (long) Math.pow(2, Math.floor(Math.log(100 / (100 - percentile)) / Math.log(2)) + 1);
+                percentile += 100.0 / ticks;
+            }
+        }
+        double mean = getMean();
+        double variance = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            long countInBucket = counts.get(i);
+            if (countInBucket > 0) {
+                double deviation = Math.min(highestEquivalent(i), max.get()) - mean;
+                variance += deviation * deviation * countInBucket;
+            }
+        }
+        double stdDev = count > 0 ? Math.sqrt(variance / count) : 0;
+        out.println(String.format(Locale.ROOT, "#[Mean    = %12.3f, StdDeviation   = %12.3f]", mean / scale, stdDev / scale));
+        out.println(String.format(Locale.ROOT, "#[Max     = %12.3f, Total count    = %12d]", max.get() / scale, count));
+        out.println(String.format(Locale.ROOT, "#[Buckets = %12d, SubBuckets     = %12d]", (bucketCount - EXACT_LIMIT) / SUB_BUCKETS + 1, SUB_BUCKETS));
+    }
+}
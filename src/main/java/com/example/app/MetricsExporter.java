@@ -0,0 +1,255 @@
+package com.example.app;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.RuntimeMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prometheus scrape output in OpenMetrics text format, served at /metrics
+ * The components only update counters and lock-free histograms as they
+ * work; everything here is read and formatted when a scrape arrives, so
+ * the exporter adds nothing to request, message or task handling.
+ * Latency summaries are cumulative since startup, like the counters.
+ */
+public class MetricsExporter {
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final ApiMetrics apiMetrics;
+
+    public MetricsExporter(ApiMetrics apiMetrics) {
+        this.apiMetrics = apiMetrics;
+    }
+
+    public String scrape() {
+        Text out = new Text();
+        writeHttp(out);
+        writeWebSocket(out);
+        writeTasks(out);
+        writeDatabase(out);
+        writeJvm(out);
+        out.eof();
+        return out.toString();
+    }
+
+    void writeHttp(Text out) {
+        List<ApiMetrics.RouteStats> routes = apiMetrics.getRoutes();
+        routes.sort(Comparator.comparing(ApiMetrics.RouteStats::getRoute).thenComparing(ApiMetrics.RouteStats::getMethod));
+
+        out.family("http_server_request_duration_seconds", "summary", "seconds", "HTTP request latency by route");
+        for (ApiMetrics.RouteStats route : routes) {
+            LatencyHistogram latency = route.getLatency();
+            for (double quantile : QUANTILES) {
+                out.sample("http_server_request_duration_seconds", latency.getValueAtPercentile(quantile * 100) / NANOS_PER_SECOND,
+                    "method", route.getMethod(), "route", route.getRoute(), "quantile", Double.toString(quantile));
+            }
+            out.sample("http_server_request_duration_seconds_sum", route.getTotalNanos() / NANOS_PER_SECOND,
+                "method", route.getMethod(), "route", route.getRoute());
+            out.sample("http_server_request_duration_seconds_count", route.getCount(),
+                "method", route.getMethod(), "route", route.getRoute());
+        }
+
+        out.family("http_server_request_duration_max_seconds", "gauge", "seconds", "Slowest HTTP request by route");
+        for (ApiMetrics.RouteStats route : routes) {
+            out.sample("http_server_request_duration_max_seconds", route.getLatency().getMax() / NANOS_PER_SECOND,
+                "method", route.getMethod(), "route", route.getRoute());
+        }
+
+        out.family("http_server_requests", "counter", null, "HTTP responses by route and status class");
+        for (ApiMetrics.RouteStats route : routes) {
+            for (int statusClass = 1; statusClass <= 5; statusClass++) {
+                long count = route.getStatusClassCount(statusClass);
+                if (count > 0) {
+                    out.sample("http_server_requests_total", count,
+                        "method", route.getMethod(), "route", route.getRoute(), "status", statusClass + "xx");
+                }
+            }
+        }
+    }
+
+    private void writeWebSocket(Text out) {
+        out.gauge("websocket_sessions", "Connected WebSocket sessions", WebSocketHandler.getConnectionCount());
+        out.gauge("websocket_parked_sessions", "Closed sessions kept for resumption", WebSocketHandler.getParkedSessionCount());
+        out.gauge("websocket_send_queue_messages", "Messages waiting in all outbound queues", WebSocketHandler.getQueuedMessageCount());
+        out.gauge("websocket_send_queue_depth_max", "Deepest outbound queue of any session", WebSocketHandler.getMaxQueueDepth());
+        out.counter("websocket_messages_sent", "Messages written to clients", WsSession.getTotalSent());
+        out.counter("websocket_messages_received", "Messages received from clients", WsSession.getTotalReceived());
+        out.counter("websocket_messages_dropped", "Messages dropped from full outbound queues", WsSession.getTotalDropped());
+        out.counter("websocket_connections_rejected", "Connections refused at the connection limit", WebSocketHandler.getRejectedConnectionCount());
+        out.counter("websocket_sessions_evicted", "Sessions closed for missing heartbeats", WebSocketHandler.getEvictedSessionCount());
+    }
+
+    private void writeTasks(Text out) {
+        TaskManager tasks = TaskManager.getInstance();
+        out.gauge("task_pool_threads", "Threads in the task pool", tasks.getPoolSize());
+        out.gauge("task_pool_active_threads", "Task pool threads running a task", tasks.getActivePoolThreads());
+        out.gauge("task_pool_largest_threads", "Most threads the task pool has had at once", tasks.getLargestPoolSize());
+
+        out.family("tasks", "gauge", null, "Tasks waiting or running");
+        out.sample("tasks", tasks.getTaskCount(TaskManager.TaskStatus.PENDING), "state", "pending");
+        out.sample("tasks", tasks.getTaskCount(TaskManager.TaskStatus.RUNNING), "state", "running");
+
+        out.counter("tasks_submitted", "Tasks submitted", tasks.getSubmittedTaskCount());
+        out.family("tasks_finished", "counter", null, "Tasks finished by outcome");
+        for (TaskManager.TaskStatus status : List.of(TaskManager.TaskStatus.COMPLETED, TaskManager.TaskStatus.FAILED,
+                TaskManager.TaskStatus.CANCELLED)) {
+            out.sample("tasks_finished_total", tasks.getFinishedTaskCount(status), "outcome", status.name().toLowerCase());
+        }
+    }
+
+    private void writeDatabase(Text out) {
+        DatabaseManager database = DatabaseManager.getInstance();
+        writeSummary(out, "sqlite_writer_hold_seconds", "Time each write kept the SQLite writer connection",
+            database.getWriterHoldLatency());
+        writeSummary(out, "sqlite_writer_wait_seconds", "Time spent waiting for the SQLite writer connection",
+            database.getWriterWaitLatency());
+        out.gauge("sqlite_writer_waiting", "Threads waiting for the SQLite writer connection", database.getWriterWaiting());
+
+        Map<String, Object> audit = database.getAuditWriterStats();
+        if (!audit.isEmpty()) {
+            out.gauge("audit_queue_depth", "Audit inserts waiting to be written", number(audit.get("queue_depth")));
+            out.counter("audit_batches", "Audit batches committed", number(audit.get("batches")));
+            out.family("audit_entries", "counter", null, "Audit inserts by result");
+            for (String result : List.of("written", "dropped", "failed")) {
+                out.sample("audit_entries_total", number(audit.get(result)), "result", result);
+            }
+        }
+    }
+
+    static void writeSummary(Text out, String name, String help, LatencyHistogram latency) {
+        if (latency == null) {
+            return;
+        }
+        out.family(name, "summary", "seconds", help);
+        for (double quantile : QUANTILES) {
+            out.sample(name, latency.getValueAtPercentile(quantile * 100) / NANOS_PER_SECOND, "quantile", Double.toString(quantile));
+        }
+        out.sample(name + "_sum", latency.getMean() * latency.getTotalCount() / NANOS_PER_SECOND);
+        out.sample(name + "_count", latency.getTotalCount());
+    }
+
+    private static void writeJvm(Text out) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+        MemoryUsage nonHeap = memory.getNonHeapMemoryUsage();
+        out.family("jvm_memory_used_bytes", "gauge", "bytes", "Used JVM memory by area");
+        out.sample("jvm_memory_used_bytes", heap.getUsed(), "area", "heap");
+        out.sample("jvm_memory_used_bytes", nonHeap.getUsed(), "area", "nonheap");
+        out.family("jvm_memory_committed_bytes", "gauge", "bytes", "Committed JVM memory by area");
+        out.sample("jvm_memory_committed_bytes", heap.getCommitted(), "area", "heap");
+        out.sample("jvm_memory_committed_bytes", nonHeap.getCommitted(), "area", "nonheap");
+        out.family("jvm_memory_max_bytes", "gauge", "bytes", "Maximum JVM memory by area, -1 if unbounded");
+        out.sample("jvm_memory_max_bytes", heap.getMax(), "area", "heap");
+        out.sample("jvm_memory_max_bytes", nonHeap.getMax(), "area", "nonheap");
+
+        List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+        out.family("jvm_memory_pool_used_bytes", "gauge", "bytes", "Used memory by pool");
+        for (MemoryPoolMXBean pool : pools) {
+            out.sample("jvm_memory_pool_used_bytes", pool.getUsage().getUsed(), "pool", pool.getName());
+        }
+
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        out.family("jvm_gc_collections", "counter", null, "Garbage collections by collector");
+        for (GarbageCollectorMXBean gc : collectors) {
+            out.sample("jvm_gc_collections_total", Math.max(0, gc.getCollectionCount()), "gc", gc.getName());
+        }
+        out.family("jvm_gc_collection_seconds", "counter", "seconds", "Time spent in garbage collection by collector");
+        for (GarbageCollectorMXBean gc : collectors) {
+            out.sample("jvm_gc_collection_seconds_total", Math.max(0, gc.getCollectionTime()) / 1000.0, "gc", gc.getName());
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        out.gauge("jvm_threads_current", "Live platform threads", threads.getThreadCount());
+        out.gauge("jvm_threads_daemon", "Live daemon threads", threads.getDaemonThreadCount());
+        out.gauge("jvm_threads_peak", "Most live threads since startup", threads.getPeakThreadCount());
+
+        RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+        out.family("process_start_time_seconds", "gauge", "seconds", "Start time of the process since the Unix epoch");
+        out.sample("process_start_time_seconds", runtime.getStartTime() / 1000.0);
+        out.family("process_uptime_seconds", "gauge", "seconds", "Time since the process started");
+        out.sample("process_uptime_seconds", runtime.getUptime() / 1000.0);
+    }
+
+    private static double number(Object value) {
+        return value instanceof Number n ? n.doubleValue() : 0;
+    }
+
+    /**
+     * OpenMetrics text writer; families must be written one at a time
+     */
+    static final class Text {
+        private final StringBuilder sb = new StringBuilder(16 * 1024);
+
+        void family(String name, String type, String unit, String help) {
+            sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            if (unit != null) {
+                sb.append("# UNIT ").append(name).append(' ').append(unit).append('\n');
+            }
+            sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        }
+
+        void gauge(String name, String help, double value) {
+            family(name, "gauge", null, help);
+            sample(name, value);
+        }
+
+        void counter(String name, String help, double value) {
+            family(name, "counter", null, help);
+            sample(name + "_total", value);
+        }
+
+        // Labels are given as name, value pairs
+        void sample(String name, double value, String... labels) {
+            sb.append(name);
+            if (labels.length > 0) {
+                sb.append('{');
+                for (int i = 0; i < labels.length; i += 2) {
+                    if (i > 0) {
+                        sb.append(',');
+                    }
+                    sb.append(labels[i]).append("=\"");
+                    escape(labels[i + 1]);
+                    sb.append('"');
+                }
+                sb.append('}');
+            }
+            sb.append(' ');
+            if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+                sb.append((long) value);
+            } else {
+                sb.append(value);
+            }
+            sb.append('\n');
+        }
+
+        private void escape(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '\\' -> sb.append("\\\\");
+                    case '"' -> sb.append("\\\"");
+                    case '\n' -> sb.append("\\n");
+                    default -> sb.append(c);
+                }
+            }
+        }
+
+        void eof() {
+            sb.append("# EOF\n");
+        }
+
+        @Override
+        public String toString() {
+            return sb.toString();
+        }
+    }
+}
@@ -61,14 +61,20 @@ public class NotificationManager {
             initialized = true;
 
             // Log initialization
-            DatabaseManager.getInstance().logNotification("system", "Tray initialized", true);
+            recordNotification("system", "Tray initialized", true);
 
         } catch (AWTException e) {
             System.err.println("Failed to initialize system tray: " + e.getMessage());
-            DatabaseManager.getInstance().logNotification("system", "Tray initialization failed: " + e.getMessage(), false);
+            recordNotification("system", "Tray initialization failed: " + e.getMessage(), false);
         }
     }
 
+    // Record the notification in history and tell subscribers of the "notifications" topic
+    private void recordNotification(String type, String message, boolean success) {
+        DatabaseManager.getInstance().logNotification(type, message, success);
+        WebSocketHandler.publishNotification(type, message, success);
+    }
+
     /**
      * Show a notification
      */
@@ -82,17 +88,17 @@ public class NotificationManager {
     public boolean showNotification(String title, String message, MessageType type) {
         if (!initialized || trayIcon == null) {
             System.err.println("Tray not initialized, cannot show notification");
-            DatabaseManager.getInstance().logNotification("notification", title + ": " + message, false);
+            recordNotification("notification", title + ": " + message, false);
             return false;
         }
 
         try {
             trayIcon.displayMessage(title, message, type);
-            DatabaseManager.getInstance().logNotification("notification", title + ": " + message, true);
+            recordNotification("notification", title + ": " + message, true);
             return true;
         } catch (Exception e) {
             System.err.println("Failed to show notification: " + e.getMessage());
-            DatabaseManager.getInstance().logNotification("notification", title + ": " + message + " (error: " + e.getMessage() + ")", false);
+            recordNotification("notification", title + ": " + message + " (error: " + e.getMessage() + ")", false);
             return false;
         }
     }
@@ -186,7 +192,7 @@ public class NotificationManager {
         if (initialized && systemTray != null && trayIcon != null) {
             systemTray.remove(trayIcon);
             initialized = false;
-            DatabaseManager.getInstance().logNotification("system", "Tray cleanup completed", true);
+            recordNotification("system", "Tray cleanup completed", true);
         }
     }
 
@@ -228,11 +234,11 @@ public class NotificationManager {
                 }
             }, 5000); // Remove after 5 seconds
 
-            DatabaseManager.getInstance().logNotification("notification", title + ": " + message + " (custom icon)", true);
+            recordNotification("notification", title + ": " + message + " (custom icon)", true);
             return true;
         } catch (Exception e) {
             System.err.println("Failed to show notification with custom icon: " + e.getMessage());
-            DatabaseManager.getInstance().logNotification("notification", title + ": " + message + " (custom icon error: " + e.getMessage() + ")", false);
+            recordNotification("notification", title + ": " + message + " (custom icon error: " + e.getMessage() + ")", false);
             return false;
         }
     }
@@ -0,0 +1,122 @@
+package com.example.app;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recent topic messages kept for clients that reconnect
+ * Every published message gets a sequence number. The last few messages of
+ * each topic are kept in a bounded ring so a client that comes back with the
+ * last sequence number it saw gets only what it missed. Messages with a
+ * coalesce key replace the older one with the same key, so a task's ring
+ * holds just its latest state.
+ */
+public class ReplayBuffer {
+    // Oldest topics are forgotten first; task topics come and go
+    private static final int MAX_TOPICS = 1000;
+
+    private final int capacity;
+    private long seq = 0;
+    // Highest sequence number lost together with a forgotten topic
+    private long forgottenUpTo = 0;
+
+    private final Map<String, Ring> rings = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Ring> eldest) {
+            if (size() <= MAX_TOPICS) {
+                return false;
+            }
+            forgottenUpTo = Math.max(forgottenUpTo, eldest.getValue().lastSeq);
+            return true;
+        }
+    };
+
+    public ReplayBuffer(int capacity) {
+        this.capacity = Math.max(0, capacity);
+    }
+
+    public synchronized long nextSeq() {
+        return ++seq;
+    }
+
+    public synchronized long currentSeq() {
+        return seq;
+    }
+
+    public synchronized void record(String topic, long seq, Object message, String coalesceKey) {
+        if (capacity == 0) {
+            return;
+        }
+        Ring ring = rings.computeIfAbsent(topic, t -> new Ring());
+        if (coalesceKey != null) {
+            // Superseded, not lost
+            ring.entries.removeIf(entry -> coalesceKey.equals(entry.key));
+        }
+        if (ring.entries.size() >= capacity) {
+            ring.lostUpTo = ring.entries.pollFirst().seq;
+        }
+        ring.entries.addLast(new Entry(seq, message, coalesceKey));
+        ring.lastSeq = seq;
+    }
+
+    /**
+     * Messages after lastSeq on topics matched by the subscriptions, oldest first
+     *
+     * @return null if some of them are no longer kept
+     */
+    public synchronized List<Object> since(long lastSeq, Collection<String> subscriptions) {
+        if (capacity == 0 || lastSeq < 0 || forgottenUpTo > lastSeq) {
+            return lastSeq >= seq ? new ArrayList<>() : null;
+        }
+        List<Entry> missed = new ArrayList<>();
+        for (Map.Entry<String, Ring> topic : rings.entrySet()) {
+            Ring ring = topic.getValue();
+            if (ring.lastSeq <= lastSeq || !matchesAny(subscriptions, topic.getKey())) {
+                continue;
+            }
+            if (ring.lostUpTo > lastSeq) {
+                return null;
+            }
+            for (Entry entry : ring.entries) {
+                if (entry.seq > lastSeq) {
+                    missed.add(entry);
+                }
+            }
+        }
+        missed.sort(Comparator.comparingLong(entry -> entry.seq));
+
+        List<Object> messages = new ArrayList<>(missed.size());
+        for (Entry entry : missed) {
+            messages.add(entry.message);
+        }
+        return messages;
+    }
+
+    private static boolean matchesAny(Collection<String> subscriptions, String topic) {
+        for (String subscription : subscriptions) {
+            if (TopicIndex.matches(subscription, topic)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized int getTopicCount() {
+        return rings.size();
+    }
+
+    private static class Ring {
+        private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+        private long lastSeq = 0;
+        // Highest sequence number pushed out by newer messages
+        private long lostUpTo = 0;
+    }
+
+    private record Entry(long seq, Object message, String key) {
+    }
+}
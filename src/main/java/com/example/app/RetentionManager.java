@@ -0,0 +1,322 @@
+package com.example.app;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retention and compaction for the audit tables
+ * Periodically rolls old rows up into hourly aggregate tables and deletes
+ * them in small batches so the writer lock is never held for long
+ */
+public class RetentionManager {
+    private static final long BATCH_PAUSE_MS = 20;
+    private static final int INCREMENTAL_AUTO_VACUUM = 2;
+
+    // Audit tables with their default limits and hourly roll-up statement.
+    // The roll-up receives the id subquery of the batch about to be deleted.
+    private static final List<RetainedTable> TABLES = List.of(
+        new RetainedTable("app_logs", 30, 200000, """
+            INSERT INTO app_logs_hourly (hour, level, category, count)
+            SELECT strftime('%%Y-%%m-%%d %%H:00:00', timestamp), level, COALESCE(category, ''), COUNT(*)
+            FROM app_logs WHERE id IN (%s)
+            GROUP BY 1, 2, 3
+            ON CONFLICT(hour, level, category) DO UPDATE SET count = count + excluded.count
+            """),
+        new RetainedTable("file_operations", 90, 100000, """
+            INSERT INTO file_operations_hourly (hour, operation_type, count, failures, total_bytes)
+            SELECT strftime('%%Y-%%m-%%d %%H:00:00', timestamp), operation_type, COUNT(*),
+                   SUM(CASE WHEN success THEN 0 ELSE 1 END), COALESCE(SUM(file_size), 0)
+            FROM file_operations WHERE id IN (%s)
+            GROUP BY 1, 2
+            ON CONFLICT(hour, operation_type) DO UPDATE SET
+                count = count + excluded.count,
+                failures = failures + excluded.failures,
+                total_bytes = total_bytes + excluded.total_bytes
+            """),
+        new RetainedTable("websocket_messages", 7, 200000, """
+            INSERT INTO websocket_messages_hourly (hour, direction, message_type, count)
+            SELECT strftime('%%Y-%%m-%%d %%H:00:00', timestamp), direction, COALESCE(message_type, ''), COUNT(*)
+            FROM websocket_messages WHERE id IN (%s)
+            GROUP BY 1, 2, 3
+            ON CONFLICT(hour, direction, message_type) DO UPDATE SET count = count + excluded.count
+            """),
+        new RetainedTable("api_calls", 30, 200000, """
+            INSERT INTO api_calls_hourly (hour, method, endpoint, count, failures, total_response_time, max_response_time)
+            SELECT strftime('%%Y-%%m-%%d %%H:00:00', timestamp), method, endpoint, COUNT(*),
+                   SUM(CASE WHEN success THEN 0 ELSE 1 END),
+                   COALESCE(SUM(response_time), 0), COALESCE(MAX(response_time), 0)
+            FROM api_calls WHERE id IN (%s)
+            GROUP BY 1, 2, 3
+            ON CONFLICT(hour, method, endpoint) DO UPDATE SET
+                count = count + excluded.count,
+                failures = failures + excluded.failures,
+                total_response_time = total_response_time + excluded.total_response_time,
+                max_response_time = MAX(max_response_time, excluded.max_response_time)
+            """),
+        new RetainedTable("notifications", 30, 100000, """
+            INSERT INTO notifications_hourly (hour, type, count, failures)
+            SELECT strftime('%%Y-%%m-%%d %%H:00:00', timestamp), type, COUNT(*),
+                   SUM(CASE WHEN success THEN 0 ELSE 1 END)
+            FROM notifications WHERE id IN (%s)
+            GROUP BY 1, 2
+            ON CONFLICT(hour, type) DO UPDATE SET
+                count = count + excluded.count,
+                failures = failures + excluded.failures
+            """)
+    );
+
+    private final ConnectionPool pool;
+    private final DatabaseManager databaseManager;
+    private final SettingsManager settings;
+    private final ScheduledExecutorService scheduler;
+    private volatile Map<String, Object> lastRun = Map.of();
+    private volatile boolean vacuumUnavailableLogged;
+
+    public RetentionManager(ConnectionPool pool, DatabaseManager databaseManager, SettingsManager settings) {
+        this.pool = pool;
+        this.databaseManager = databaseManager;
+        this.settings = settings;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "DatabaseRetention");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void start() {
+        if (!settings.isRetentionEnabled()) {
+            System.out.println("Database retention disabled");
+            return;
+        }
+        long interval = Math.max(1, settings.getRetentionIntervalMinutes());
+        scheduler.scheduleWithFixedDelay(this::runSafely, 1, interval, TimeUnit.MINUTES);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Run a retention pass on the retention thread and wait for its summary
+     */
+    public Map<String, Object> runNow() throws Exception {
+        return scheduler.submit(this::runOnce).get();
+    }
+
+    public Map<String, Object> getLastRun() {
+        return lastRun;
+    }
+
+    private void runSafely() {
+        try {
+            runOnce();
+        } catch (Exception e) {
+            databaseManager.logError("Retention", "Retention pass failed", e.getMessage());
+        }
+    }
+
+    private Map<String, Object> runOnce() throws SQLException, InterruptedException {
+        long started = System.currentTimeMillis();
+        int batchSize = Math.max(1, settings.getRetentionBatchSize());
+        boolean rollup = settings.isRetentionRollupEnabled();
+
+        Map<String, Object> deleted = new HashMap<>();
+        long totalDeleted = 0;
+        for (RetainedTable table : TABLES) {
+            int maxAgeDays = settings.getRetentionMaxAgeDays(table.name, table.defaultMaxAgeDays);
+            int maxRows = settings.getRetentionMaxRows(table.name, table.defaultMaxRows);
+
+            long removed = 0;
+            if (maxAgeDays > 0) {
+                String expired = "SELECT id FROM " + table.name
+                    + " WHERE timestamp < datetime('now', '-" + maxAgeDays + " days')"
+                    + " ORDER BY timestamp, id";
+                removed += deleteInBatches(table, expired, rollup, batchSize, Long.MAX_VALUE);
+            }
+            if (maxRows > 0) {
+                long excess = databaseManager.getRowCount(table.name) - maxRows;
+                if (excess > 0) {
+                    String oldest = "SELECT id FROM " + table.name + " ORDER BY timestamp, id";
+                    removed += deleteInBatches(table, oldest, rollup, batchSize, excess);
+                }
+            }
+            deleted.put(table.name, removed);
+            totalDeleted += removed;
+        }
+
+        long vacuumedPages = 0;
+        boolean vacuumAvailable = true;
+        if (settings.isRetentionIncrementalVacuum()) {
+            vacuumedPages = incrementalVacuum(totalDeleted > 0);
+            vacuumAvailable = vacuumedPages >= 0;
+            vacuumedPages = Math.max(0, vacuumedPages);
+        }
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("deleted", deleted);
+        summary.put("total_deleted", totalDeleted);
+        summary.put("rollup", rollup);
+        summary.put("vacuumed_pages", vacuumedPages);
+        summary.put("incremental_vacuum_available", vacuumAvailable);
+        summary.put("duration_ms", System.currentTimeMillis() - started);
+        summary.put("finished_at", System.currentTimeMillis());
+        lastRun = summary;
+
+        if (totalDeleted > 0) {
+            databaseManager.logInfo("Retention", "Removed " + totalDeleted + " expired audit rows");
+        }
+        return summary;
+    }
+
+    /**
+     * Delete the oldest rows matched by the ordered id query, one batch per
+     * transaction, until it runs dry or the budget is spent
+     */
+    private long deleteInBatches(RetainedTable table, String idQuery, boolean rollup, int batchSize, long budget)
+            throws SQLException, InterruptedException {
+        long removed = 0;
+
+        while (removed < budget && !Thread.currentThread().isInterrupted()) {
+            int limit = (int) Math.min(batchSize, budget - removed);
+            String ids = idQuery + " LIMIT " + limit;
+
+            int count;
+            try (ConnectionPool.PooledConnection conn = pool.writer()) {
+                Connection connection = conn.connection();
+                connection.setAutoCommit(false);
+                try (Statement stmt = connection.createStatement()) {
+                    if (rollup) {
+                        stmt.executeUpdate(String.format(table.rollupSql, ids));
+                    }
+                    stmt.executeUpdate("DELETE FROM " + table.name + " WHERE id IN (" + ids + ")");
+                    // The driver's update count includes the row-count trigger's updates; changes() does not
+                    try (ResultSet rs = stmt.executeQuery("SELECT changes()")) {
+                        count = rs.next() ? rs.getInt(1) : 0;
+                    }
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+
+            removed += count;
+            if (count < limit) {
+                break;
+            }
+            // Give the audit writer a chance at the lock between batches
+            Thread.sleep(BATCH_PAUSE_MS);
+        }
+        return removed;
+    }
+
+    // Pages returned to the OS, or -1 if the database is not in incremental mode
+    private long incrementalVacuum(boolean deletedRows) throws SQLException {
+        try (ConnectionPool.PooledConnection conn = pool.writer();
+             Statement stmt = conn.createStatement()) {
+            if (autoVacuumMode(stmt) != INCREMENTAL_AUTO_VACUUM) {
+                // Switching needs a full VACUUM that holds the writer for the whole rewrite, so it is left to the user
+                if (!vacuumUnavailableLogged) {
+                    vacuumUnavailableLogged = true;
+                    System.out.println("Incremental vacuum unavailable: database predates auto_vacuum=INCREMENTAL."
+                        + " POST /api/database/vacuum/convert to switch it over");
+                }
+                return -1;
+            }
+            if (!deletedRows) {
+                return 0;
+            }
+
+            long freeBefore = freelistCount(stmt);
+            stmt.execute("PRAGMA incremental_vacuum(" + Math.max(1, settings.getRetentionVacuumPages()) + ")");
+            return freeBefore - freelistCount(stmt);
+        }
+    }
+
+    /**
+     * Switch an older database to incremental auto-vacuum with one full VACUUM.
+     * The rewrite holds the writer connection until it finishes, so audit
+     * writes stall meanwhile; it only runs when asked for.
+     *
+     * @return true if the database was converted, false if it already was
+     */
+    public boolean convertToIncrementalVacuum() throws SQLException {
+        try (ConnectionPool.PooledConnection conn = pool.writer();
+             Statement stmt = conn.createStatement()) {
+            if (autoVacuumMode(stmt) == INCREMENTAL_AUTO_VACUUM) {
+                return false;
+            }
+            System.out.println("Converting database to incremental auto-vacuum");
+            stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+            stmt.execute("VACUUM");
+            vacuumUnavailableLogged = false;
+            return true;
+        }
+    }
+
+    private static int autoVacuumMode(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA auto_vacuum")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static long freelistCount(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA freelist_count")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Hourly roll-up rows for a table, newest first
+     */
+    public List<Map<String, Object>> getHourlyRollup(String table, int limit) throws SQLException {
+        RetainedTable spec = TABLES.stream()
+            .filter(t -> t.name.equals(table))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Unknown table: " + table));
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        try (ConnectionPool.PooledConnection conn = pool.reader()) {
+            PreparedStatement stmt = conn.prepareCached("SELECT * FROM " + spec.name + "_hourly ORDER BY hour DESC LIMIT ?");
+            stmt.setInt(1, Math.max(1, Math.min(limit, 10000)));
+            try (ResultSet rs = stmt.executeQuery()) {
+                int columns = rs.getMetaData().getColumnCount();
+                while (rs.next()) {
+                    Map<String, Object> row = new HashMap<>();
+                    for (int i = 1; i <= columns; i++) {
+                        row.put(rs.getMetaData().getColumnName(i), rs.getObject(i));
+                    }
+                    rows.add(row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    // Audit table retention spec
+    private static class RetainedTable {
+        private final String name;
+        private final int defaultMaxAgeDays;
+        private final int defaultMaxRows;
+        private final String rollupSql;
+
+        RetainedTable(String name, int defaultMaxAgeDays, int defaultMaxRows, String rollupSql) {
+            this.name = name;
+            this.defaultMaxAgeDays = defaultMaxAgeDays;
+            this.defaultMaxRows = defaultMaxRows;
+            this.rollupSql = rollupSql;
+        }
+    }
+}
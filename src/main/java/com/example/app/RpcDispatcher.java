@@ -0,0 +1,205 @@
+package com.example.app;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JSON-RPC 2.0 style calls over the WebSocket connection
+ * A request {"jsonrpc":"2.0","id":7,"method":"files.read","params":{...}}
+ * runs on a worker thread and its response carries the same id. Calls are
+ * pipelined: a client may send many requests without waiting, and responses
+ * come back as each call finishes, not necessarily in request order.
+ * Requests without an id are notifications and get no response.
+ */
+public class RpcDispatcher {
+    // Standard JSON-RPC error codes
+    public static final int INVALID_REQUEST = -32600;
+    public static final int METHOD_NOT_FOUND = -32601;
+    public static final int INVALID_PARAMS = -32602;
+    public static final int INTERNAL_ERROR = -32603;
+    // Server-defined errors
+    public static final int NOT_FOUND = -32004;
+    public static final int TOO_MANY_REQUESTS = -32029;
+
+    @FunctionalInterface
+    public interface Method {
+        Object call(Map<String, Object> params) throws Exception;
+    }
+
+    /**
+     * Error reported to the caller with its own code and message
+     */
+    public static class RpcException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final int code;
+
+        public RpcException(int code, String message) {
+            super(message);
+            this.code = code;
+        }
+
+        public int getCode() {
+            return code;
+        }
+    }
+
+    private static RpcDispatcher instance;
+
+    private final Map<String, Method> methods = new ConcurrentHashMap<>();
+    private final AtomicInteger nextWorkerId = new AtomicInteger(1);
+    private final ExecutorService workers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "WebSocketRpc-" + nextWorkerId.getAndIncrement());
+        t.setDaemon(true);
+        return t;
+    });
+
+    RpcDispatcher() {
+    }
+
+    public static synchronized RpcDispatcher getInstance() {
+        if (instance == null) {
+            instance = new RpcDispatcher();
+        }
+        return instance;
+    }
+
+    public void register(String name, Method method) {
+        methods.put(name, method);
+    }
+
+    public Set<String> getMethodNames() {
+        return new TreeSet<>(methods.keySet());
+    }
+
+    public static boolean isRequest(Map<?, ?> message) {
+        return message.containsKey("method") || message.containsKey("jsonrpc");
+    }
+
+    /**
+     * Start a call for the session; the response is queued when it completes
+     */
+    public void dispatch(WsSession session, Map<?, ?> request) {
+        Object id = normalizeId(request.get("id"));
+        Call call;
+        try {
+            call = prepare(request);
+        } catch (RpcException e) {
+            respond(session, id, null, e);
+            return;
+        }
+
+        int maxInFlight = SettingsManager.getInstance().getWebSocketRpcMaxInFlight();
+        if (!session.tryStartCall(maxInFlight)) {
+            respond(session, id, null, new RpcException(TOO_MANY_REQUESTS, "More than " + maxInFlight + " calls in flight"));
+            return;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    respond(session, id, call.method().call(call.params()), null);
+                } catch (Exception e) {
+                    respond(session, id, null, toRpcException(call.name(), e));
+                } finally {
+                    session.endCall();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            session.endCall();
+            respond(session, id, null, new RpcException(INTERNAL_ERROR, "Server is shutting down"));
+        }
+    }
+
+    record Call(String name, Method method, Map<String, Object> params) {}
+
+    // Resolve the method and params, or fail with the JSON-RPC error for a malformed request
+    Call prepare(Map<?, ?> request) throws RpcException {
+        Object methodName = request.get("method");
+        if (!(methodName instanceof String name)) {
+            throw new RpcException(INVALID_REQUEST, "Method is required");
+        }
+        Method method = methods.get(name);
+        if (method == null) {
+            throw new RpcException(METHOD_NOT_FOUND, "Unknown method: " + name);
+        }
+        Map<String, Object> params = new HashMap<>();
+        Object rawParams = request.get("params");
+        if (rawParams instanceof Map<?, ?> map) {
+            map.forEach((key, value) -> params.put(String.valueOf(key), value));
+        } else if (rawParams != null) {
+            throw new RpcException(INVALID_PARAMS, "Params must be an object");
+        }
+        return new Call(name, method, params);
+    }
+
+    // Error a failed call reports to the caller
+    static RpcException toRpcException(String name, Exception e) {
+        if (e instanceof RpcException rpc) {
+            return rpc;
+        }
+        if (e instanceof IllegalArgumentException) {
+            return new RpcException(INVALID_PARAMS, e.getMessage());
+        }
+        System.err.println("RPC " + name + " failed: " + e.getMessage());
+        return new RpcException(INTERNAL_ERROR, String.valueOf(e.getMessage()));
+    }
+
+    // Gson reads every number as a double; echo integral ids back as integers
+    static Object normalizeId(Object id) {
+        if (id instanceof Double d && d == Math.rint(d) && !Double.isInfinite(d)) {
+            return d.longValue();
+        }
+        return id;
+    }
+
+    private static void respond(WsSession session, Object id, Object result, RpcException error) {
+        Map<String, Object> response = response(id, result, error);
+        if (response != null) {
+            WebSocketHandler.replyRpc(session, response);
+        }
+    }
+
+    // The response message, or null when the request was a notification
+    static Map<String, Object> response(Object id, Object result, RpcException error) {
+        if (id == null && (error == null || error.getCode() != INVALID_REQUEST)) {
+            // Notifications get no response, not even an error
+            return null;
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("jsonrpc", "2.0");
+        response.put("id", id);
+        if (error != null) {
+            Map<String, Object> details = new HashMap<>();
+            details.put("code", error.getCode());
+            details.put("message", error.getMessage());
+            response.put("error", details);
+        } else {
+            response.put("result", result);
+        }
+        return response;
+    }
+
+    public static String requireString(Map<String, Object> params, String name, String message) throws RpcException {
+        Object value = params.get(name);
+        if (!(value instanceof String s) || s.isEmpty()) {
+            throw new RpcException(INVALID_PARAMS, message);
+        }
+        return s;
+    }
+
+    public static String optionalString(Map<String, Object> params, String name) {
+        Object value = params.get(name);
+        return value instanceof String s ? s : null;
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
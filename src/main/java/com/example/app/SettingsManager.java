@@ -84,16 +84,53 @@ public class SettingsManager {
         // Server settings
         persistentSettings.setProperty("server.port", "8080");
         persistentSettings.setProperty("server.host", "localhost");
+        persistentSettings.setProperty("server.virtualThreads", "false");
+        persistentSettings.setProperty("server.maxThreads", "250");
+        persistentSettings.setProperty("server.assetCache", "true");
+        persistentSettings.setProperty("api.log.sampleRate", "10");
 
         // WebSocket settings
         persistentSettings.setProperty("websocket.autoReconnect", "true");
         persistentSettings.setProperty("websocket.reconnectDelay", "3000");
+        persistentSettings.setProperty("websocket.sendQueueCapacity", "256");
+        persistentSettings.setProperty("websocket.slowConsumerPolicy", "COALESCE");
+        persistentSettings.setProperty("websocket.taskUpdates.flushIntervalMs", "100");
+        persistentSettings.setProperty("websocket.compression", "true");
+        persistentSettings.setProperty("websocket.resume.bufferSize", "100");
+        persistentSettings.setProperty("websocket.resume.ttlMs", "300000");
+        persistentSettings.setProperty("websocket.rpc.maxInFlight", "32");
+        persistentSettings.setProperty("websocket.heartbeat.intervalMs", "15000");
+        persistentSettings.setProperty("websocket.idleTimeoutMs", "45000");
+        persistentSettings.setProperty("websocket.writeTimeoutMs", "10000");
+        persistentSettings.setProperty("websocket.maxConnections", "1000");
+        persistentSettings.setProperty("websocket.log.sampleRate", "100");
+        persistentSettings.setProperty("websocket.log.typeSampleRates", "ping:0,pong:0");
+        persistentSettings.setProperty("websocket.log.maxContentLength", "1024");
+        persistentSettings.setProperty("websocket.log.flushIntervalMs", "1000");
 
         // UI settings
         persistentSettings.setProperty("ui.showNotifications", "true");
         persistentSettings.setProperty("ui.animationEnabled", "true");
         persistentSettings.setProperty("ui.fontSize", "14");
 
+        // Database settings
+        persistentSettings.setProperty("database.pool.readers", "4");
+        persistentSettings.setProperty("database.cacheSizeKb", "16384");
+        persistentSettings.setProperty("database.mmapSizeMb", "256");
+        persistentSettings.setProperty("database.statementCacheSize", "64");
+        persistentSettings.setProperty("database.audit.queueCapacity", "8192");
+        persistentSettings.setProperty("database.audit.batchSize", "256");
+        persistentSettings.setProperty("database.audit.flushIntervalMs", "250");
+        persistentSettings.setProperty("database.audit.overflowPolicy", "BLOCK");
+        persistentSettings.setProperty("database.audit.sampleRate", "10");
+        persistentSettings.setProperty("database.retention.enabled", "false");
+        persistentSettings.setProperty("database.retention.intervalMinutes", "60");
+        persistentSettings.setProperty("database.retention.batchSize", "500");
+        persistentSettings.setProperty("database.retention.rollup", "true");
+        persistentSettings.setProperty("database.retention.incrementalVacuum", "true");
+        persistentSettings.setProperty("database.retention.vacuumPages", "1000");
+        persistentSettings.setProperty("database.userData.flushIntervalMs", "1000");
+
         System.out.println("Set default settings");
     }
 
@@ -249,6 +286,26 @@ public class SettingsManager {
         setString("server.host", host);
     }
 
+    // Run request handlers on virtual threads; needs Java 21, ignored on older JVMs (restart to apply)
+    public boolean isServerVirtualThreads() {
+        return getBoolean("server.virtualThreads", false);
+    }
+
+    // Size of Jetty's platform thread pool
+    public int getServerMaxThreads() {
+        return getInt("server.maxThreads", 250);
+    }
+
+    // Serve webview files from memory with fingerprinted names and ETags; off reads the classpath (restart to apply)
+    public boolean isServerAssetCache() {
+        return getBoolean("server.assetCache", true);
+    }
+
+    // Keep one in N successful API calls in api_calls; failures are always kept, 0 keeps none (restart to apply)
+    public int getApiLogSampleRate() {
+        return getInt("api.log.sampleRate", 10);
+    }
+
     public boolean isWebSocketAutoReconnect() {
         return getBoolean("websocket.autoReconnect", true);
     }
@@ -265,6 +322,80 @@ public class SettingsManager {
         setInt("websocket.reconnectDelay", delay);
     }
 
+    // Outbound messages buffered per client before the slow consumer policy applies
+    public int getWebSocketSendQueueCapacity() {
+        return getInt("websocket.sendQueueCapacity", 256);
+    }
+
+    // DROP, COALESCE or DISCONNECT
+    public String getWebSocketSlowConsumerPolicy() {
+        return getString("websocket.slowConsumerPolicy", "COALESCE");
+    }
+
+    // Offer permessage-deflate to clients that ask for it
+    public boolean isWebSocketCompression() {
+        return getBoolean("websocket.compression", true);
+    }
+
+    // Recent messages kept per topic for clients that reconnect; 0 disables replay
+    public int getWebSocketReplayBufferSize() {
+        return getInt("websocket.resume.bufferSize", 100);
+    }
+
+    // How long a closed session can be resumed
+    public int getWebSocketResumeTtlMs() {
+        return getInt("websocket.resume.ttlMs", 300000);
+    }
+
+    // Pipelined RPC calls one connection may have running at once
+    public int getWebSocketRpcMaxInFlight() {
+        return getInt("websocket.rpc.maxInFlight", 32);
+    }
+
+    // How often every session is pinged; 0 turns heartbeats and idle eviction off (restart to apply)
+    public int getWebSocketHeartbeatIntervalMs() {
+        return getInt("websocket.heartbeat.intervalMs", 15000);
+    }
+
+    // Sessions that answer pings are closed after this long without a message; 0 never evicts
+    public int getWebSocketIdleTimeoutMs() {
+        return getInt("websocket.idleTimeoutMs", 45000);
+    }
+
+    // A session whose socket takes no data for this long is dropped; 0 never drops (restart to apply)
+    public int getWebSocketWriteTimeoutMs() {
+        return getInt("websocket.writeTimeoutMs", 10000);
+    }
+
+    // Further connections are refused with close code 1013; 0 means no limit
+    public int getWebSocketMaxConnections() {
+        return getInt("websocket.maxConnections", 1000);
+    }
+
+    // One in N WebSocket messages is kept in websocket_messages; 0 keeps none (restart to apply)
+    public int getWebSocketLogSampleRate() {
+        return getInt("websocket.log.sampleRate", 100);
+    }
+
+    // Per-type overrides of the sample rate, e.g. "ping:0,task-updates:1000"
+    public String getWebSocketLogTypeSampleRates() {
+        return getString("websocket.log.typeSampleRates", "ping:0,pong:0");
+    }
+
+    // Logged message content is cut to this many characters
+    public int getWebSocketLogMaxContentLength() {
+        return getInt("websocket.log.maxContentLength", 1024);
+    }
+
+    public int getWebSocketLogFlushIntervalMs() {
+        return getInt("websocket.log.flushIntervalMs", 1000);
+    }
+
+    // Task progress is batched and sent at most once per interval; 0 sends every update
+    public int getTaskUpdateFlushIntervalMs() {
+        return getInt("websocket.taskUpdates.flushIntervalMs", 100);
+    }
+
     public boolean isShowNotifications() {
         return getBoolean("ui.showNotifications", true);
     }
@@ -289,6 +420,80 @@ public class SettingsManager {
         setInt("ui.fontSize", fontSize);
     }
 
+    public int getDatabaseReaderCount() {
+        return getInt("database.pool.readers", 4);
+    }
+
+    public int getDatabaseCacheSizeKb() {
+        return getInt("database.cacheSizeKb", 16384);
+    }
+
+    public int getDatabaseMmapSizeMb() {
+        return getInt("database.mmapSizeMb", 256);
+    }
+
+    public int getDatabaseStatementCacheSize() {
+        return getInt("database.statementCacheSize", 64);
+    }
+
+    public int getAuditQueueCapacity() {
+        return getInt("database.audit.queueCapacity", 8192);
+    }
+
+    public int getAuditBatchSize() {
+        return getInt("database.audit.batchSize", 256);
+    }
+
+    public int getAuditFlushIntervalMs() {
+        return getInt("database.audit.flushIntervalMs", 250);
+    }
+
+    public String getAuditOverflowPolicy() {
+        return getString("database.audit.overflowPolicy", "BLOCK");
+    }
+
+    public int getAuditSampleRate() {
+        return getInt("database.audit.sampleRate", 10);
+    }
+
+    // Off until enabled, so upgrading never starts deleting audit history
+    public boolean isRetentionEnabled() {
+        return getBoolean("database.retention.enabled", false);
+    }
+
+    public int getRetentionIntervalMinutes() {
+        return getInt("database.retention.intervalMinutes", 60);
+    }
+
+    public int getRetentionBatchSize() {
+        return getInt("database.retention.batchSize", 500);
+    }
+
+    public boolean isRetentionRollupEnabled() {
+        return getBoolean("database.retention.rollup", true);
+    }
+
+    public boolean isRetentionIncrementalVacuum() {
+        return getBoolean("database.retention.incrementalVacuum", true);
+    }
+
+    public int getRetentionVacuumPages() {
+        return getInt("database.retention.vacuumPages", 1000);
+    }
+
+    public int getUserDataFlushIntervalMs() {
+        return getInt("database.userData.flushIntervalMs", 1000);
+    }
+
+    // Per-table limits, e.g. database.retention.api_calls.maxAgeDays; 0 disables the limit
+    public int getRetentionMaxAgeDays(String table, int defaultValue) {
+        return getInt("database.retention." + table + ".maxAgeDays", defaultValue);
+    }
+
+    public int getRetentionMaxRows(String table, int defaultValue) {
+        return getInt("database.retention." + table + ".maxRows", defaultValue);
+    }
+
     // Get settings file path for external access
     public Path getSettingsPath() {
         return settingsPath;
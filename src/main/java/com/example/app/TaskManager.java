@@ -3,6 +3,8 @@ package com.example.app;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.function.Consumer;
 
 /**
@@ -13,12 +15,17 @@ public class TaskManager {
     private static TaskManager instance;
     private final Map<String, Task> activeTasks = new ConcurrentHashMap<>();
     private final AtomicInteger taskCounter = new AtomicInteger(0);
-    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+    private final TaskUpdateCoalescer taskUpdates =
+        new TaskUpdateCoalescer(SettingsManager.getInstance().getTaskUpdateFlushIntervalMs());
+    private final ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newCachedThreadPool(r -> {
         Thread t = new Thread(r);
         t.setName("TaskManager-" + t.getId());
         t.setDaemon(true);
         return t;
     });
+    // Totals since startup, indexed by TaskStatus ordinal; cleaned-up tasks stay counted
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLongArray finished = new AtomicLongArray(TaskStatus.values().length);
 
     private TaskManager() {
         // Start cleanup task
@@ -55,27 +62,28 @@ public class TaskManager {
         Task<T> taskObj = new Task<>(taskId, name, description, task);
 
         activeTasks.put(taskId, taskObj);
+        submitted.incrementAndGet();
         CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> {
             try {
                 taskObj.setStatus(TaskStatus.RUNNING);
+                stateChanged(taskObj);
                 T result = task.call();
-                taskObj.setStatus(TaskStatus.COMPLETED);
+                finish(taskObj, TaskStatus.COMPLETED);
                 taskObj.setResult(result);
+                stateChanged(taskObj);
                 return result;
             } catch (Exception e) {
-                taskObj.setStatus(TaskStatus.FAILED);
+                finish(taskObj, TaskStatus.FAILED);
                 taskObj.setError(e.getMessage());
+                stateChanged(taskObj);
                 throw new RuntimeException(e);
             }
         }, executor);
 
         taskObj.setFuture(future);
 
-        // Log task creation
-        DatabaseManager.getInstance().logApiCall("POST", "/api/tasks/submit", 200, 0L, true);
-
         // Notify via WebSocket
-        WebSocketHandler.broadcastTaskUpdate(taskObj.toMap());
+        stateChanged(taskObj);
 
         return taskId;
     }
@@ -88,30 +96,32 @@ public class TaskManager {
         Task<?> taskObj = new Task<>(taskId, name, description, task);
 
         activeTasks.put(taskId, taskObj);
+        submitted.incrementAndGet();
         CompletableFuture<?> future = CompletableFuture.supplyAsync(() -> {
             try {
                 taskObj.setStatus(TaskStatus.RUNNING);
+                stateChanged(taskObj);
                 Object result = task.call(progress -> {
                     taskObj.setProgress(progress);
-                    WebSocketHandler.broadcastTaskUpdate(taskObj.toMap());
+                    // Tasks may report per chunk; clients get the latest value at the flush rate
+                    taskUpdates.update(taskId, taskObj::toMap);
                 });
                 taskObj.setResult(result);
-                taskObj.setStatus(TaskStatus.COMPLETED);
+                finish(taskObj, TaskStatus.COMPLETED);
+                stateChanged(taskObj);
                 return result;
             } catch (Exception e) {
-                taskObj.setStatus(TaskStatus.FAILED);
+                finish(taskObj, TaskStatus.FAILED);
                 taskObj.setError(e.getMessage());
+                stateChanged(taskObj);
                 throw new RuntimeException(e);
             }
         }, executor);
 
         taskObj.setFuture(future);
 
-        // Log task creation
-        DatabaseManager.getInstance().logApiCall("POST", "/api/tasks/submit", 200, 0L, true);
-
         // Notify via WebSocket
-        WebSocketHandler.broadcastTaskUpdate(taskObj.toMap());
+        stateChanged(taskObj);
 
         return taskId;
     }
@@ -149,11 +159,8 @@ public class TaskManager {
         if (task != null && task.getFuture() != null) {
             boolean cancelled = task.getFuture().cancel(true);
             if (cancelled) {
-                task.setStatus(TaskStatus.CANCELLED);
-                WebSocketHandler.broadcastTaskUpdate(task.toMap());
-
-                // Log cancellation
-                DatabaseManager.getInstance().logApiCall("POST", "/api/tasks/" + taskId + "/cancel", 200, 0L, true);
+                finish(task, TaskStatus.CANCELLED);
+                stateChanged(task);
             }
             return cancelled;
         }
@@ -188,7 +195,6 @@ public class TaskManager {
     public boolean removeTask(String taskId) {
         Task<?> task = activeTasks.remove(taskId);
         if (task != null) {
-            DatabaseManager.getInstance().logApiCall("DELETE", "/api/tasks/" + taskId, 200, 0L, true);
             return true;
         }
         return false;
@@ -213,10 +219,38 @@ public class TaskManager {
         );
     }
 
+    public long getSubmittedTaskCount() {
+        return submitted.get();
+    }
+
+    // Tasks that reached the given final state since startup
+    public long getFinishedTaskCount(TaskStatus status) {
+        return finished.get(status.ordinal());
+    }
+
+    // Tasks currently in the given state
+    public long getTaskCount(TaskStatus status) {
+        return activeTasks.values().stream().filter(t -> t.getStatus() == status).count();
+    }
+
+    // Worker threads; the pool grows on demand, so it has no fixed size
+    public int getPoolSize() {
+        return executor.getPoolSize();
+    }
+
+    public int getActivePoolThreads() {
+        return executor.getActiveCount();
+    }
+
+    public int getLargestPoolSize() {
+        return executor.getLargestPoolSize();
+    }
+
     /**
      * Shutdown task manager
      */
     public void shutdown() {
+        taskUpdates.shutdown();
         executor.shutdown();
         try {
             if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -228,6 +262,19 @@ public class TaskManager {
         }
     }
 
+    // Move a task to a final state, counting it only the first time
+    private void finish(Task<?> task, TaskStatus status) {
+        boolean alreadyFinished = task.getCompletedAt() > 0;
+        task.setStatus(status);
+        if (!alreadyFinished) {
+            finished.incrementAndGet(status.ordinal());
+        }
+    }
+
+    private void stateChanged(Task<?> task) {
+        taskUpdates.updateNow(task.getId(), task::toMap);
+    }
+
     private String generateTaskId() {
         return "task-" + System.currentTimeMillis() + "-" + taskCounter.incrementAndGet();
     }
@@ -0,0 +1,109 @@
+package com.example.app;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Rate limits task updates sent over WebSocket
+ * Progress callbacks only record which task changed; the latest state of
+ * every changed task is sent together in one batch per flush interval.
+ * State transitions flush straight away so clients never miss one.
+ */
+public class TaskUpdateCoalescer {
+    private final long flushIntervalMs;
+    private final ScheduledExecutorService scheduler;
+
+    // Guarded by lock; task id -> current state of that task, in first-changed order
+    private final Object lock = new Object();
+    private final Map<String, Supplier<Map<String, Object>>> pending = new LinkedHashMap<>();
+    private boolean scheduled = false;
+
+    // Held while snapshotting and publishing so batches go out in order
+    private final Object flushLock = new Object();
+
+    public TaskUpdateCoalescer(long flushIntervalMs) {
+        this.flushIntervalMs = Math.max(0, flushIntervalMs);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TaskUpdateFlush");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Record a progress change; sent with the next scheduled flush
+     */
+    public void update(String taskId, Supplier<Map<String, Object>> state) {
+        if (flushIntervalMs == 0) {
+            updateNow(taskId, state);
+            return;
+        }
+        synchronized (lock) {
+            pending.put(taskId, state);
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        try {
+            scheduler.schedule(this::flush, flushIntervalMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // Scheduler is shut down; deliver inline instead
+            flush();
+        }
+    }
+
+    /**
+     * Record a state transition and flush it, with anything else pending, right away
+     */
+    public void updateNow(String taskId, Supplier<Map<String, Object>> state) {
+        synchronized (lock) {
+            pending.put(taskId, state);
+        }
+        flush();
+    }
+
+    public void flush() {
+        synchronized (flushLock) {
+            List<Supplier<Map<String, Object>>> changed;
+            synchronized (lock) {
+                scheduled = false;
+                if (pending.isEmpty()) {
+                    return;
+                }
+                changed = new ArrayList<>(pending.values());
+                pending.clear();
+            }
+
+            List<Map<String, Object>> batch = new ArrayList<>(changed.size());
+            for (Supplier<Map<String, Object>> state : changed) {
+                batch.add(state.get());
+            }
+            try {
+                WebSocketHandler.publishTaskUpdates(batch);
+            } catch (Exception e) {
+                System.err.println("Failed to publish task updates: " + e.getMessage());
+            }
+        }
+    }
+
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Send anything pending and stop the scheduler
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+        flush();
+    }
+}
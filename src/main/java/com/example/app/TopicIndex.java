@@ -0,0 +1,114 @@
+package com.example.app;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Topic to subscribed sessions index for WebSocket publish/subscribe
+ * Topics are slash-separated names such as "tasks/task-1". A subscription
+ * may be an exact topic, a "prefix/*" wildcard covering every topic under
+ * the prefix, or "*" for everything.
+ */
+public class TopicIndex {
+    public static final String ALL = "*";
+
+    private static final int MAX_TOPIC_LENGTH = 200;
+
+    private final Map<String, Set<WsSession>> subscribers = new ConcurrentHashMap<>();
+
+    public static boolean isValid(String topic) {
+        if (topic == null || topic.isEmpty() || topic.length() > MAX_TOPIC_LENGTH) {
+            return false;
+        }
+        // A wildcard may only appear as a whole trailing segment
+        int star = topic.indexOf('*');
+        return star < 0 || (star == topic.length() - 1 && (star == 0 || topic.charAt(star - 1) == '/'));
+    }
+
+    /**
+     * Whether a subscription (possibly a wildcard) covers the topic
+     */
+    public static boolean matches(String subscription, String topic) {
+        if (subscription.equals(ALL) || subscription.equals(topic)) {
+            return true;
+        }
+        return subscription.endsWith("/" + ALL)
+            && topic.startsWith(subscription.substring(0, subscription.length() - ALL.length()));
+    }
+
+    public boolean subscribe(WsSession session, String topic) {
+        if (!isValid(topic) || !session.addTopic(topic)) {
+            return false;
+        }
+        // Added inside the compute so a concurrent removeFromIndex cannot drop the set in between.
+        // removeSession releases the session's topics before removing them, so a session it has
+        // already passed over is seen here and never re-added to the index.
+        boolean[] added = new boolean[1];
+        subscribers.compute(topic, (t, sessions) -> {
+            if (session.isTopicsReleased()) {
+                session.removeTopic(topic);
+                return sessions;
+            }
+            Set<WsSession> set = sessions != null ? sessions : ConcurrentHashMap.newKeySet();
+            set.add(session);
+            added[0] = true;
+            return set;
+        });
+        return added[0];
+    }
+
+    public boolean unsubscribe(WsSession session, String topic) {
+        if (!session.removeTopic(topic)) {
+            return false;
+        }
+        removeFromIndex(session, topic);
+        return true;
+    }
+
+    /**
+     * Drop the session from every topic; it cannot subscribe again afterwards
+     */
+    public void removeSession(WsSession session) {
+        for (String topic : session.releaseTopics()) {
+            removeFromIndex(session, topic);
+        }
+    }
+
+    private void removeFromIndex(WsSession session, String topic) {
+        subscribers.computeIfPresent(topic, (t, sessions) -> {
+            sessions.remove(session);
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+
+    /**
+     * Sessions subscribed to the topic directly or through a wildcard, each once
+     */
+    public Set<WsSession> subscribersOf(String topic) {
+        Set<WsSession> result = null;
+        result = collect(result, subscribers.get(topic));
+        result = collect(result, subscribers.get(ALL));
+        for (int slash = topic.indexOf('/'); slash >= 0; slash = topic.indexOf('/', slash + 1)) {
+            result = collect(result, subscribers.get(topic.substring(0, slash + 1) + ALL));
+        }
+        return result != null ? result : Collections.emptySet();
+    }
+
+    private static Set<WsSession> collect(Set<WsSession> result, Set<WsSession> sessions) {
+        if (sessions == null || sessions.isEmpty()) {
+            return result;
+        }
+        if (result == null) {
+            result = new LinkedHashSet<>();
+        }
+        result.addAll(sessions);
+        return result;
+    }
+
+    public int getTopicCount() {
+        return subscribers.size();
+    }
+}
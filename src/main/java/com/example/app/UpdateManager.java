@@ -52,12 +52,8 @@ public class UpdateManager {
                 result.put("releaseNotes", "Bug fixes and performance improvements");
                 result.put("downloadUrl", "https://example.com/download/java-webview-1.1.0.jar");
             }
-
-            DatabaseManager.getInstance().logApiCall("GET", "/api/updates/check", 200, 0L, true);
-
         } catch (Exception e) {
             result.put("error", "Failed to check for updates: " + e.getMessage());
-            DatabaseManager.getInstance().logApiCall("GET", "/api/updates/check", 500, 0L, false);
         }
 
         return result;
@@ -99,15 +95,11 @@ public class UpdateManager {
             result.put("filePath", updateFile.toString());
             result.put("version", version);
 
-            // Log the successful download
-            DatabaseManager.getInstance().logApiCall("POST", "/api/updates/download", 200, 0L, true);
-
             // Show notification
             NotificationManager.getInstance().showUpdateNotification(version, "Update downloaded successfully");
 
         } catch (Exception e) {
             result.put("message", "Failed to download update: " + e.getMessage());
-            DatabaseManager.getInstance().logApiCall("POST", "/api/updates/download", 500, 0L, false);
         }
 
         return result;
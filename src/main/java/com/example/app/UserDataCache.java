@@ -0,0 +1,222 @@
+package com.example.app;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory copy of the user_data table
+ * Reads are served from memory. Explicit sets and deletes are written
+ * through; increments update memory atomically and are flushed in
+ * coalesced batches, so hot counters cost one row write per flush
+ */
+public class UserDataCache {
+    // Matches SQLite's CURRENT_TIMESTAMP format (UTC)
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String UPSERT_SQL = """
+        INSERT INTO user_data (key, value, data_type, updated_at)
+        VALUES (?, ?, ?, ?)
+        ON CONFLICT(key) DO UPDATE SET
+        value = excluded.value,
+        data_type = excluded.data_type,
+        updated_at = excluded.updated_at;
+        """;
+
+    private final ConnectionPool pool;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> dirtyKeys = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService flusher;
+
+    public UserDataCache(ConnectionPool pool, long flushIntervalMs) throws SQLException {
+        this.pool = pool;
+        load();
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "UserDataFlush");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(1, flushIntervalMs);
+        flusher.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void load() throws SQLException {
+        String sql = "SELECT key, value, data_type, created_at, updated_at FROM user_data";
+        try (ConnectionPool.PooledConnection conn = pool.reader();
+             ResultSet rs = conn.prepareCached(sql).executeQuery()) {
+            while (rs.next()) {
+                entries.put(rs.getString("key"), new Entry(
+                    rs.getString("value"),
+                    rs.getString("data_type"),
+                    rs.getString("created_at"),
+                    rs.getString("updated_at")
+                ));
+            }
+        }
+    }
+
+    public String get(String key, String defaultValue) {
+        Entry entry = entries.get(key);
+        return entry != null ? entry.value : defaultValue;
+    }
+
+    /**
+     * Store a value in memory and write it through to the database
+     */
+    public void set(String key, String value, String dataType) throws SQLException {
+        String now = now();
+        try (ConnectionPool.PooledConnection conn = pool.writer()) {
+            entries.compute(key, (k, existing) ->
+                new Entry(value, dataType, existing != null ? existing.createdAt : now, now));
+            // Clear before reading back so an increment racing this write is flushed later
+            dirtyKeys.remove(key);
+            Entry current = entries.get(key);
+            if (current != null) {
+                upsert(conn, key, current);
+            }
+        }
+    }
+
+    /**
+     * Atomically add delta to an integer entry, creating it at zero if absent.
+     * Persisted by the next coalesced flush.
+     */
+    public long increment(String key, long delta) {
+        String now = now();
+        Entry updated = entries.compute(key, (k, existing) -> {
+            long current = 0;
+            if (existing != null) {
+                try {
+                    current = Long.parseLong(existing.value);
+                } catch (NumberFormatException e) {
+                    current = 0;
+                }
+            }
+            return new Entry(String.valueOf(current + delta), "integer",
+                existing != null ? existing.createdAt : now, now);
+        });
+        dirtyKeys.add(key);
+        return Long.parseLong(updated.value);
+    }
+
+    public boolean delete(String key) throws SQLException {
+        try (ConnectionPool.PooledConnection conn = pool.writer()) {
+            // Under the writer lock so a concurrent flush cannot re-insert the row
+            dirtyKeys.remove(key);
+            boolean cached = entries.remove(key) != null;
+            PreparedStatement stmt = conn.prepareCached("DELETE FROM user_data WHERE key = ?");
+            stmt.setString(1, key);
+            return stmt.executeUpdate() > 0 || cached;
+        }
+    }
+
+    /**
+     * Snapshot of all entries ordered by key
+     */
+    public Map<String, Entry> snapshot() {
+        return new TreeMap<>(entries);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getPendingCount() {
+        return dirtyKeys.size();
+    }
+
+    /**
+     * Write all pending increments in a single transaction
+     */
+    public void flush() throws SQLException {
+        if (dirtyKeys.isEmpty()) {
+            return;
+        }
+
+        try (ConnectionPool.PooledConnection conn = pool.writer()) {
+            List<String> keys = new ArrayList<>(dirtyKeys);
+            conn.connection().setAutoCommit(false);
+            try {
+                for (String key : keys) {
+                    dirtyKeys.remove(key);
+                    Entry entry = entries.get(key);
+                    if (entry != null) {
+                        upsert(conn, key, entry);
+                    }
+                }
+                conn.connection().commit();
+            } catch (SQLException e) {
+                conn.connection().rollback();
+                // Retry these on the next flush
+                dirtyKeys.addAll(keys);
+                throw e;
+            } finally {
+                conn.connection().setAutoCommit(true);
+            }
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (SQLException e) {
+            System.err.println("Failed to flush user data: " + e.getMessage());
+        }
+    }
+
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushSafely();
+    }
+
+    private static void upsert(ConnectionPool.PooledConnection conn, String key, Entry entry) throws SQLException {
+        PreparedStatement stmt = conn.prepareCached(UPSERT_SQL);
+        stmt.setString(1, key);
+        stmt.setString(2, entry.value);
+        stmt.setString(3, entry.dataType);
+        stmt.setString(4, entry.updatedAt);
+        stmt.executeUpdate();
+    }
+
+    private static String now() {
+        return LocalDateTime.now(ZoneOffset.UTC).format(TIMESTAMP_FORMAT);
+    }
+
+    // Immutable cached row
+    public static class Entry {
+        private final String value;
+        private final String dataType;
+        private final String createdAt;
+        private final String updatedAt;
+
+        Entry(String value, String dataType, String createdAt, String updatedAt) {
+            this.value = value;
+            this.dataType = dataType;
+            this.createdAt = createdAt;
+            this.updatedAt = updatedAt;
+        }
+
+        public String getValue() { return value; }
+        public String getDataType() { return dataType; }
+        public String getCreatedAt() { return createdAt; }
+        public String getUpdatedAt() { return updatedAt; }
+    }
+}
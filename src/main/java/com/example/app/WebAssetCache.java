@@ -0,0 +1,339 @@
+package com.example.app;
+
+import io.javalin.http.Context;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The webview's static files, read once from the classpath and served from memory
+ * Every asset gets a strong ETag from a hash of its content and a
+ * fingerprinted alias (app.js -> app.1a2b3c4d5e.js). index.html links to
+ * the aliases, so they can be cached for a year while index.html itself
+ * is revalidated on each load. Text assets are also held compressed:
+ * .gz and .br files generated at build time are used when present and
+ * not older than the asset, otherwise a gzip copy is made at startup.
+ */
+public class WebAssetCache {
+    private static final String ROOT = "webview/";
+    private static final String INDEX = "index.html";
+    private static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String CACHE_REVALIDATE = "no-cache";
+    private static final int FINGERPRINT_LENGTH = 10;
+
+    private static final Map<String, String> CONTENT_TYPES = Map.ofEntries(
+        Map.entry("html", "text/html; charset=utf-8"),
+        Map.entry("js", "text/javascript; charset=utf-8"),
+        Map.entry("css", "text/css; charset=utf-8"),
+        Map.entry("json", "application/json"),
+        Map.entry("svg", "image/svg+xml"),
+        Map.entry("png", "image/png"),
+        Map.entry("jpg", "image/jpeg"),
+        Map.entry("gif", "image/gif"),
+        Map.entry("ico", "image/x-icon"),
+        Map.entry("woff2", "font/woff2")
+    );
+
+    // Request path -> asset; a fingerprinted alias shares its asset's bytes
+    private final Map<String, Asset> assets = new LinkedHashMap<>();
+
+    private WebAssetCache() {
+    }
+
+    /**
+     * Read every file under /webview on the classpath
+     *
+     * @throws IOException if the directory is missing or cannot be read
+     */
+    public static WebAssetCache load() throws IOException {
+        Map<String, Resource> files = listResources();
+        if (!files.containsKey(INDEX)) {
+            throw new IOException("No " + ROOT + INDEX + " on the classpath");
+        }
+
+        WebAssetCache cache = new WebAssetCache();
+        Map<String, String> fingerprinted = new HashMap<>();
+        for (Map.Entry<String, Resource> file : files.entrySet()) {
+            String name = file.getKey();
+            if (isSidecar(name) || name.endsWith(".html")) {
+                continue;
+            }
+            byte[] body = file.getValue().read();
+            String alias = fingerprint(name, hash(body));
+            fingerprinted.put(name, alias);
+            Asset asset = cache.createAsset(name, body, files, file.getValue());
+            cache.assets.put("/" + name, asset);
+            cache.assets.put("/" + alias, asset.withCacheControl(CACHE_IMMUTABLE));
+        }
+
+        // Pages are rewritten to link the aliases, so they are revalidated rather than cached
+        for (Map.Entry<String, Resource> file : files.entrySet()) {
+            String name = file.getKey();
+            if (!name.endsWith(".html")) {
+                continue;
+            }
+            String page = new String(file.getValue().read(), StandardCharsets.UTF_8);
+            byte[] body = linkFingerprints(page, fingerprinted).getBytes(StandardCharsets.UTF_8);
+            // The build-time variants hold the original links, so compress the rewritten page instead
+            Asset asset = cache.createAsset(name, body, Map.of(), file.getValue());
+            cache.assets.put("/" + name, asset);
+            if (name.equals(INDEX)) {
+                cache.assets.put("/", asset);
+            }
+        }
+        return cache;
+    }
+
+    public Set<String> getPaths() {
+        return assets.keySet();
+    }
+
+    public int getAssetCount() {
+        return (int) assets.values().stream().map(asset -> asset.body).distinct().count();
+    }
+
+    /**
+     * Handler for every path in getPaths()
+     */
+    public void serve(Context ctx) {
+        Asset asset = assets.get(ctx.path());
+        if (asset == null) {
+            ctx.status(404);
+            return;
+        }
+
+        ctx.header("Cache-Control", asset.cacheControl);
+        if (asset.gzip != null || asset.brotli != null) {
+            ctx.header("Vary", "Accept-Encoding");
+        }
+
+        String acceptEncoding = ctx.header("Accept-Encoding");
+        String encoding = null;
+        byte[] body = asset.body;
+        if (asset.brotli != null && accepts(acceptEncoding, "br")) {
+            encoding = "br";
+            body = asset.brotli;
+        } else if (asset.gzip != null && accepts(acceptEncoding, "gzip")) {
+            encoding = "gzip";
+            body = asset.gzip;
+        }
+        ctx.header("ETag", encoding != null ? variantTag(asset.etag, encoding) : asset.etag);
+
+        String ifNoneMatch = ctx.header("If-None-Match");
+        if (ifNoneMatch != null && matches(ifNoneMatch, asset.etag)) {
+            ctx.status(304);
+            return;
+        }
+        if (encoding != null) {
+            ctx.header("Content-Encoding", encoding);
+        }
+        ctx.contentType(asset.contentType);
+        // Written to the servlet response directly, as Javalin would gzip an identity body again
+        HttpServletResponse res = ctx.res();
+        res.setContentLength(body.length);
+        try {
+            res.getOutputStream().write(body);
+        } catch (IOException e) {
+            // Client went away mid-response
+            System.err.println("Failed to send " + ctx.path() + ": " + e.getMessage());
+        }
+    }
+
+    private Asset createAsset(String name, byte[] body, Map<String, Resource> files, Resource source) throws IOException {
+        String extension = name.substring(name.lastIndexOf('.') + 1).toLowerCase();
+        String contentType = CONTENT_TYPES.getOrDefault(extension, "application/octet-stream");
+        byte[] gzip = null;
+        byte[] brotli = null;
+        if (isCompressible(contentType)) {
+            gzip = readSidecar(files, name + ".gz", source);
+            brotli = readSidecar(files, name + ".br", source);
+            if (gzip == null) {
+                gzip = gzip(body);
+            }
+            // Not worth a Content-Encoding for files that barely shrink
+            gzip = gzip.length < body.length ? gzip : null;
+            brotli = brotli != null && brotli.length < body.length ? brotli : null;
+        }
+        return new Asset(body, gzip, brotli, contentType, "\"" + hash(body) + "\"", CACHE_REVALIDATE);
+    }
+
+    // A build-time variant, unless it is missing or older than the file it was made from
+    private static byte[] readSidecar(Map<String, Resource> files, String name, Resource source) throws IOException {
+        Resource sidecar = files.get(name);
+        if (sidecar == null || sidecar.lastModified() < source.lastModified()) {
+            return null;
+        }
+        return sidecar.read();
+    }
+
+    private static boolean isSidecar(String name) {
+        return name.endsWith(".gz") || name.endsWith(".br");
+    }
+
+    private static boolean isCompressible(String contentType) {
+        return contentType.startsWith("text/") || contentType.startsWith("application/json") || contentType.startsWith("image/svg");
+    }
+
+    private static String linkFingerprints(String page, Map<String, String> fingerprinted) {
+        String result = page;
+        for (Map.Entry<String, String> entry : fingerprinted.entrySet()) {
+            Pattern link = Pattern.compile("((?:src|href)=[\"']/?)" + Pattern.quote(entry.getKey()) + "([\"'])");
+            result = link.matcher(result).replaceAll("$1" + Matcher.quoteReplacement(entry.getValue()) + "$2");
+        }
+        return result;
+    }
+
+    // app.js -> app.<hash>.js
+    private static String fingerprint(String name, String hash) {
+        int dot = name.lastIndexOf('.');
+        int slash = name.lastIndexOf('/');
+        String shortHash = hash.substring(0, FINGERPRINT_LENGTH);
+        return dot > slash ? name.substring(0, dot) + "." + shortHash + name.substring(dot) : name + "." + shortHash;
+    }
+
+    private static String variantTag(String etag, String encoding) {
+        return etag.substring(0, etag.length() - 1) + "-" + encoding + "\"";
+    }
+
+    // If-None-Match may list several tags, be weak (W/"...") or name an encoded variant
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch.trim().equals("*")) {
+            return true;
+        }
+        String hash = etag.substring(1, etag.length() - 1);
+        for (String tag : ifNoneMatch.split(",")) {
+            String value = tag.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            value = value.replace("\"", "");
+            if (value.equals(hash) || value.startsWith(hash + "-")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean accepts(String acceptEncoding, String encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.trim().split(";");
+            if (!params[0].trim().equalsIgnoreCase(encoding)) {
+                continue;
+            }
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static String hash(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 3);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    // Files under /webview keyed by relative name, from a directory or a jar
+    private static Map<String, Resource> listResources() throws IOException {
+        URL root = WebAssetCache.class.getClassLoader().getResource(ROOT);
+        if (root == null) {
+            throw new IOException("No " + ROOT + " directory on the classpath");
+        }
+
+        Map<String, Resource> files = new LinkedHashMap<>();
+        if (root.getProtocol().equals("jar")) {
+            JarURLConnection connection = (JarURLConnection) root.openConnection();
+            connection.setUseCaches(false);
+            try (JarFile jar = connection.getJarFile()) {
+                Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    if (!entry.isDirectory() && entry.getName().startsWith(ROOT)) {
+                        byte[] content;
+                        try (InputStream in = jar.getInputStream(entry)) {
+                            content = in.readAllBytes();
+                        }
+                        files.put(entry.getName().substring(ROOT.length()), new Resource(content, entry.getTime()));
+                    }
+                }
+            }
+        } else {
+            Path dir;
+            try {
+                dir = Paths.get(root.toURI());
+            } catch (URISyntaxException e) {
+                throw new IOException("Cannot read " + root, e);
+            }
+            try (Stream<Path> paths = Files.walk(dir)) {
+                for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                    String name = dir.relativize(path).toString().replace(File.separatorChar, '/');
+                    files.put(name, new Resource(Files.readAllBytes(path), Files.getLastModifiedTime(path).toMillis()));
+                }
+            }
+        }
+        return files;
+    }
+
+    private record Resource(byte[] content, long lastModified) {
+        byte[] read() {
+            return content;
+        }
+    }
+
+    private record Asset(byte[] body, byte[] gzip, byte[] brotli, String contentType, String etag, String cacheControl) {
+        Asset withCacheControl(String value) {
+            return new Asset(body, gzip, brotli, contentType, etag, value);
+        }
+    }
+}
@@ -1,86 +1,635 @@
 package com.example.app;
 
 import io.javalin.websocket.WsContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import org.eclipse.jetty.websocket.api.CloseStatus;
 
 /**
  * WebSocket handler for real-time bidirectional communication
- * Manages WebSocket connections and broadcasts messages
+ * Manages WebSocket connections and publishes messages to topic subscribers
  */
 public class WebSocketHandler {
-    private static final Map<WsContext, String> sessions = new ConcurrentHashMap<>();
+    // Topics published by the server
+    public static final String TOPIC_CONNECTIONS = "connections";
+    public static final String TOPIC_BROADCAST = "broadcast";
+    public static final String TOPIC_FILES = "files";
+    public static final String TOPIC_NOTIFICATIONS = "notifications";
+    public static final String TOPIC_TASKS_PREFIX = "tasks/";
+
+    private static final Map<WsContext, WsSession> sessions = new ConcurrentHashMap<>();
+    private static final TopicIndex topics = new TopicIndex();
     private static final AtomicInteger nextSessionId = new AtomicInteger(1);
+    private static final AtomicInteger nextSenderId = new AtomicInteger(1);
     private static final Gson gson = new Gson();
+    private static final List<String> ENCODINGS = Arrays.stream(WsFrame.Encoding.values()).map(WsFrame.Encoding::id).toList();
+    private static final int MAX_PARKED_SESSIONS = 1000;
+    // 1001 Going Away for idle clients, 1013 Try Again Later when full
+    private static final int IDLE_CLOSE_CODE = 1001;
+    private static final int TRY_AGAIN_LATER_CLOSE_CODE = 1013;
+
+    // Publishing holds the replay buffer's lock, so every session queues messages in sequence order
+    private static final ReplayBuffer replay = new ReplayBuffer(SettingsManager.getInstance().getWebSocketReplayBufferSize());
+    // Resume token -> subscriptions of a recently closed session
+    private static final Map<String, ParkedSession> parked = new ConcurrentHashMap<>();
+
+    private static final WebSocketTrafficLog traffic = createTrafficLog();
+
+    // Connections admitted so far; reserved before the session is registered so the cap holds under concurrent connects
+    private static final AtomicInteger admitted = new AtomicInteger();
+    private static final AtomicLong rejected = new AtomicLong();
+    private static final AtomicLong evicted = new AtomicLong();
+    private static final AtomicLong writeTimeouts = new AtomicLong();
+
+    // Hands queued messages to the sockets; writes complete asynchronously, so a few threads serve every session
+    private static final ExecutorService sender = Executors.newFixedThreadPool(
+        Math.max(2, Runtime.getRuntime().availableProcessors()),
+        r -> {
+            Thread t = new Thread(r, "WebSocketSender-" + nextSenderId.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+
+    // Sends heartbeats and evicts idle sessions; one thread for all sessions
+    private static final ScheduledExecutorService heartbeat = startHeartbeat();
+
+    private static ScheduledExecutorService startHeartbeat() {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "WebSocketHeartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = SettingsManager.getInstance().getWebSocketHeartbeatIntervalMs();
+        if (interval > 0) {
+            scheduler.scheduleWithFixedDelay(WebSocketHandler::checkSessions, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        long writeTimeout = SettingsManager.getInstance().getWebSocketWriteTimeoutMs();
+        if (writeTimeout > 0) {
+            long period = Math.max(250, writeTimeout / 4);
+            scheduler.scheduleWithFixedDelay(() -> checkWrites(writeTimeout), period, period, TimeUnit.MILLISECONDS);
+        }
+        return scheduler;
+    }
+
+    private static WebSocketTrafficLog createTrafficLog() {
+        SettingsManager settings = SettingsManager.getInstance();
+        return new WebSocketTrafficLog(
+            settings.getWebSocketLogSampleRate(),
+            settings.getWebSocketLogTypeSampleRates(),
+            settings.getWebSocketLogMaxContentLength(),
+            settings.getWebSocketLogFlushIntervalMs()
+        );
+    }
 
     public static void handleConnect(WsContext ctx) {
+        int maxConnections = SettingsManager.getInstance().getWebSocketMaxConnections();
+        if (maxConnections > 0 && admitted.incrementAndGet() > maxConnections) {
+            admitted.decrementAndGet();
+            rejected.incrementAndGet();
+            System.err.println("Rejecting WebSocket connection: " + maxConnections + " connections open");
+            ctx.closeSession(new CloseStatus(TRY_AGAIN_LATER_CLOSE_CODE, "Too many connections"));
+            return;
+        }
+        if (maxConnections <= 0) {
+            admitted.incrementAndGet();
+        }
+
         String sessionId = "session-" + nextSessionId.getAndIncrement();
-        sessions.put(ctx, sessionId);
+        SettingsManager settings = SettingsManager.getInstance();
+        WsSession session = new WsSession(
+            ctx,
+            sessionId,
+            settings.getWebSocketSendQueueCapacity(),
+            WsSession.SlowConsumerPolicy.fromString(settings.getWebSocketSlowConsumerPolicy(), WsSession.SlowConsumerPolicy.COALESCE),
+            sender,
+            WsFrame.Encoding.fromString(ctx.queryParam("encoding"), WsFrame.Encoding.JSON)
+        );
+        sessions.put(ctx, session);
         System.out.println("WebSocket connected: " + sessionId);
-        
-        // Send welcome message
-        ctx.send("{\"type\":\"welcome\",\"sessionId\":\"" + sessionId + "\",\"message\":\"Connected to server\"}");
-        
+
+        // A reconnecting client presents the token from its last welcome and the last seq it saw
+        String resumeToken = ctx.queryParam("resume");
+        ParkedSession previous = resumeToken != null ? parked.remove(resumeToken) : null;
+        if (previous != null && previous.expiresAt() < System.currentTimeMillis()) {
+            previous = null;
+        }
+
+        synchronized (replay) {
+            if (previous != null) {
+                previous.topics().forEach(topic -> topics.subscribe(session, topic));
+            } else {
+                // Clients may pick their topics up front with /ws?topics=a,b; otherwise they get everything
+                String initialTopics = ctx.queryParam("topics");
+                if (initialTopics != null && !initialTopics.isBlank()) {
+                    for (String topic : initialTopics.split(",")) {
+                        topics.subscribe(session, topic.trim());
+                    }
+                } else {
+                    topics.subscribe(session, TopicIndex.ALL);
+                }
+            }
+
+            List<Object> missed = null;
+            if (previous != null) {
+                missed = replay.since(parseSeq(ctx.queryParam("lastSeq")), session.getTopics());
+                if (missed != null && missed.size() > settings.getWebSocketSendQueueCapacity()) {
+                    // Would overflow the queue; the client is better off reloading
+                    missed = null;
+                }
+            }
+
+            // Send welcome message; always JSON so the client can read it before switching to its encoding
+            Map<String, Object> welcome = new HashMap<>();
+            welcome.put("type", "welcome");
+            welcome.put("sessionId", sessionId);
+            welcome.put("message", "Connected to server");
+            welcome.put("encoding", session.getEncoding().id());
+            welcome.put("encodings", ENCODINGS);
+            welcome.put("extensions", session.getExtensions());
+            welcome.put("resumeToken", session.getResumeToken());
+            welcome.put("resumed", missed != null);
+            welcome.put("replayed", missed != null ? missed.size() : 0);
+            welcome.put("seq", replay.currentSeq());
+            session.send(WsFrame.json(welcome));
+            traffic.record(WebSocketTrafficLog.OUTBOUND, "welcome", welcome, sessionId);
+
+            if (missed != null) {
+                missed.forEach(message -> reply(session, message));
+            }
+        }
+
         // Broadcast connection count
         broadcastConnectionCount();
     }
 
     public static void handleMessage(WsContext ctx, String message) {
-        String sessionId = sessions.get(ctx);
-        System.out.println("WebSocket message from " + sessionId + ": " + message);
-        
+        WsSession session = sessions.get(ctx);
+        if (session == null) {
+            return;
+        }
+        session.received(utf8Length(message));
+        Map<?, ?> request = parseObject(message);
+        traffic.record(WebSocketTrafficLog.INBOUND, messageType(request), message, session.getId());
+        if (request != null && "pong".equals(request.get("type"))) {
+            if (request.get("id") instanceof Number id) {
+                session.pong(id.longValue());
+            }
+            return;
+        }
+
+        if (request != null && RpcDispatcher.isRequest(request)) {
+            RpcDispatcher.getInstance().dispatch(session, request);
+            return;
+        }
+        if (request != null && handleSubscription(session, request)) {
+            return;
+        }
+
         // Echo message back with session info
-        ctx.send("{\"type\":\"echo\",\"sessionId\":\"" + sessionId + "\",\"message\":\"" + message + "\"}");
+        Map<String, Object> echo = new HashMap<>();
+        echo.put("type", "echo");
+        echo.put("sessionId", session.getId());
+        echo.put("message", message);
+        reply(session, echo);
     }
 
     public static void handleClose(WsContext ctx, int statusCode, String reason) {
-        String sessionId = sessions.remove(ctx);
-        System.out.println("WebSocket closed: " + sessionId + " (code: " + statusCode + ", reason: " + reason + ")");
-        
+        WsSession session = detach(ctx);
+        if (session == null) {
+            // Rejected at connect, or already evicted
+            return;
+        }
+        System.out.println("WebSocket closed: " + session.getId() + " (code: " + statusCode + ", reason: " + reason + ")");
+
         // Broadcast updated connection count
         broadcastConnectionCount();
     }
 
+    /**
+     * Stop publishing to a session and keep its subscriptions for resume
+     *
+     * @return the session, or null if it was already detached
+     */
+    private static WsSession detach(WsContext ctx) {
+        WsSession session = sessions.remove(ctx);
+        if (session == null) {
+            return null;
+        }
+        admitted.decrementAndGet();
+        topics.removeSession(session);
+        session.close();
+        park(session);
+        return session;
+    }
+
+    /**
+     * Evict sessions that have been silent past the idle timeout, then ping the
+     * rest. Clients answer {"type":"ping","id":n} with {"type":"pong","id":n};
+     * any message they send counts as activity. Only clients that have answered
+     * a ping are evicted; older clients that ignore the JSON ping also get a
+     * protocol-level ping frame, which keeps their connection alive through
+     * proxies and is answered by the browser itself. An evicted client that
+     * wakes up can still resume within the resume TTL.
+     */
+    private static void checkSessions() {
+        try {
+            long idleTimeout = SettingsManager.getInstance().getWebSocketIdleTimeoutMs();
+            int evictedNow = 0;
+            for (WsSession session : sessions.values()) {
+                if (idleTimeout > 0 && session.answersPings() && session.getIdleMillis() > idleTimeout) {
+                    if (detach(session.getContext()) != null) {
+                        evicted.incrementAndGet();
+                        evictedNow++;
+                        System.out.println("Evicting idle WebSocket session " + session.getId() + " after " + session.getIdleMillis() + "ms");
+                        // Closing may block on a dead connection; do it off the heartbeat thread
+                        sender.execute(() -> closeQuietly(session.getContext(), IDLE_CLOSE_CODE, "Idle timeout"));
+                    }
+                    continue;
+                }
+                // Only the newest ping matters if the previous one is still queued
+                Map<String, Object> ping = Map.of("type", "ping", "id", session.startPing());
+                session.send(WsFrame.encode(ping, session.getEncoding()), "ping");
+                traffic.record(WebSocketTrafficLog.OUTBOUND, "ping", ping, session.getId());
+                if (!session.answersPings()) {
+                    sender.execute(() -> pingQuietly(session.getContext()));
+                }
+            }
+            if (evictedNow > 0) {
+                broadcastConnectionCount();
+            }
+        } catch (Exception e) {
+            // Keep the schedule alive
+            System.err.println("WebSocket heartbeat failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cut off sessions whose peer has not taken a frame for the write timeout.
+     * The dropped connection then closes through handleClose as usual.
+     */
+    private static void checkWrites(long writeTimeout) {
+        try {
+            for (WsSession session : sessions.values()) {
+                if (session.abortIfStalled(writeTimeout)) {
+                    writeTimeouts.incrementAndGet();
+                }
+            }
+        } catch (Exception e) {
+            // Keep the schedule alive
+            System.err.println("WebSocket write check failed: " + e.getMessage());
+        }
+    }
+
+    private static void pingQuietly(WsContext ctx) {
+        try {
+            ctx.sendPing();
+        } catch (Exception e) {
+            // A dead connection is found by the write timeout or the close handler
+        }
+    }
+
+    private static void closeQuietly(WsContext ctx, int code, String reason) {
+        try {
+            ctx.closeSession(new CloseStatus(code, reason));
+        } catch (Exception e) {
+            System.err.println("Failed to close WebSocket session: " + e.getMessage());
+        }
+    }
+
+    // UTF-8 size of a message without encoding it
+    private static long utf8Length(String message) {
+        long length = 0;
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < message.length() && Character.isLowSurrogate(message.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
     public static void handleError(WsContext ctx, Throwable throwable) {
-        String sessionId = sessions.get(ctx);
+        WsSession session = sessions.get(ctx);
+        String sessionId = session != null ? session.getId() : null;
         System.err.println("WebSocket error for " + sessionId + ": " + throwable.getMessage());
     }
 
+    // JSON object messages (RPC calls, subscriptions); null for anything else
+    private static Map<?, ?> parseObject(String message) {
+        if (!message.startsWith("{")) {
+            return null;
+        }
+        try {
+            return gson.fromJson(message, Map.class);
+        } catch (JsonSyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Handle {"type":"subscribe"|"unsubscribe","topics":[...]} control messages
+     *
+     * @return true if the message was a subscription request
+     */
+    private static boolean handleSubscription(WsSession session, Map<?, ?> request) {
+        Object type = request.get("type");
+        if (!"subscribe".equals(type) && !"unsubscribe".equals(type)) {
+            return false;
+        }
+
+        List<String> rejected = new ArrayList<>();
+        if (request.get("topics") instanceof List<?> requested) {
+            for (Object topic : requested) {
+                String name = String.valueOf(topic);
+                if ("subscribe".equals(type)) {
+                    if (!topics.subscribe(session, name) && !session.getTopics().contains(name)) {
+                        rejected.add(name);
+                    }
+                } else {
+                    topics.unsubscribe(session, name);
+                }
+            }
+        }
+
+        Map<String, Object> reply = new HashMap<>();
+        reply.put("type", "subscriptions");
+        reply.put("topics", session.getTopics());
+        if (!rejected.isEmpty()) {
+            reply.put("rejected", rejected);
+        }
+        reply(session, reply);
+        return true;
+    }
+
+    /**
+     * Keep a closed session's subscriptions so the client can resume within the TTL
+     */
+    private static void park(WsSession session) {
+        long now = System.currentTimeMillis();
+        parked.values().removeIf(state -> state.expiresAt() < now);
+        long ttl = SettingsManager.getInstance().getWebSocketResumeTtlMs();
+        if (ttl > 0 && parked.size() < MAX_PARKED_SESSIONS) {
+            parked.put(session.getResumeToken(), new ParkedSession(session.getTopics(), now + ttl));
+        }
+    }
+
+    // Messages are only worth keeping while a live or parked session could want them
+    private static boolean hasParkedSessions() {
+        if (parked.isEmpty()) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        parked.values().removeIf(state -> state.expiresAt() < now);
+        return !parked.isEmpty();
+    }
+
+    private static long parseSeq(String value) {
+        try {
+            return value != null ? Long.parseLong(value) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     private static void broadcastConnectionCount() {
-        String message = "{\"type\":\"connectionCount\",\"count\":" + sessions.size() + "}";
-        sessions.keySet().forEach(ctx -> {
-            try {
-                ctx.send(message);
-            } catch (Exception e) {
-                System.err.println("Failed to broadcast to client: " + e.getMessage());
+        // Only the latest count matters to a client that is behind
+        publish(TOPIC_CONNECTIONS, () -> Map.of("type", "connectionCount", "count", sessions.size()), "connectionCount");
+    }
+
+    /**
+     * Queue a message for one session in its encoding
+     */
+    static void reply(WsSession session, Object message) {
+        session.send(WsFrame.encode(message, session.getEncoding()));
+        traffic.record(WebSocketTrafficLog.OUTBOUND, messageType(message), message, session.getId());
+    }
+
+    /**
+     * Queue a JSON-RPC response for one session ahead of its other messages;
+     * responses are never dropped by the slow-consumer policy
+     */
+    static void replyRpc(WsSession session, Map<String, Object> response) {
+        session.sendReply(WsFrame.encode(response, session.getEncoding()));
+        traffic.record(WebSocketTrafficLog.OUTBOUND, "rpc", response, session.getId());
+    }
+
+    // The "type" of a message for the traffic log; RPC messages are all "rpc"
+    private static String messageType(Object message) {
+        if (!(message instanceof Map<?, ?> map)) {
+            return "text";
+        }
+        if (RpcDispatcher.isRequest(map) || map.containsKey("result") || map.containsKey("error")) {
+            return "rpc";
+        }
+        return map.get("type") instanceof String type ? type : "json";
+    }
+
+    /**
+     * Queue a message for every session regardless of subscriptions
+     */
+    public static void broadcast(Object message) {
+        send(sessions.values(), message, null);
+    }
+
+    /**
+     * Queue a message for the topic's subscribers and keep it for replay.
+     * The message gets the next "seq" and is only built if someone could
+     * receive it, then serialized once per encoding in use.
+     * Returns the number of recipients.
+     */
+    public static int publish(String topic, Supplier<Map<String, Object>> message, String coalesceKey) {
+        synchronized (replay) {
+            Set<WsSession> recipients = topics.subscribersOf(topic);
+            if (recipients.isEmpty() && !hasParkedSessions()) {
+                return 0;
             }
-        });
+            Map<String, Object> payload = new HashMap<>(message.get());
+            long seq = replay.nextSeq();
+            payload.put("seq", seq);
+            replay.record(topic, seq, payload, coalesceKey);
+            send(recipients, payload, coalesceKey);
+            return recipients.size();
+        }
     }
 
-    public static void broadcast(String message) {
-        sessions.keySet().forEach(ctx -> {
-            try {
-                ctx.send(message);
-            } catch (Exception e) {
-                System.err.println("Failed to broadcast: " + e.getMessage());
+    private static void send(Collection<WsSession> recipients, Object message, String coalesceKey) {
+        if (recipients.isEmpty()) {
+            return;
+        }
+        // Logged once, not per recipient
+        traffic.record(WebSocketTrafficLog.OUTBOUND, messageType(message), message, null);
+        Map<WsFrame.Encoding, WsFrame> frames = new EnumMap<>(WsFrame.Encoding.class);
+        for (WsSession session : recipients) {
+            WsFrame frame = frames.computeIfAbsent(session.getEncoding(), encoding -> WsFrame.encode(message, encoding));
+            session.send(frame, coalesceKey);
+        }
+    }
+
+    /**
+     * Send a batch of task states as "task-updates" frames. Each session gets
+     * the tasks it subscribes to, and sessions that subscribe to the same
+     * tasks share one serialized frame. The batch shares one "seq"; for
+     * replay, only the latest state of each task is kept.
+     */
+    public static void publishTaskUpdates(List<Map<String, Object>> tasks) {
+        synchronized (replay) {
+            publishTaskUpdatesLocked(tasks);
+        }
+    }
+
+    private static void publishTaskUpdatesLocked(List<Map<String, Object>> tasks) {
+        Map<WsSession, BitSet> selected = new HashMap<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            for (WsSession session : topics.subscribersOf(TOPIC_TASKS_PREFIX + tasks.get(i).get("taskId"))) {
+                selected.computeIfAbsent(session, s -> new BitSet(tasks.size())).set(i);
             }
+        }
+        if (selected.isEmpty() && !hasParkedSessions()) {
+            return;
+        }
+
+        long timestamp = System.currentTimeMillis();
+        long seq = replay.nextSeq();
+        if (!selected.isEmpty()) {
+            traffic.record(WebSocketTrafficLog.OUTBOUND, "task-updates",
+                Map.of("type", "task-updates", "data", tasks, "timestamp", timestamp, "seq", seq), null);
+        }
+        for (Map<String, Object> task : tasks) {
+            replay.record(TOPIC_TASKS_PREFIX + task.get("taskId"), seq,
+                Map.of("type", "task-updates", "data", List.of(task), "timestamp", timestamp, "seq", seq), "task");
+        }
+
+        Map<BitSet, Map<WsFrame.Encoding, WsFrame>> frames = new HashMap<>();
+        selected.forEach((session, taskIndexes) -> {
+            WsFrame frame = frames.computeIfAbsent(taskIndexes, indexes -> new EnumMap<>(WsFrame.Encoding.class))
+                .computeIfAbsent(session.getEncoding(), encoding -> {
+                    List<Map<String, Object>> data = new ArrayList<>(taskIndexes.cardinality());
+                    taskIndexes.stream().forEach(i -> data.add(tasks.get(i)));
+                    return WsFrame.encode(Map.of("type", "task-updates", "data", data, "timestamp", timestamp, "seq", seq), encoding);
+                });
+            session.send(frame);
         });
     }
 
-    public static void broadcastTaskUpdate(Map<String, Object> taskData) {
-        Map<String, Object> message = new HashMap<>();
-        message.put("type", "task-update");
-        message.put("data", taskData);
-        message.put("timestamp", System.currentTimeMillis());
+    public static void publishFileOperation(String operation, String path, long size, boolean success, String error) {
+        publish(TOPIC_FILES, () -> {
+            Map<String, Object> data = new HashMap<>();
+            data.put("operation", operation);
+            data.put("path", path);
+            data.put("size", size);
+            data.put("success", success);
+            data.put("error", error);
+            return Map.of("type", "file-operation", "data", data, "timestamp", System.currentTimeMillis());
+        }, null);
+    }
+
+    public static void publishNotification(String type, String message, boolean success) {
+        publish(TOPIC_NOTIFICATIONS, () -> {
+            Map<String, Object> data = new HashMap<>();
+            data.put("type", type);
+            data.put("message", message);
+            data.put("success", success);
+            return Map.of("type", "notification", "data", data, "timestamp", System.currentTimeMillis());
+        }, null);
+    }
+
+    public static Map<String, Object> getTrafficLogStats() {
+        return traffic.getStats();
+    }
+
+    /**
+     * Stop heartbeats and write out the sampled traffic still queued
+     */
+    public static void shutdown() {
+        heartbeat.shutdownNow();
+        traffic.shutdown(5000);
+    }
 
-        String jsonMessage = gson.toJson(message);
-        broadcast(jsonMessage);
+    public static int getParkedSessionCount() {
+        return parked.size();
     }
 
     public static int getConnectionCount() {
         return sessions.size();
     }
+
+    public static long getRejectedConnectionCount() {
+        return rejected.get();
+    }
+
+    public static long getEvictedSessionCount() {
+        return evicted.get();
+    }
+
+    // Sessions dropped because a write stalled past websocket.writeTimeoutMs
+    public static long getWriteTimeoutCount() {
+        return writeTimeouts.get();
+    }
+
+    // Messages waiting in all outbound queues
+    public static long getQueuedMessageCount() {
+        long total = 0;
+        for (WsSession session : sessions.values()) {
+            total += session.getQueueDepth();
+        }
+        return total;
+    }
+
+    // Deepest outbound queue, the first sign of a slow client
+    public static int getMaxQueueDepth() {
+        int max = 0;
+        for (WsSession session : sessions.values()) {
+            max = Math.max(max, session.getQueueDepth());
+        }
+        return max;
+    }
+
+    /**
+     * Heartbeat RTT, idle time and traffic for every connected session
+     */
+    public static List<Map<String, Object>> getConnectionStats() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (WsSession session : sessions.values()) {
+            stats.add(session.getConnectionStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Outbound queue metrics for every connected session
+     */
+    public static List<Map<String, Object>> getSessionStats() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (WsSession session : sessions.values()) {
+            stats.add(session.getStats());
+        }
+        return stats;
+    }
+
+    private record ParkedSession(Set<String> topics, long expiresAt) {
+    }
 }
@@ -0,0 +1,180 @@
+package com.example.app;
+
+import com.google.gson.Gson;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sampled, write-behind history of WebSocket traffic
+ * Every message is counted, but only one in N is kept: types with their
+ * own rate are sampled separately, all other types share the default rate.
+ * Kept messages are queued without blocking and serialized, truncated and
+ * handed to the database from a background thread, so logging adds
+ * almost nothing to message latency. When the queue is full, new entries
+ * are dropped.
+ */
+public class WebSocketTrafficLog {
+    public static final String INBOUND = "in";
+    public static final String OUTBOUND = "out";
+
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final int MAX_TYPE_LENGTH = 64;
+    private static final Gson gson = new Gson();
+
+    private final int defaultSampleRate;
+    private final Map<String, Integer> typeSampleRates;
+    private final int maxContentLength;
+    private final long flushIntervalMs;
+
+    // One counter per configured type plus a shared one, so client-chosen types cannot grow the map
+    private final Map<String, AtomicLong> typeCounters = new HashMap<>();
+    private final AtomicLong otherCounter = new AtomicLong();
+
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final LongAdder uncounted = new LongAdder();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private final AtomicLong messages = new AtomicLong();
+    private final AtomicLong sampled = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+
+    public WebSocketTrafficLog(int defaultSampleRate, String typeSampleRates, int maxContentLength, long flushIntervalMs) {
+        this.defaultSampleRate = Math.max(0, defaultSampleRate);
+        this.typeSampleRates = parseTypeSampleRates(typeSampleRates);
+        this.maxContentLength = Math.max(0, maxContentLength);
+        this.flushIntervalMs = Math.max(1, flushIntervalMs);
+        this.typeSampleRates.keySet().forEach(type -> typeCounters.put(type, new AtomicLong()));
+
+        this.writerThread = new Thread(this::runWriter, "WebSocketTrafficLog");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Parse "ping:0,task-updates:1000" into per-type rates; 0 never logs that type
+     */
+    static Map<String, Integer> parseTypeSampleRates(String value) {
+        Map<String, Integer> rates = new HashMap<>();
+        if (value == null || value.isBlank()) {
+            return rates;
+        }
+        for (String pair : value.split(",")) {
+            String[] parts = pair.split(":");
+            if (parts.length != 2 || parts[0].isBlank()) {
+                System.err.println("Ignoring WebSocket log sample rate '" + pair.trim() + "'");
+                continue;
+            }
+            try {
+                rates.put(parts[0].trim(), Math.max(0, Integer.parseInt(parts[1].trim())));
+            } catch (NumberFormatException e) {
+                System.err.println("Ignoring WebSocket log sample rate '" + pair.trim() + "'");
+            }
+        }
+        return rates;
+    }
+
+    /**
+     * Count a message and queue it if it is sampled
+     *
+     * @param message the raw text, or the Map it was serialized from; only serialized if kept
+     * @param sessionId null for messages published to several sessions
+     */
+    public void record(String direction, String type, Object message, String sessionId) {
+        messages.incrementAndGet();
+        uncounted.increment();
+
+        Integer rate = typeSampleRates.get(type);
+        AtomicLong counter = rate != null ? typeCounters.get(type) : otherCounter;
+        int sampleRate = rate != null ? rate : defaultSampleRate;
+        // The first message of each run is kept, so rare types still show up
+        if (sampleRate == 0 || counter.getAndIncrement() % sampleRate != 0 || !running) {
+            return;
+        }
+        sampled.incrementAndGet();
+        if (!queue.offer(new Entry(direction, type, message, sessionId))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void runWriter() {
+        List<Entry> batch = new ArrayList<>();
+        while (running) {
+            try {
+                Thread.sleep(flushIntervalMs);
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            queue.drainTo(batch);
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<Entry> batch) {
+        DatabaseManager database = DatabaseManager.getInstance();
+        for (Entry entry : batch) {
+            try {
+                database.logWebSocketMessage(entry.direction, truncate(entry.type, MAX_TYPE_LENGTH),
+                    truncate(content(entry.message), maxContentLength), entry.sessionId);
+                written.incrementAndGet();
+            } catch (Exception e) {
+                System.err.println("Failed to log WebSocket message: " + e.getMessage());
+            }
+        }
+        long count = uncounted.sumThenReset();
+        if (count > 0) {
+            database.incrementWebSocketMessageCount(count);
+        }
+    }
+
+    private static String content(Object message) {
+        return message instanceof String text ? text : gson.toJson(message);
+    }
+
+    private static String truncate(String value, int maxLength) {
+        if (value == null || value.length() <= maxLength) {
+            return value;
+        }
+        int end = maxLength;
+        if (end > 0 && Character.isHighSurrogate(value.charAt(end - 1))) {
+            end--;
+        }
+        return value.substring(0, end) + "...";
+    }
+
+    /**
+     * Stop sampling and write what is still queued
+     */
+    public void shutdown(long timeoutMs) {
+        writerThread.interrupt();
+        try {
+            writerThread.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("messages", messages.get());
+        stats.put("sampled", sampled.get());
+        stats.put("written", written.get());
+        stats.put("dropped", dropped.get());
+        stats.put("queue_depth", queue.size());
+        stats.put("sample_rate", defaultSampleRate);
+        stats.put("type_sample_rates", typeSampleRates);
+        return stats;
+    }
+
+    private record Entry(String direction, String type, Object message, String sessionId) {
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.app;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An outbound WebSocket message serialized exactly once
+ * The payload is an immutable buffer shared by every recipient; each send
+ * writes from its own duplicate, so publishing to N sessions costs one
+ * serialization and no per-recipient copies.
+ */
+public final class WsFrame {
+    private static final Gson gson = new Gson();
+    private static final CborEncoder cbor = new CborEncoder(gson);
+    private static final ThreadLocal<Encoder> encoder = ThreadLocal.withInitial(Encoder::new);
+
+    private final ByteBuffer payload;
+    private final boolean binary;
+    private volatile String text;
+
+    /**
+     * Wire encoding a client picks when it connects
+     */
+    public enum Encoding {
+        // Text frames holding JSON
+        JSON,
+        // Binary frames holding CBOR; smaller and faster to parse for large messages
+        CBOR;
+
+        public static Encoding fromString(String value, Encoding defaultValue) {
+            if (value == null || value.isBlank()) {
+                return defaultValue;
+            }
+            try {
+                return Encoding.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown WebSocket encoding '" + value + "', using " + defaultValue);
+                return defaultValue;
+            }
+        }
+
+        public String id() {
+            return name().toLowerCase();
+        }
+    }
+
+    private WsFrame(ByteBuffer payload, boolean binary, String text) {
+        this.payload = payload.asReadOnlyBuffer();
+        this.binary = binary;
+        this.text = text;
+    }
+
+    /**
+     * Serialize a message (usually a Map) as a JSON text frame
+     */
+    public static WsFrame json(Object message) {
+        return encoder.get().encode(message);
+    }
+
+    /**
+     * Serialize a message as a CBOR binary frame
+     */
+    public static WsFrame cbor(Object message) {
+        return encoder.get().encodeCbor(message);
+    }
+
+    public static WsFrame encode(Object message, Encoding encoding) {
+        return encoding == Encoding.CBOR ? cbor(message) : json(message);
+    }
+
+    /**
+     * Wrap an already serialized text message
+     */
+    public static WsFrame text(String text) {
+        return new WsFrame(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)), false, text);
+    }
+
+    public static WsFrame binary(byte[] data) {
+        return new WsFrame(ByteBuffer.wrap(data), true, null);
+    }
+
+    /**
+     * A fresh read-only view of the payload; callers may consume it freely
+     */
+    public ByteBuffer payload() {
+        return payload.duplicate();
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    public int size() {
+        return payload.remaining();
+    }
+
+    /**
+     * The payload as a String, decoded on first use; only for text frames
+     */
+    public String text() {
+        String value = text;
+        if (value == null) {
+            value = StandardCharsets.UTF_8.decode(payload()).toString();
+            text = value;
+        }
+        return value;
+    }
+
+    // Per-thread output buffer and UTF-8 writer reused across messages;
+    // the only allocation per message is the exact-size payload array
+    private static final class Encoder {
+        // Do not keep an oversized buffer around after an unusually large message
+        private static final int RETAIN_LIMIT = 256 * 1024;
+
+        private ReusableOutput out;
+        private Writer writer;
+
+        Encoder() {
+            reset();
+        }
+
+        private void reset() {
+            out = new ReusableOutput(4096);
+            writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        }
+
+        WsFrame encode(Object message) {
+            try {
+                gson.toJson(message, writer);
+                writer.flush();
+                return new WsFrame(ByteBuffer.wrap(out.copy()), false, null);
+            } catch (IOException | JsonIOException e) {
+                // The writer may hold a partial character; start over with a clean one
+                reset();
+                throw new IllegalStateException("Failed to encode WebSocket message", e);
+            } finally {
+                release();
+            }
+        }
+
+        WsFrame encodeCbor(Object message) {
+            try {
+                cbor.write(message, out);
+                return new WsFrame(ByteBuffer.wrap(out.copy()), true, null);
+            } catch (IOException | JsonIOException e) {
+                throw new IllegalStateException("Failed to encode WebSocket message", e);
+            } finally {
+                release();
+            }
+        }
+
+        private void release() {
+            if (out.capacity() > RETAIN_LIMIT) {
+                reset();
+            } else {
+                out.reset();
+            }
+        }
+    }
+
+    private static final class ReusableOutput extends ByteArrayOutputStream {
+        ReusableOutput(int size) {
+            super(size);
+        }
+
+        byte[] copy() {
+            return Arrays.copyOf(buf, count);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+}
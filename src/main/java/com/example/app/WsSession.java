@@ -0,0 +1,608 @@
+package com.example.app;
+
+import io.javalin.websocket.WsContext;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.websocket.api.CloseStatus;
+import org.eclipse.jetty.websocket.api.ExtensionConfig;
+import org.eclipse.jetty.websocket.common.WebSocketSession;
+import org.eclipse.jetty.websocket.core.Frame;
+import org.eclipse.jetty.websocket.core.OpCode;
+
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outbound side of one WebSocket connection
+ * Messages are queued and written asynchronously, one frame in flight at a
+ * time, so a slow client never blocks the thread that published the message
+ * and never holds a sender thread while its socket is full. When the bounded
+ * queue is full, the slow-consumer policy decides what gives; a peer that
+ * stops reading altogether is cut off by the write timeout.
+ */
+public class WsSession {
+    // 1008 Policy Violation is the closest standard code for "too slow to keep up"
+    private static final int SLOW_CONSUMER_CLOSE_CODE = 1008;
+    // 1011 Internal Error when a frame could not be written
+    private static final int WRITE_FAILED_CLOSE_CODE = 1011;
+    private static final int MAX_TOPICS = 64;
+    private static final SecureRandom random = new SecureRandom();
+
+    public enum SlowConsumerPolicy {
+        // Drop the oldest queued message to make room
+        DROP,
+        // Replace queued messages that share a key (e.g. the connection count), then drop the oldest
+        COALESCE,
+        // Close the connection; the client reconnects and reloads its state
+        DISCONNECT;
+
+        public static SlowConsumerPolicy fromString(String value, SlowConsumerPolicy defaultValue) {
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                return SlowConsumerPolicy.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown WebSocket slow consumer policy '" + value + "', using " + defaultValue);
+                return defaultValue;
+            }
+        }
+    }
+
+    /**
+     * The connection a session writes to; write never blocks and reports
+     * completion through the callback
+     */
+    interface Transport {
+        void write(WsFrame frame, Callback callback);
+
+        void close(int code, String reason);
+
+        // Drop the connection without a close handshake, for a peer that stopped reading
+        void abort();
+    }
+
+    private final WsContext ctx;
+    private final Transport transport;
+    private final String id;
+    private final int capacity;
+    private final SlowConsumerPolicy policy;
+    private final Executor sender;
+    private final WsFrame.Encoding encoding;
+    private final List<String> extensions;
+    private final String resumeToken;
+    private final long connectedAt;
+
+    // Guarded by lock
+    private final Object lock = new Object();
+    private final ArrayDeque<Outbound> queue = new ArrayDeque<>();
+    // RPC responses; sent ahead of the queue and never dropped
+    private final ArrayDeque<WsFrame> replies = new ArrayDeque<>();
+    private final Map<String, Outbound> pendingByKey = new HashMap<>();
+    private boolean draining = false;
+    private boolean closed = false;
+
+    private final Set<String> topics = ConcurrentHashMap.newKeySet();
+    // Set once the session is dropped from the topic index; later subscribes are refused
+    private volatile boolean topicsReleased = false;
+
+    // Totals over all sessions, closed ones included
+    private static final LongAdder totalSent = new LongAdder();
+    private static final LongAdder totalDropped = new LongAdder();
+    private static final LongAdder totalReceived = new LongAdder();
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicInteger callsInFlight = new AtomicInteger();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong messagesIn = new AtomicLong();
+    private volatile long lastActivity;
+    // System.nanoTime when the frame in flight was handed to the transport; 0 when none is
+    private volatile long writeStartedAt;
+
+    // Heartbeat; guarded by pingLock
+    private final Object pingLock = new Object();
+    private long pingId = 0;
+    private long pingSentAt = 0;
+    private double rttMs = -1;
+    private double rttAvgMs = -1;
+    // Set by the first pong; only such clients are held to the idle timeout
+    private volatile boolean answersPings = false;
+
+    public WsSession(WsContext ctx, String id, int capacity, SlowConsumerPolicy policy, Executor sender, WsFrame.Encoding encoding) {
+        this(ctx, transport(ctx), id, capacity, policy, sender, encoding);
+    }
+
+    WsSession(WsContext ctx, Transport transport, String id, int capacity, SlowConsumerPolicy policy, Executor sender,
+              WsFrame.Encoding encoding) {
+        this.ctx = ctx;
+        this.transport = transport;
+        this.id = id;
+        this.capacity = Math.max(1, capacity);
+        this.policy = policy;
+        this.sender = sender;
+        this.encoding = encoding;
+        this.extensions = negotiatedExtensions(ctx);
+        this.resumeToken = newResumeToken();
+        this.connectedAt = System.currentTimeMillis();
+        this.lastActivity = connectedAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public WsContext getContext() {
+        return ctx;
+    }
+
+    /**
+     * Opaque token a reconnecting client presents to pick up where this session left off
+     */
+    public String getResumeToken() {
+        return resumeToken;
+    }
+
+    private static String newResumeToken() {
+        byte[] bytes = new byte[18];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    public WsFrame.Encoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Extensions agreed in the handshake, e.g. permessage-deflate
+     */
+    public List<String> getExtensions() {
+        return extensions;
+    }
+
+    private static List<String> negotiatedExtensions(WsContext ctx) {
+        List<String> names = new ArrayList<>();
+        try {
+            for (ExtensionConfig extension : ctx.session.getUpgradeResponse().getExtensions()) {
+                names.add(extension.getName());
+            }
+        } catch (Exception e) {
+            // Not available outside a real upgrade
+        }
+        return List.copyOf(names);
+    }
+
+    // Subscribed topics; maintained through TopicIndex
+    boolean addTopic(String topic) {
+        return !topicsReleased && topics.size() < MAX_TOPICS && topics.add(topic);
+    }
+
+    // Refuse further topics and return the current ones for removal from the index
+    Set<String> releaseTopics() {
+        topicsReleased = true;
+        return getTopics();
+    }
+
+    boolean isTopicsReleased() {
+        return topicsReleased;
+    }
+
+    boolean removeTopic(String topic) {
+        return topics.remove(topic);
+    }
+
+    public Set<String> getTopics() {
+        return new TreeSet<>(topics);
+    }
+
+    public boolean send(WsFrame frame) {
+        return send(frame, null);
+    }
+
+    /**
+     * Queue a message without blocking. Under COALESCE, a message whose key
+     * matches one still waiting in the queue replaces it. The replacement
+     * goes to the back of the queue so messages still leave in sequence order.
+     *
+     * @return false if the message was not queued
+     */
+    public boolean send(WsFrame payload, String coalesceKey) {
+        boolean startDrain = false;
+        synchronized (lock) {
+            if (closed) {
+                return false;
+            }
+
+            if (coalesceKey != null && policy == SlowConsumerPolicy.COALESCE) {
+                Outbound pending = pendingByKey.get(coalesceKey);
+                if (pending != null) {
+                    queue.remove(pending);
+                    pending.payload = payload;
+                    queue.addLast(pending);
+                    coalesced.incrementAndGet();
+                    return true;
+                }
+            }
+
+            if (queue.size() >= capacity) {
+                dropped.incrementAndGet();
+                totalDropped.increment();
+                if (policy == SlowConsumerPolicy.DISCONNECT) {
+                    closeLocked();
+                    sender.execute(() -> disconnect("Send queue overflow"));
+                    return false;
+                }
+                Outbound oldest = queue.pollFirst();
+                if (oldest.key != null) {
+                    pendingByKey.remove(oldest.key, oldest);
+                }
+            }
+
+            Outbound frame = new Outbound(payload, coalesceKey);
+            queue.addLast(frame);
+            if (coalesceKey != null) {
+                pendingByKey.put(coalesceKey, frame);
+            }
+            if (!draining) {
+                draining = true;
+                startDrain = true;
+            }
+        }
+
+        if (startDrain) {
+            sender.execute(this::drain);
+        }
+        return true;
+    }
+
+    /**
+     * Queue the response to a call. Responses jump ahead of queued messages
+     * and are never dropped, since a caller waits for each one; a client that
+     * lets a full queue's worth of them pile up is disconnected instead.
+     *
+     * @return false if the session is closed
+     */
+    public boolean sendReply(WsFrame payload) {
+        boolean startDrain = false;
+        synchronized (lock) {
+            if (closed) {
+                return false;
+            }
+            if (replies.size() >= capacity) {
+                dropped.incrementAndGet();
+                totalDropped.increment();
+                closeLocked();
+                sender.execute(() -> disconnect("Reply queue overflow"));
+                return false;
+            }
+            replies.addLast(payload);
+            if (!draining) {
+                draining = true;
+                startDrain = true;
+            }
+        }
+
+        if (startDrain) {
+            sender.execute(this::drain);
+        }
+        return true;
+    }
+
+    /**
+     * Hand the next queued frame to the transport. Runs on a sender thread,
+     * but never waits for the socket: the write's callback schedules the next
+     * step, so a session has at most one frame in flight and messages stay in
+     * order.
+     */
+    private void drain() {
+        WsFrame payload;
+        synchronized (lock) {
+            if (closed) {
+                draining = false;
+                return;
+            }
+            payload = replies.pollFirst();
+            if (payload == null) {
+                Outbound frame = queue.pollFirst();
+                if (frame == null) {
+                    draining = false;
+                    return;
+                }
+                if (frame.key != null) {
+                    pendingByKey.remove(frame.key, frame);
+                }
+                payload = frame.payload;
+            }
+        }
+
+        writeStartedAt = System.nanoTime();
+        try {
+            transport.write(payload, new WriteCallback(payload));
+        } catch (Exception e) {
+            writeFailed(e);
+        }
+    }
+
+    private final class WriteCallback implements Callback {
+        private final WsFrame payload;
+
+        WriteCallback(WsFrame payload) {
+            this.payload = payload;
+        }
+
+        @Override
+        public void succeeded() {
+            writeStartedAt = 0;
+            sent.incrementAndGet();
+            totalSent.increment();
+            bytesOut.addAndGet(payload.size());
+            sender.execute(WsSession.this::drain);
+        }
+
+        @Override
+        public void failed(Throwable cause) {
+            writeFailed(cause);
+        }
+    }
+
+    private void writeFailed(Throwable cause) {
+        writeStartedAt = 0;
+        failed.incrementAndGet();
+        synchronized (lock) {
+            draining = false;
+            if (closed) {
+                // Already being closed, e.g. by the write timeout
+                return;
+            }
+            closeLocked();
+        }
+        System.err.println("Failed to send to " + id + ": " + cause.getMessage());
+        sender.execute(() -> disconnect(WRITE_FAILED_CLOSE_CODE, "Write failed"));
+    }
+
+    // How long the frame in flight has waited for the peer, in milliseconds; 0 if none is in flight
+    long getWriteStallMillis() {
+        long started = writeStartedAt;
+        return started == 0 ? 0 : (System.nanoTime() - started) / 1_000_000;
+    }
+
+    /**
+     * Drop the connection if one write has been stuck for longer than the
+     * timeout, which means the peer stopped reading
+     *
+     * @return true if the session was cut off by this call
+     */
+    boolean abortIfStalled(long timeoutMs) {
+        if (timeoutMs <= 0 || getWriteStallMillis() <= timeoutMs) {
+            return false;
+        }
+        synchronized (lock) {
+            if (closed) {
+                return false;
+            }
+            closeLocked();
+        }
+        System.err.println("Disconnecting WebSocket client " + id + ": write stalled for " + getWriteStallMillis() + "ms");
+        sender.execute(() -> {
+            try {
+                transport.abort();
+            } catch (Exception e) {
+                System.err.println("Failed to abort " + id + ": " + e.getMessage());
+            }
+        });
+        return true;
+    }
+
+    private static Transport transport(WsContext ctx) {
+        return new Transport() {
+            @Override
+            public void write(WsFrame frame, Callback callback) {
+                // The shared payload goes straight into a frame, without re-encoding it per session
+                if (ctx.session instanceof WebSocketSession jettySession) {
+                    byte opCode = frame.isBinary() ? OpCode.BINARY : OpCode.TEXT;
+                    jettySession.getCoreSession().sendFrame(new Frame(opCode, frame.payload()), callback, false);
+                    return;
+                }
+                try {
+                    if (frame.isBinary()) {
+                        ctx.send(frame.payload());
+                    } else {
+                        ctx.send(frame.text());
+                    }
+                    callback.succeeded();
+                } catch (Exception e) {
+                    callback.failed(e);
+                }
+            }
+
+            @Override
+            public void close(int code, String reason) {
+                ctx.closeSession(new CloseStatus(code, reason));
+            }
+
+            @Override
+            public void abort() {
+                ctx.session.disconnect();
+            }
+        };
+    }
+
+    private void disconnect(String reason) {
+        disconnect(SLOW_CONSUMER_CLOSE_CODE, reason);
+    }
+
+    private void disconnect(int code, String reason) {
+        System.err.println("Disconnecting WebSocket client " + id + ": " + reason);
+        try {
+            transport.close(code, reason);
+        } catch (Exception e) {
+            System.err.println("Failed to close " + id + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stop sending and discard anything still queued
+     */
+    public void close() {
+        synchronized (lock) {
+            closeLocked();
+        }
+    }
+
+    private void closeLocked() {
+        closed = true;
+        queue.clear();
+        replies.clear();
+        pendingByKey.clear();
+    }
+
+    // RPC calls started but not yet answered
+    boolean tryStartCall(int limit) {
+        while (true) {
+            int current = callsInFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (callsInFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void endCall() {
+        callsInFlight.decrementAndGet();
+    }
+
+    /**
+     * Record an inbound message; any message counts as a sign of life
+     */
+    void received(long bytes) {
+        bytesIn.addAndGet(bytes);
+        messagesIn.incrementAndGet();
+        totalReceived.increment();
+        lastActivity = System.currentTimeMillis();
+    }
+
+    public long getIdleMillis() {
+        return System.currentTimeMillis() - lastActivity;
+    }
+
+    /**
+     * Start a heartbeat round trip; an unanswered earlier ping is forgotten
+     *
+     * @return the id the client echoes back in its pong
+     */
+    long startPing() {
+        synchronized (pingLock) {
+            pingSentAt = System.nanoTime();
+            return ++pingId;
+        }
+    }
+
+    /**
+     * Finish the round trip for a pong. The RTT is measured from when the ping
+     * was queued, so it includes time spent behind other queued messages.
+     */
+    void pong(long id) {
+        synchronized (pingLock) {
+            if (id != pingId || pingSentAt == 0) {
+                return;
+            }
+            rttMs = (System.nanoTime() - pingSentAt) / 1_000_000.0;
+            // Smoothed like TCP's SRTT so one slow round trip does not dominate
+            rttAvgMs = rttAvgMs < 0 ? rttMs : rttAvgMs + (rttMs - rttAvgMs) / 8;
+            pingSentAt = 0;
+        }
+        answersPings = true;
+    }
+
+    /**
+     * Whether the client has answered a heartbeat ping, i.e. speaks the heartbeat protocol
+     */
+    public boolean answersPings() {
+        return answersPings;
+    }
+
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return queue.size() + replies.size();
+        }
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public static long getTotalSent() {
+        return totalSent.sum();
+    }
+
+    public static long getTotalDropped() {
+        return totalDropped.sum();
+    }
+
+    public static long getTotalReceived() {
+        return totalReceived.sum();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sessionId", id);
+        stats.put("connected_at", connectedAt);
+        stats.put("queue_depth", getQueueDepth());
+        stats.put("queue_capacity", capacity);
+        stats.put("sent", sent.get());
+        stats.put("dropped", dropped.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("failed", failed.get());
+        stats.put("rpc_in_flight", callsInFlight.get());
+        stats.put("topics", getTopics());
+        stats.put("encoding", encoding.id());
+        stats.put("extensions", extensions);
+        return stats;
+    }
+
+    /**
+     * Liveness and traffic figures for the connections endpoint
+     */
+    public Map<String, Object> getConnectionStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sessionId", id);
+        stats.put("connected_at", connectedAt);
+        stats.put("idle_ms", getIdleMillis());
+        synchronized (pingLock) {
+            stats.put("rtt_ms", rttMs >= 0 ? Math.round(rttMs * 100) / 100.0 : null);
+            stats.put("rtt_avg_ms", rttAvgMs >= 0 ? Math.round(rttAvgMs * 100) / 100.0 : null);
+        }
+        stats.put("bytes_in", bytesIn.get());
+        stats.put("bytes_out", bytesOut.get());
+        stats.put("messages_in", messagesIn.get());
+        stats.put("messages_out", sent.get());
+        return stats;
+    }
+
+    // Queued message; payload may be replaced while queued (guarded by lock)
+    private static class Outbound {
+        private WsFrame payload;
+        private final String key;
+
+        Outbound(WsFrame payload, String key) {
+            this.payload = payload;
+            this.key = key;
+        }
+    }
+}
@@ -9,6 +9,14 @@ const isJavaFX = navigator.userAgent.includes('JavaWebView') ||
 // WebSocket connection
 let ws = null;
 let wsReconnectTimeout = null;
+// Lets a reconnect pick up the messages sent while we were away
+let wsResumeToken = null;
+let wsLastSeq = 0;
+// JSON-RPC calls waiting for their response, by id
+const wsPendingCalls = new Map();
+let wsNextCallId = 1;
+// A call with no response by then is rejected rather than left hanging
+const RPC_TIMEOUT_MS = 30000;
 
 // Initialize app when DOM is ready
 document.addEventListener('DOMContentLoaded', () => {
@@ -362,10 +370,15 @@ async function showNativeAlert() {
 // WebSocket Functions
 function connectWebSocket() {
     const protocol = window.location.protocol === 'https:' ? 'wss:' : 'ws:';
-    const wsUrl = `${protocol}//${window.location.host}/ws`;
+    // Only subscribe to the topics this page displays; ask for compact binary (CBOR) messages
+    let wsUrl = `${protocol}//${window.location.host}/ws?topics=connections,broadcast,tasks/*&encoding=cbor`;
+    if (wsResumeToken) {
+        wsUrl += `&resume=${encodeURIComponent(wsResumeToken)}&lastSeq=${wsLastSeq}`;
+    }
     
     try {
         ws = new WebSocket(wsUrl);
+        ws.binaryType = 'arraybuffer';
         
         ws.onopen = () => {
             console.log('WebSocket connected');
@@ -373,15 +386,26 @@ function connectWebSocket() {
         };
         
         ws.onmessage = (event) => {
-            console.log('WebSocket message:', event.data);
-            const data = JSON.parse(event.data);
+            const data = parseWebSocketMessage(event);
+            if (data.jsonrpc) {
+                handleRpcResponse(data);
+                return;
+            }
+            if (data.type === 'ping') {
+                // Heartbeat; the server closes connections that stay silent
+                ws.send(JSON.stringify({ type: 'pong', id: data.id }));
+                return;
+            }
+            console.log('WebSocket message:', data);
             handleWebSocketMessage(data);
         };
         
-        ws.onclose = () => {
-            console.log('WebSocket disconnected');
+        ws.onclose = (event) => {
+            console.log('WebSocket disconnected', event.code, event.reason);
+            failPendingCalls(new Error('WebSocket disconnected'));
             updateWSStatus('disconnected');
-            wsReconnectTimeout = setTimeout(connectWebSocket, 3000);
+            // 1013: the server is at its connection limit, so wait longer before trying again
+            wsReconnectTimeout = setTimeout(connectWebSocket, event.code === 1013 ? 15000 : 3000);
         };
         
         ws.onerror = (error) => {
@@ -394,17 +418,157 @@ function connectWebSocket() {
     }
 }
 
+// Call a backend operation over the open WebSocket (JSON-RPC); calls are pipelined,
+// so many can be in flight at once. Falls back to the HTTP endpoint while disconnected.
+function rpc(method, params, httpUrl, httpOptions) {
+    if (!ws || ws.readyState !== WebSocket.OPEN) {
+        return fetch(httpUrl, httpOptions).then(response => response.json());
+    }
+    const id = wsNextCallId++;
+    return new Promise((resolve, reject) => {
+        const timer = setTimeout(() => {
+            wsPendingCalls.delete(id);
+            reject(new Error(`${method} timed out after ${RPC_TIMEOUT_MS / 1000}s`));
+        }, RPC_TIMEOUT_MS);
+        wsPendingCalls.set(id, { resolve, reject, timer });
+        ws.send(JSON.stringify({ jsonrpc: '2.0', id, method, params: params || {} }));
+    });
+}
+
+function jsonPost(body, method = 'POST') {
+    return { method, headers: { 'Content-Type': 'application/json' }, body: JSON.stringify(body) };
+}
+
+function handleRpcResponse(response) {
+    const call = wsPendingCalls.get(response.id);
+    if (!call) {
+        return;
+    }
+    wsPendingCalls.delete(response.id);
+    clearTimeout(call.timer);
+    if (response.error) {
+        call.reject(new Error(response.error.message));
+    } else {
+        call.resolve(response.result);
+    }
+}
+
+function failPendingCalls(error) {
+    wsPendingCalls.forEach(call => {
+        clearTimeout(call.timer);
+        call.reject(error);
+    });
+    wsPendingCalls.clear();
+}
+
+// The welcome message is JSON text; later messages are CBOR if the server accepted encoding=cbor
+function parseWebSocketMessage(event) {
+    return typeof event.data === 'string' ? JSON.parse(event.data) : decodeCbor(event.data);
+}
+
+// Decode the CBOR subset the server sends: integers, strings, arrays, maps, floats, booleans and null
+function decodeCbor(buffer) {
+    const view = new DataView(buffer);
+    const utf8 = new TextDecoder();
+    let offset = 0;
+
+    function readLength(info) {
+        if (info < 24) return info;
+        let value;
+        switch (info) {
+            case 24: value = view.getUint8(offset); offset += 1; break;
+            case 25: value = view.getUint16(offset); offset += 2; break;
+            case 26: value = view.getUint32(offset); offset += 4; break;
+            case 27: value = Number(view.getBigUint64(offset)); offset += 8; break;
+            default: throw new Error(`Unsupported CBOR length ${info}`);
+        }
+        return value;
+    }
+
+    function readHalf() {
+        const half = view.getUint16(offset);
+        offset += 2;
+        const exponent = (half >> 10) & 0x1f;
+        const fraction = half & 0x3ff;
+        const sign = half & 0x8000 ? -1 : 1;
+        if (exponent === 0) return sign * fraction * 2 ** -24;
+        if (exponent === 31) return fraction ? NaN : sign * Infinity;
+        return sign * (1 + fraction / 1024) * 2 ** (exponent - 15);
+    }
+
+    function readItem() {
+        const initial = view.getUint8(offset++);
+        const major = initial >> 5;
+        const info = initial & 0x1f;
+        switch (major) {
+            case 0: return readLength(info);
+            case 1: return -1 - readLength(info);
+            case 2:
+            case 3: {
+                const length = readLength(info);
+                const bytes = new Uint8Array(buffer, offset, length);
+                offset += length;
+                return major === 3 ? utf8.decode(bytes) : bytes.slice();
+            }
+            case 4: {
+                const length = readLength(info);
+                const items = new Array(length);
+                for (let i = 0; i < length; i++) items[i] = readItem();
+                return items;
+            }
+            case 5: {
+                const length = readLength(info);
+                const map = {};
+                for (let i = 0; i < length; i++) {
+                    const key = readItem();
+                    map[key] = readItem();
+                }
+                return map;
+            }
+            case 7:
+                switch (info) {
+                    case 20: return false;
+                    case 21: return true;
+                    case 22: return null;
+                    case 23: return undefined;
+                    case 25: return readHalf();
+                    case 26: { const value = view.getFloat32(offset); offset += 4; return value; }
+                    case 27: { const value = view.getFloat64(offset); offset += 8; return value; }
+                }
+        }
+        throw new Error(`Unsupported CBOR item 0x${initial.toString(16)}`);
+    }
+
+    return readItem();
+}
+
 function handleWebSocketMessage(data) {
+    if (typeof data.seq === 'number' && data.type !== 'welcome') {
+        wsLastSeq = Math.max(wsLastSeq, data.seq);
+    }
     switch(data.type) {
-        case 'welcome':
-            showNotification('Connected to server', 'success');
+        case 'welcome': {
+            const wasResuming = wsResumeToken !== null;
+            wsResumeToken = data.resumeToken;
+            if (!data.resumed) {
+                // Fresh session: start counting from now, and reload anything we may have missed
+                wsLastSeq = data.seq || 0;
+                if (wasResuming) {
+                    refreshTasks();
+                }
+            }
+            showNotification(data.resumed ? 'Reconnected to server' : 'Connected to server', 'success');
             break;
+        }
         case 'connectionCount':
             updateConnectionCount(data.count);
             break;
         case 'broadcast':
             showNotification(`Broadcast: ${data.message}`, 'info');
             break;
+        case 'task-updates':
+            data.data.forEach(handleTaskUpdate);
+            break;
     }
 }
 
@@ -470,8 +634,7 @@ async function loadSettings() {
     
     try {
         // Get all settings from backend
-        const response = await fetch(`${API_BASE}/settings/all`);
-        const settings = await response.json();
+        const settings = await rpc('settings.all', {}, `${API_BASE}/settings/all`);
         
         container.innerHTML = createSettingsForm(settings);
     } catch (error) {
@@ -568,13 +731,9 @@ async function saveSettings() {
     });
     
     try {
-        const response = await fetch(`${API_BASE}/settings/save`, {
-            method: 'POST',
-            headers: { 'Content-Type': 'application/json' },
-            body: JSON.stringify(settings)
-        });
+        const result = await rpc('settings.save', settings, `${API_BASE}/settings/save`, jsonPost(settings));
         
-        if (response.ok) {
+        if (result.success) {
             showNotification('Settings saved successfully', 'success');
         } else {
             throw new Error('Failed to save settings');
@@ -595,8 +754,7 @@ async function browseDirectory() {
     }
     
     try {
-        const response = await fetch(`${API_BASE}/files/list?path=${encodeURIComponent(path)}`);
-        const result = await response.json();
+        const result = await rpc('files.list', { path }, `${API_BASE}/files/list?path=${encodeURIComponent(path)}`);
         
         if (result.success) {
             displayFileList(result.files);
@@ -645,8 +803,7 @@ async function readFile() {
     }
     
     try {
-        const response = await fetch(`${API_BASE}/files/read?path=${encodeURIComponent(path)}`);
-        const result = await response.json();
+        const result = await rpc('files.read', { path }, `${API_BASE}/files/read?path=${encodeURIComponent(path)}`);
         
         if (result.success) {
             resultDiv.innerHTML = `
@@ -674,13 +831,7 @@ async function writeFile() {
     }
     
     try {
-        const response = await fetch(`${API_BASE}/files/write`, {
-            method: 'POST',
-            headers: { 'Content-Type': 'application/json' },
-            body: JSON.stringify({ path, content })
-        });
-        
-        const result = await response.json();
+        const result = await rpc('files.write', { path, content }, `${API_BASE}/files/write`, jsonPost({ path, content }));
         
         if (result.success) {
             resultDiv.innerHTML = `<div class="success">${result.message}</div>`;
@@ -1248,8 +1399,7 @@ let taskUpdateInterval;
 
 async function loadTaskStats() {
     try {
-        const response = await fetch(`${API_BASE}/tasks/stats`);
-        const stats = await response.json();
+        const stats = await rpc('tasks.stats', {}, `${API_BASE}/tasks/stats`);
         
         document.getElementById('totalTasks').textContent = stats.total || 0;
         document.getElementById('runningTasks').textContent = stats.running || 0;
@@ -1262,8 +1412,7 @@ async function loadTaskStats() {
 
 async function loadActiveTasks() {
     try {
-        const response = await fetch(`${API_BASE}/tasks`);
-        const data = await response.json();
+        const data = await rpc('tasks.list', {}, `${API_BASE}/tasks`);
         const tasks = data.tasks || [];
         
         const taskList = document.getElementById('taskList');
@@ -1312,17 +1461,12 @@ async function refreshTasks() {
 
 async function submitDemoTask() {
     try {
-        const response = await fetch(`${API_BASE}/tasks/submit`, {
-            method: 'POST',
-            headers: { 'Content-Type': 'application/json' },
-            body: JSON.stringify({
-                name: 'Demo Task',
-                description: 'A demonstration task that simulates work with progress updates',
-                type: 'simple'
-            })
-        });
-        
-        const result = await response.json();
+        const task = {
+            name: 'Demo Task',
+            description: 'A demonstration task that simulates work with progress updates',
+            type: 'simple'
+        };
+        const result = await rpc('tasks.submit', task, `${API_BASE}/tasks/submit`, jsonPost(task));
         if (result.taskId) {
             showNotification('Demo task submitted successfully', 'success');
             await refreshTasks();
@@ -1337,11 +1481,7 @@ async function submitDemoTask() {
 
 async function cancelTask(taskId) {
     try {
-        const response = await fetch(`${API_BASE}/tasks/${taskId}/cancel`, {
-            method: 'POST'
-        });
-        
-        const result = await response.json();
+        const result = await rpc('tasks.cancel', { taskId }, `${API_BASE}/tasks/${taskId}/cancel`, { method: 'POST' });
         if (result.cancelled) {
             showNotification('Task cancelled successfully', 'info');
             await refreshTasks();
@@ -1356,11 +1496,7 @@ async function cancelTask(taskId) {
 
 async function removeTask(taskId) {
     try {
-        const response = await fetch(`${API_BASE}/tasks/${taskId}`, {
-            method: 'DELETE'
-        });
-        
-        const result = await response.json();
+        const result = await rpc('tasks.remove', { taskId }, `${API_BASE}/tasks/${taskId}`, { method: 'DELETE' });
         if (result.removed) {
             showNotification('Task removed successfully', 'info');
             await refreshTasks();
@@ -1375,23 +1511,25 @@ async function removeTask(taskId) {
 
 async function clearCompletedTasks() {
     try {
-        const response = await fetch(`${API_BASE}/tasks`);
-        const data = await response.json();
+        const data = await rpc('tasks.list', {}, `${API_BASE}/tasks`);
         const tasks = data.tasks || [];
         
         const completedTasks = tasks.filter(task => 
             task.status === 'COMPLETED' || task.status === 'FAILED' || task.status === 'CANCELLED'
         );
         
+        // Send all removals at once; over the WebSocket they are pipelined on one connection
+        const results = await Promise.allSettled(completedTasks.map(task =>
+            rpc('tasks.remove', { taskId: task.taskId }, `${API_BASE}/tasks/${task.taskId}`, { method: 'DELETE' })
+        ));
         let removedCount = 0;
-        for (const task of completedTasks) {
-            try {
-                await fetch(`${API_BASE}/tasks/${task.taskId}`, { method: 'DELETE' });
+        results.forEach((result, i) => {
+            if (result.status === 'fulfilled') {
                 removedCount++;
-            } catch (e) {
-                console.warn(`Failed to remove task ${task.taskId}:`, e);
+            } else {
+                console.warn(`Failed to remove task ${completedTasks[i].taskId}:`, result.reason);
             }
-        }
+        });
         
         if (removedCount > 0) {
             showNotification(`Cleared ${removedCount} completed task(s)`, 'success');
@@ -1434,25 +1572,7 @@ function initializeTaskManager() {
     // Set up periodic refresh for stats
     taskUpdateInterval = setInterval(loadTaskStats, 5000); // Update stats every 5 seconds
     
-    // Listen for WebSocket task updates
-    if (ws) {
-        const originalOnMessage = ws.onmessage;
-        ws.onmessage = function(event) {
-            try {
-                const data = JSON.parse(event.data);
-                if (data.type === 'task-update') {
-                    handleTaskUpdate(data.data);
-                }
-            } catch (e) {
-                console.warn('Failed to parse WebSocket message:', e);
-            }
-            
-            // Call original handler if it exists
-            if (originalOnMessage) {
-                originalOnMessage.call(this, event);
-            }
-        };
-    }
+    // WebSocket task updates are handled in handleWebSocketMessage
 }
 
 // Utility function to escape HTML
@@ -0,0 +1,84 @@
+package com.example.app;
+
+import com.google.gson.JsonParseException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ApiRequestsTest {
+
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void readsFieldsAndSkipsUnknownOnes() {
+        ApiRequests.CalculateRequest request = ApiRequests.read(
+            body("{\"num1\":2,\"extra\":{\"a\":[1,2]},\"num2\":\"3.5\",\"operation\":\"multiply\"}"),
+            ApiRequests.CalculateRequest.class);
+
+        assertEquals(new ApiRequests.CalculateRequest(2.0, 3.5, "multiply"), request);
+    }
+
+    @Test
+    void emptyBodyReadsAsNulls() {
+        assertEquals(new ApiRequests.CalculateRequest(null, null, null),
+            ApiRequests.read(body(""), ApiRequests.CalculateRequest.class));
+        assertEquals(new ApiRequests.BroadcastRequest(null),
+            ApiRequests.read(body("{}"), ApiRequests.BroadcastRequest.class));
+    }
+
+    @Test
+    void nonNumericNumberIsAParseError() {
+        JsonParseException e = assertThrows(JsonParseException.class,
+            () -> ApiRequests.read(body("{\"num1\":\"abc\",\"num2\":1}"), ApiRequests.CalculateRequest.class));
+        assertTrue(e.getMessage().contains("$.num1"), e.getMessage());
+    }
+
+    @Test
+    void wrongTypesAreParseErrors() {
+        assertThrows(JsonParseException.class,
+            () -> ApiRequests.read(body("{\"num1\":[1]}"), ApiRequests.CalculateRequest.class));
+        assertThrows(JsonParseException.class,
+            () -> ApiRequests.read(body("{\"success\":\"yes\"}"), ApiRequests.FileOperationNotificationRequest.class));
+        assertThrows(JsonParseException.class,
+            () -> ApiRequests.read(body("{\"message\":{}}"), ApiRequests.BroadcastRequest.class));
+        assertThrows(JsonParseException.class,
+            () -> ApiRequests.read(body("{\"message\":"), ApiRequests.BroadcastRequest.class));
+    }
+
+    @Test
+    void textFieldKeepsLiteralOrJson() {
+        assertEquals("42", ApiRequests.read(body("{\"value\":42}"), ApiRequests.UserDataRequest.class).value());
+        assertEquals("true", ApiRequests.read(body("{\"value\":true}"), ApiRequests.UserDataRequest.class).value());
+        assertEquals("{\"a\":[1,\"b\"]}",
+            ApiRequests.read(body("{\"value\":{\"a\":[1,\"b\"]}}"), ApiRequests.UserDataRequest.class).value());
+    }
+
+    @Test
+    void stringListIgnoresNonArrays() {
+        assertEquals(List.of("logs", "api_calls"),
+            ApiRequests.read(body("{\"tables\":[\"logs\",\"api_calls\"]}"), ApiRequests.ExportRequest.class).tables());
+        assertNull(ApiRequests.read(body("{\"tables\":\"logs\"}"), ApiRequests.ExportRequest.class).tables());
+    }
+
+    @Test
+    void readMapAcceptsArbitraryKeys() {
+        assertEquals(Map.of("theme", "dark"), ApiRequests.readMap(body("{\"theme\":\"dark\"}")));
+        assertEquals(Map.of(), ApiRequests.readMap(body("")));
+    }
+
+    @Test
+    void unregisteredTypeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ApiRequests.read(body("{}"), String.class));
+    }
+}
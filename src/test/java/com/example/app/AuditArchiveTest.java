@@ -0,0 +1,232 @@
+package com.example.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditArchiveTest {
+
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+    private AuditArchive archive;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("test.db"), 2, 1024, 0, 16);
+        try (ConnectionPool.PooledConnection conn = pool.writer();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE app_logs (id INTEGER PRIMARY KEY AUTOINCREMENT, timestamp TEXT, level TEXT NOT NULL,"
+                + " message TEXT, score REAL, payload BLOB)");
+        }
+        archive = new AuditArchive(pool, table -> rows().size());
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        pool.close();
+    }
+
+    private void insert(String timestamp, String level, String message, Double score, byte[] payload) throws SQLException {
+        try (ConnectionPool.PooledConnection conn = pool.writer();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO app_logs (timestamp, level, message, score, payload) VALUES (?, ?, ?, ?, ?)")) {
+            stmt.setString(1, timestamp);
+            stmt.setString(2, level);
+            stmt.setString(3, message);
+            stmt.setObject(4, score);
+            stmt.setBytes(5, payload);
+            stmt.executeUpdate();
+        }
+    }
+
+    private List<List<Object>> rows() {
+        List<List<Object>> rows = new ArrayList<>();
+        try (ConnectionPool.PooledConnection conn = pool.reader();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT timestamp, level, message, score, payload FROM app_logs ORDER BY id")) {
+            while (rs.next()) {
+                byte[] payload = rs.getBytes(5);
+                rows.add(Arrays.asList(rs.getString(1), rs.getString(2), rs.getString(3), rs.getObject(4),
+                    payload != null ? Arrays.toString(payload) : null));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        return rows;
+    }
+
+    private void clear() throws SQLException {
+        try (ConnectionPool.PooledConnection conn = pool.writer();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM app_logs");
+        }
+    }
+
+    private static byte[] gunzip(Path file) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static void gzip(Path file, byte[] bytes) throws IOException {
+        try (GZIPOutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    void binaryExportImportsBackWithEveryValueType() throws Exception {
+        insert("2025-01-01 00:00:00", "INFO", "first, with \"quotes\"", 1.5, null);
+        insert("2025-01-01 00:00:01", "ERROR", "x".repeat(70_000), null, new byte[] { 0, 1, -1 });
+        insert("2025-01-01 00:00:02", "WARN", null, -2.0, new byte[0]);
+        List<List<Object>> original = rows();
+        Path file = dir.resolve("app_logs" + AuditArchive.BINARY_EXTENSION);
+
+        List<Double> progress = new ArrayList<>();
+        assertEquals(3, archive.exportTable("app_logs", AuditArchive.Format.BINARY, file, progress::add));
+        assertEquals(100.0, progress.get(progress.size() - 1));
+
+        clear();
+        Map<String, Object> summary = archive.importFile(file, p -> { });
+
+        assertEquals("app_logs", summary.get("table"));
+        assertEquals(3L, summary.get("rows"));
+        assertEquals(original, rows());
+    }
+
+    @Test
+    void csvExportQuotesFieldsAndEncodesBlobs() throws Exception {
+        insert("2025-01-01 00:00:00", "INFO", "a,b \"c\"", null, new byte[] { 1, 2, 3 });
+        Path file = dir.resolve("app_logs" + AuditArchive.CSV_EXTENSION);
+
+        assertEquals(1, archive.exportTable("app_logs", AuditArchive.Format.CSV, file, p -> { }));
+
+        assertEquals("id,timestamp,level,message,score,payload\r\n"
+            + "1,2025-01-01 00:00:00,INFO,\"a,b \"\"c\"\"\",,AQID\r\n", Files.readString(file));
+    }
+
+    @Test
+    void truncatedExportLeavesTableUntouched() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            insert("2025-01-01 00:00:0" + i, "INFO", "message " + i, null, null);
+        }
+        Path file = dir.resolve("full" + AuditArchive.BINARY_EXTENSION);
+        archive.exportTable("app_logs", AuditArchive.Format.BINARY, file, p -> { });
+        byte[] data = gunzip(file);
+        clear();
+        insert("2025-02-01 00:00:00", "INFO", "kept", null, null);
+        List<List<Object>> before = rows();
+
+        // Cut off inside the last rows, before the END marker and row count
+        Path cut = dir.resolve("cut" + AuditArchive.BINARY_EXTENSION);
+        gzip(cut, Arrays.copyOf(data, data.length - 30));
+        IOException e = assertThrows(IOException.class, () -> archive.importFile(cut, p -> { }));
+        assertTrue(e.getMessage().contains("truncated"), e.getMessage());
+        assertEquals(before, rows());
+    }
+
+    @Test
+    void rowCountMismatchLeavesTableUntouched() throws Exception {
+        insert("2025-02-01 00:00:00", "INFO", "kept", null, null);
+        List<List<Object>> before = rows();
+
+        // One row, but the trailer declares two
+        Path file = dir.resolve("short" + AuditArchive.BINARY_EXTENSION);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = header(bytes, "level")) {
+            out.writeByte(1);
+            out.writeByte(3);
+            out.writeInt(4);
+            out.write("INFO".getBytes(StandardCharsets.UTF_8));
+            out.writeByte(0);
+            out.writeLong(2);
+        }
+        gzip(file, bytes.toByteArray());
+
+        IOException e = assertThrows(IOException.class, () -> archive.importFile(file, p -> { }));
+        assertTrue(e.getMessage().contains("expected 2 rows"), e.getMessage());
+        assertEquals(before, rows());
+    }
+
+    private static DataOutputStream header(ByteArrayOutputStream bytes, String... columns) throws IOException {
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF("JWAUDIT");
+        out.writeInt(1);
+        out.writeUTF("app_logs");
+        out.writeInt(columns.length);
+        for (String column : columns) {
+            out.writeUTF(column);
+        }
+        return out;
+    }
+
+    @Test
+    void rejectsFilesThatAreNotExports() throws Exception {
+        Path file = dir.resolve("other" + AuditArchive.BINARY_EXTENSION);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF("NOTAUDIT");
+        }
+        gzip(file, bytes.toByteArray());
+
+        IOException e = assertThrows(IOException.class, () -> archive.importFile(file, p -> { }));
+        assertTrue(e.getMessage().startsWith("Not an audit export file"), e.getMessage());
+    }
+
+    @Test
+    void rejectsCorruptLengthsBeforeAllocating() throws Exception {
+        Path file = dir.resolve("corrupt" + AuditArchive.BINARY_EXTENSION);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = header(bytes, "message")) {
+            out.writeByte(1);
+            out.writeByte(3);
+            out.writeInt(Integer.MAX_VALUE);
+        }
+        gzip(file, bytes.toByteArray());
+
+        IOException e = assertThrows(IOException.class, () -> archive.importFile(file, p -> { }));
+        assertTrue(e.getMessage().contains("invalid value length"), e.getMessage());
+
+        bytes.reset();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF("JWAUDIT");
+            out.writeInt(1);
+            out.writeUTF("app_logs");
+            out.writeInt(-1);
+        }
+        gzip(file, bytes.toByteArray());
+        e = assertThrows(IOException.class, () -> archive.importFile(file, p -> { }));
+        assertTrue(e.getMessage().contains("invalid column count"), e.getMessage());
+    }
+
+    @Test
+    void rejectsTablesOutsideTheAuditSet() {
+        assertThrows(IllegalArgumentException.class, () -> AuditArchive.requireAuditTable("user_data"));
+        assertThrows(IllegalArgumentException.class,
+            () -> archive.exportTable("user_data", AuditArchive.Format.BINARY, dir.resolve("x"), p -> { }));
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditLogWriterTest {
+    private static final String INSERT = "INSERT INTO app_logs (message) VALUES (?)";
+
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("test.db"), 1, 1024, 0, 16);
+        try (ConnectionPool.PooledConnection conn = pool.writer();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE app_logs (id INTEGER PRIMARY KEY AUTOINCREMENT, message TEXT)");
+        }
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        pool.close();
+    }
+
+    private long rowCount() throws SQLException {
+        try (ConnectionPool.PooledConnection conn = pool.reader();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM app_logs")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static void awaitEmpty(AuditLogWriter writer) throws InterruptedException {
+        for (int i = 0; i < 500 && writer.getQueueDepth() > 0; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void shutdownFlushesEverythingQueued() throws Exception {
+        AuditLogWriter writer = new AuditLogWriter(pool, 100, 10, 50, AuditLogWriter.OverflowPolicy.BLOCK, 1);
+        for (int i = 0; i < 25; i++) {
+            writer.submit(INSERT, "message " + i);
+        }
+        writer.shutdown(5000);
+
+        Map<String, Object> stats = writer.getStats();
+        assertEquals(25L, stats.get("enqueued"));
+        assertEquals(25L, stats.get("written"));
+        assertEquals(25L, rowCount());
+    }
+
+    @Test
+    void producerBlockedAtShutdownIsCountedAsDropped() throws Exception {
+        AuditLogWriter writer = new AuditLogWriter(pool, 1, 1, 10, AuditLogWriter.OverflowPolicy.BLOCK, 1);
+        Thread producer;
+        Thread stopper;
+        // Holding the writer connection stalls the writer thread inside its first batch
+        try (ConnectionPool.PooledConnection hold = pool.writer()) {
+            writer.submit(INSERT, "first");
+            awaitEmpty(writer);
+            writer.submit(INSERT, "second");
+
+            producer = new Thread(() -> writer.submit(INSERT, "blocked"));
+            producer.start();
+            Thread.sleep(50);
+            stopper = new Thread(() -> writer.shutdown(10_000));
+            stopper.start();
+            producer.join(5000);
+            assertFalse(producer.isAlive());
+        }
+        stopper.join(10_000);
+
+        Map<String, Object> stats = writer.getStats();
+        assertEquals(2L, stats.get("enqueued"));
+        assertEquals(2L, stats.get("written"));
+        assertEquals(1L, stats.get("dropped"));
+        assertEquals(2L, rowCount());
+    }
+
+    @Test
+    void badEntryOnlyLosesItselfNotItsBatch() throws Exception {
+        try (ConnectionPool.PooledConnection conn = pool.writer();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE strict_logs (id INTEGER PRIMARY KEY AUTOINCREMENT, message TEXT NOT NULL)");
+        }
+        String strictInsert = "INSERT INTO strict_logs (message) VALUES (?)";
+        // One full batch of three; the middle entry violates NOT NULL
+        AuditLogWriter writer = new AuditLogWriter(pool, 10, 3, 10_000, AuditLogWriter.OverflowPolicy.BLOCK, 1);
+        writer.submit(strictInsert, "good 1");
+        writer.submit(strictInsert, (Object) null);
+        writer.submit(strictInsert, "good 2");
+        writer.shutdown(5000);
+
+        Map<String, Object> stats = writer.getStats();
+        assertEquals(2L, stats.get("written"));
+        assertEquals(1L, stats.get("failed"));
+        try (ConnectionPool.PooledConnection conn = pool.reader();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT message FROM strict_logs ORDER BY id")) {
+            assertTrue(rs.next());
+            assertEquals("good 1", rs.getString(1));
+            assertTrue(rs.next());
+            assertEquals("good 2", rs.getString(1));
+            assertFalse(rs.next());
+        }
+    }
+
+    @Test
+    void entriesAfterShutdownAreDropped() throws Exception {
+        AuditLogWriter writer = new AuditLogWriter(pool, 10, 10, 10, AuditLogWriter.OverflowPolicy.DROP_OLDEST, 1);
+        writer.shutdown(5000);
+        writer.submit(INSERT, "late");
+
+        assertEquals(1L, writer.getStats().get("dropped"));
+        assertEquals(0, writer.getQueueDepth());
+        assertEquals(0L, rowCount());
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.app;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Encodings from RFC 8949 Appendix A. Floats that the RFC writes as
+ * half precision come out as single precision here, which is just as valid.
+ */
+class CborEncoderTest {
+    private final CborEncoder encoder = new CborEncoder(new Gson());
+
+    private String hex(Object value) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.write(value, out);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : out.toByteArray()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    @Test
+    void unsignedIntegers() throws IOException {
+        assertEquals("00", hex(0));
+        assertEquals("01", hex(1));
+        assertEquals("0a", hex(10));
+        assertEquals("17", hex(23));
+        assertEquals("1818", hex(24));
+        assertEquals("1819", hex(25));
+        assertEquals("1864", hex(100));
+        assertEquals("1903e8", hex(1000));
+        assertEquals("1a000f4240", hex(1000000));
+        assertEquals("1b000000e8d4a51000", hex(1000000000000L));
+        assertEquals("1b7fffffffffffffff", hex(Long.MAX_VALUE));
+    }
+
+    @Test
+    void negativeIntegers() throws IOException {
+        assertEquals("20", hex(-1));
+        assertEquals("29", hex(-10));
+        assertEquals("3863", hex(-100));
+        assertEquals("3903e7", hex(-1000));
+        assertEquals("3b7fffffffffffffff", hex(Long.MIN_VALUE));
+    }
+
+    @Test
+    void floats() throws IOException {
+        assertEquals("fb3ff199999999999a", hex(1.1));
+        assertEquals("fa3fc00000", hex(1.5));
+        assertEquals("fa7f7fffff", hex(3.4028234663852886e+38));
+        assertEquals("fb7e37e43c8800759c", hex(1.0e+300));
+        assertEquals("fbc010666666666666", hex(-4.1));
+        assertEquals("fa7f800000", hex(Double.POSITIVE_INFINITY));
+        assertEquals("faff800000", hex(Double.NEGATIVE_INFINITY));
+        assertEquals("fa7fc00000", hex(Double.NaN));
+        assertEquals("fa80000000", hex(-0.0));
+    }
+
+    @Test
+    void integralDoublesAreWrittenAsIntegers() throws IOException {
+        assertEquals("00", hex(0.0));
+        assertEquals("1a000186a0", hex(100000.0));
+        assertEquals("3903e7", hex(-1000.0));
+        // Beyond 2^53 a double is no longer an exact integer in JavaScript
+        assertEquals("fa5f000000", hex(9.223372036854775807e18));
+    }
+
+    @Test
+    void simpleValues() throws IOException {
+        assertEquals("f4", hex(false));
+        assertEquals("f5", hex(true));
+        assertEquals("f6", hex(null));
+    }
+
+    @Test
+    void textStrings() throws IOException {
+        assertEquals("60", hex(""));
+        assertEquals("6161", hex("a"));
+        assertEquals("6449455446", hex("IETF"));
+        assertEquals("62225c", hex("\"\\"));
+        assertEquals("62c3bc", hex("ü"));
+        assertEquals("63e6b0b4", hex("水"));
+        assertEquals("64f0908591", hex("𐅑"));
+    }
+
+    @Test
+    void arrays() throws IOException {
+        assertEquals("80", hex(List.of()));
+        assertEquals("83010203", hex(List.of(1, 2, 3)));
+        assertEquals("8301820203820405", hex(List.of(1, List.of(2, 3), List.of(4, 5))));
+        assertEquals("83010203", hex(new int[] { 1, 2, 3 }));
+
+        List<Integer> longList = new ArrayList<>();
+        for (int i = 1; i <= 25; i++) {
+            longList.add(i);
+        }
+        assertEquals("98190102030405060708090a0b0c0d0e0f101112131415161718181819", hex(longList));
+    }
+
+    @Test
+    void maps() throws IOException {
+        assertEquals("a0", hex(Map.of()));
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("a", 1);
+        map.put("b", List.of(2, 3));
+        assertEquals("a26161016162820203", hex(map));
+
+        assertEquals("826161a161626163", hex(List.of("a", Map.of("b", "c"))));
+    }
+
+    @Test
+    void nullMapEntriesAreLeftOut() throws IOException {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("a", null);
+        map.put("b", 1);
+        assertEquals("a1616201", hex(map));
+    }
+
+    @Test
+    void jsonTreesEncodeLikeTheirMaps() throws IOException {
+        assertEquals("a26161016162820203", hex(JsonParser.parseString("{\"a\":1,\"b\":[2,3]}")));
+        assertEquals("a1616201", hex(JsonParser.parseString("{\"a\":null,\"b\":1}")));
+    }
+
+    private record Point(int x, String label) {
+    }
+
+    private enum Level { INFO }
+
+    @Test
+    void otherObjectsEncodeAsGsonWouldSerializeThem() throws IOException {
+        // {"x": 1, "label": "a"}
+        assertEquals("a2617801656c6162656c6161", hex(new Point(1, "a")));
+        assertEquals("64494e464f", hex(Level.INFO));
+        assertEquals("6161", hex('a'));
+    }
+}
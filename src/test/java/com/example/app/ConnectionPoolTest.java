@@ -0,0 +1,64 @@
+package com.example.app;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionPoolTest {
+
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("test.db"), 2, 1024, 0, 16);
+        try (ConnectionPool.PooledConnection conn = pool.writer();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE items (id INTEGER PRIMARY KEY)");
+            stmt.execute("WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < 100)"
+                + " INSERT INTO items SELECT i FROM n");
+        }
+    }
+
+    @Test
+    void closeWaitsForBorrowedReaders() throws Exception {
+        Thread closer;
+        long rows = 0;
+        try (ConnectionPool.PooledConnection conn = pool.reader();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id FROM items ORDER BY id")) {
+            closer = new Thread(pool::close);
+            closer.start();
+            Thread.sleep(100);
+            assertTrue(closer.isAlive(), "close() returned while a reader was borrowed");
+
+            while (rs.next()) {
+                rows++;
+            }
+        }
+        closer.join(5000);
+
+        assertFalse(closer.isAlive());
+        assertEquals(100, rows);
+    }
+
+    @Test
+    void readersCannotBeBorrowedAfterClose() {
+        pool.close();
+
+        SQLException e = assertThrows(SQLException.class, pool::reader);
+        assertEquals("Database connection pool is closed", e.getMessage());
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DatabaseManagerCursorTest {
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void keysetCursorRoundTrips() {
+        String cursor = DatabaseManager.encodeCursor("2025-01-31 23:59:59.123", 42);
+        assertArrayEquals(new String[] { "2025-01-31 23:59:59.123", "42" }, DatabaseManager.decodeCursor(cursor));
+    }
+
+    @Test
+    void keysetCursorIsUrlSafe() {
+        String cursor = DatabaseManager.encodeCursor("2025-01-31T23:59:59+07:00", Long.MAX_VALUE);
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"), cursor);
+        assertArrayEquals(new String[] { "2025-01-31T23:59:59+07:00", String.valueOf(Long.MAX_VALUE) },
+            DatabaseManager.decodeCursor(cursor));
+    }
+
+    @Test
+    void keysetCursorKeepsSeparatorInTimestamp() {
+        String cursor = DatabaseManager.encodeCursor("a|b", 7);
+        assertArrayEquals(new String[] { "a|b", "7" }, DatabaseManager.decodeCursor(cursor));
+    }
+
+    @Test
+    void keysetCursorRejectsGarbage() {
+        assertThrows(IllegalArgumentException.class, () -> DatabaseManager.decodeCursor("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> DatabaseManager.decodeCursor(encode("no-separator")));
+        assertThrows(IllegalArgumentException.class, () -> DatabaseManager.decodeCursor(encode("|5")));
+        assertThrows(IllegalArgumentException.class, () -> DatabaseManager.decodeCursor(encode("2025-01-01|abc")));
+    }
+
+    @Test
+    void offsetCursorRoundTrips() {
+        for (int offset : new int[] { 0, 1, 50, 100_000 }) {
+            assertEquals(offset, DatabaseManager.decodeOffsetCursor(DatabaseManager.encodeOffsetCursor(offset)));
+        }
+    }
+
+    @Test
+    void offsetCursorClampsNegativeOffset() {
+        assertEquals(0, DatabaseManager.decodeOffsetCursor(encode("offset|-10")));
+    }
+
+    @Test
+    void offsetCursorRejectsKeysetCursor() {
+        String keyset = DatabaseManager.encodeCursor("2025-01-01 00:00:00", 1);
+        assertThrows(IllegalArgumentException.class, () -> DatabaseManager.decodeOffsetCursor(keyset));
+        assertThrows(IllegalArgumentException.class, () -> DatabaseManager.decodeOffsetCursor(encode("offset|x")));
+    }
+}
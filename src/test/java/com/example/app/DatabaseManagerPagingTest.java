@@ -0,0 +1,251 @@
+package com.example.app;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs keyset pagination against the real schema. Surefire points user.home
+ * at target/test-home, so this is a scratch database, not the user's.
+ */
+class DatabaseManagerPagingTest {
+    private static DatabaseManager database;
+    private static String dbUrl;
+
+    @BeforeAll
+    static void openDatabase() {
+        database = DatabaseManager.getInstance();
+        Path dbPath = Paths.get(System.getProperty("user.home"), ".java-webview-app", "java-webview.db");
+        dbUrl = "jdbc:sqlite:" + dbPath;
+    }
+
+    private static Connection connect() throws SQLException {
+        Connection conn = DriverManager.getConnection(dbUrl);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = 5000");
+        }
+        return conn;
+    }
+
+    // Five rows per timestamp, so most page boundaries fall inside a run of equal timestamps
+    private static List<String> insertLogs(String category, int count) throws SQLException {
+        List<String> messages = new ArrayList<>();
+        try (Connection conn = connect();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO app_logs (timestamp, level, category, message) VALUES (?, 'INFO', ?, ?)")) {
+            for (int i = 0; i < count; i++) {
+                String message = category + "-" + i;
+                stmt.setString(1, String.format("2025-01-01 00:%02d:%02d", i / 300, i / 5 % 60));
+                stmt.setString(2, category);
+                stmt.setString(3, message);
+                stmt.executeUpdate();
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    // Follow nextCursor from the first page to the last, collecting every message
+    private static List<String> walk(Function<String, Map<String, Object>> pages, int pageSize) {
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        for (int guard = 0; guard < 1000; guard++) {
+            Map<String, Object> page = pages.apply(cursor);
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> items = (List<Map<String, Object>>) page.get("items");
+            assertTrue(items.size() <= pageSize);
+            for (Map<String, Object> item : items) {
+                seen.add((String) item.get("message"));
+            }
+            cursor = (String) page.get("nextCursor");
+            assertEquals(cursor != null, page.get("hasMore"));
+            if (cursor == null) {
+                return seen;
+            }
+            assertEquals(pageSize, items.size(), "only the last page may be short");
+        }
+        throw new AssertionError("pagination did not terminate");
+    }
+
+    private static String category() {
+        return "paging-" + UUID.randomUUID();
+    }
+
+    @Test
+    void walksEveryRowOnceAcrossEqualTimestamps() throws SQLException {
+        String category = category();
+        List<String> inserted = insertLogs(category, 23);
+
+        List<String> seen = walk(cursor -> database.getLogsPage(category, cursor, 4), 4);
+
+        assertEquals(inserted.size(), seen.size());
+        assertEquals(new HashSet<>(inserted), new HashSet<>(seen));
+        // Newest first: higher timestamps, then higher ids, come first
+        List<String> expected = new ArrayList<>(inserted);
+        Collections.reverse(expected);
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void exactMultipleOfPageSizeEndsWithoutEmptyPage() throws SQLException {
+        String category = category();
+        insertLogs(category, 10);
+
+        Map<String, Object> first = database.getLogsPage(category, null, 5);
+        assertEquals(Boolean.TRUE, first.get("hasMore"));
+        assertNotNull(first.get("nextCursor"));
+
+        Map<String, Object> second = database.getLogsPage(category, (String) first.get("nextCursor"), 5);
+        assertEquals(5, ((List<?>) second.get("items")).size());
+        assertEquals(Boolean.FALSE, second.get("hasMore"));
+        assertNull(second.get("nextCursor"));
+    }
+
+    @Test
+    void singlePageHasNoCursor() throws SQLException {
+        String category = category();
+        insertLogs(category, 3);
+
+        Map<String, Object> page = database.getLogsPage(category, null, 3);
+        assertEquals(3, ((List<?>) page.get("items")).size());
+        assertEquals(Boolean.FALSE, page.get("hasMore"));
+        assertNull(page.get("nextCursor"));
+    }
+
+    @Test
+    void streamReadsEveryRowAcrossChunks() throws Exception {
+        String category = category();
+        int total = DatabaseManager.STREAM_CHUNK_SIZE * 2 + 7;
+        List<String> expected = insertLogs(category, total);
+        Collections.reverse(expected);
+
+        List<String> seen = new ArrayList<>();
+        long count = database.streamLogs(category, 0, row -> seen.add((String) row.get("message")));
+
+        assertEquals(total, count);
+        assertEquals(expected, seen);
+
+        List<String> limited = new ArrayList<>();
+        int limit = DatabaseManager.STREAM_CHUNK_SIZE + 3;
+        assertEquals(limit, database.streamLogs(category, limit, row -> limited.add((String) row.get("message"))));
+        assertEquals(expected.subList(0, limit), limited);
+    }
+
+    @Test
+    void streamReleasesTheReaderBeforeCallingBack() throws Exception {
+        String category = category();
+        insertLogs(category, 3);
+
+        // Nest more streams than the pool has readers; this only completes if
+        // no reader is held while the callback runs
+        assertEquals(10, nestedStreams(category, 10));
+    }
+
+    private static int nestedStreams(String category, int depth) throws Exception {
+        if (depth == 0) {
+            return 0;
+        }
+        int[] deepest = new int[1];
+        database.streamLogs(category, 1, row -> {
+            try {
+                deepest[0] = nestedStreams(category, depth - 1);
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        });
+        return deepest[0] + 1;
+    }
+
+    @Test
+    void endpointFilterOnlyPagesMatchingRows() throws SQLException {
+        String endpoint = "/paging/" + UUID.randomUUID();
+        Set<String> expected = new HashSet<>();
+        try (Connection conn = connect();
+             PreparedStatement stmt = conn.prepareStatement("INSERT INTO api_calls"
+                 + " (timestamp, method, endpoint, status_code, response_time, success) VALUES (?, 'GET', ?, 200, ?, 1)")) {
+            for (int i = 0; i < 12; i++) {
+                stmt.setString(1, "2025-01-01 00:00:0" + (i / 4));
+                stmt.setString(2, i % 3 == 0 ? endpoint + "/other" : endpoint);
+                stmt.setInt(3, i);
+                stmt.executeUpdate();
+                if (i % 3 != 0) {
+                    expected.add(String.valueOf(i));
+                }
+            }
+        }
+
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            Map<String, Object> page = database.getApiCallsPage(endpoint, cursor, 3);
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> items = (List<Map<String, Object>>) page.get("items");
+            for (Map<String, Object> item : items) {
+                assertEquals(endpoint, item.get("endpoint"));
+                seen.add(String.valueOf(item.get("response_time")));
+            }
+            cursor = (String) page.get("nextCursor");
+        } while (cursor != null);
+
+        assertEquals(expected.size(), seen.size());
+        assertEquals(expected, new HashSet<>(seen));
+    }
+
+    @Test
+    void migrationAddsTimestampIndexes() throws SQLException {
+        Set<String> indexes = new HashSet<>();
+        try (Connection conn = connect();
+             Statement stmt = conn.createStatement()) {
+            for (String table : List.of("app_logs", "file_operations", "websocket_messages", "api_calls", "notifications")) {
+                try (ResultSet rs = stmt.executeQuery("PRAGMA index_list(" + table + ")")) {
+                    while (rs.next()) {
+                        indexes.add(rs.getString("name"));
+                    }
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+                assertTrue(rs.next());
+                assertTrue(rs.getInt(1) >= 1);
+            }
+            // The paged query is an index range seek, not a scan and sort
+            try (ResultSet rs = stmt.executeQuery("EXPLAIN QUERY PLAN SELECT id FROM app_logs WHERE category = 'x'"
+                    + " AND (timestamp, id) < ('2025', 1) ORDER BY timestamp DESC, id DESC LIMIT 5")) {
+                StringBuilder plan = new StringBuilder();
+                while (rs.next()) {
+                    plan.append(rs.getString("detail")).append('\n');
+                }
+                assertTrue(plan.toString().contains("idx_app_logs_category_timestamp"), plan.toString());
+                assertFalse(plan.toString().contains("USE TEMP B-TREE"), plan.toString());
+            }
+        }
+
+        for (String index : List.of("idx_app_logs_timestamp", "idx_app_logs_category_timestamp",
+                "idx_file_operations_timestamp", "idx_websocket_messages_timestamp", "idx_api_calls_timestamp",
+                "idx_api_calls_endpoint_timestamp", "idx_notifications_timestamp")) {
+            assertTrue(indexes.contains(index), index);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0.0, histogram.getMean());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(100, histogram.getTotalCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean());
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        assertEquals(99, histogram.getValueAtPercentile(99));
+        assertEquals(100, histogram.getValueAtPercentile(100));
+        assertEquals(1, histogram.getValueAtPercentile(0));
+    }
+
+    @Test
+    void largeValuesStayWithinBucketPrecision() {
+        for (long value : new long[] { 256, 257, 1_000, 123_456, 987_654_321L, Long.MAX_VALUE / 3 }) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value);
+            histogram.record(value * 2 > 0 ? value * 2 : Long.MAX_VALUE);
+
+            long reported = histogram.getValueAtPercentile(50);
+            assertTrue(reported >= value && reported <= value + value / 128, value + " reported as " + reported);
+        }
+    }
+
+    @Test
+    void negativeValuesCountAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+
+        assertEquals(1, histogram.getTotalCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    void valuesAboveTrackableRangeShareTopBucketButKeepExactMax() {
+        LatencyHistogram histogram = new LatencyHistogram(1_000);
+        histogram.record(10);
+        histogram.record(5_000);
+        histogram.record(1_000_000);
+
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(10, histogram.getValueAtPercentile(33));
+        // The top bucket reports the exact maximum rather than its own bound
+        assertEquals(1_000_000, histogram.getValueAtPercentile(50));
+        assertEquals(1_000_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void percentileDistributionUsesHgrmLayout() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 1_000; value++) {
+            histogram.record(value * 10L);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        histogram.outputPercentileDistribution(new PrintStream(bytes, true, StandardCharsets.UTF_8), 10.0);
+        List<String> lines = bytes.toString(StandardCharsets.UTF_8).lines().toList();
+
+        assertTrue(lines.get(0).trim().matches("Value\\s+Percentile\\s+TotalCount\\s+1/\\(1-Percentile\\)"), lines.get(0));
+        assertEquals("", lines.get(1));
+        assertTrue(lines.get(2).trim().startsWith("1.000 0.001000000000"), lines.get(2));
+        String last = lines.get(lines.size() - 4).trim();
+        assertTrue(last.matches("1000\\.000 1\\.000000000000\\s+1000"), last);
+        assertTrue(lines.get(lines.size() - 3).startsWith("#[Mean    =      500.500"), lines.get(lines.size() - 3));
+        assertTrue(lines.get(lines.size() - 2).matches("#\\[Max     =\\s+1000\\.000, Total count    =\\s+1000\\]"),
+            lines.get(lines.size() - 2));
+    }
+}
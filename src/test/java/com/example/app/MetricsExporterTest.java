@@ -0,0 +1,97 @@
+package com.example.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsExporterTest {
+
+    private static List<String> lines(MetricsExporter.Text out) {
+        return out.toString().lines().toList();
+    }
+
+    @Test
+    void familiesHaveTypeUnitAndHelpBeforeSamples() {
+        MetricsExporter.Text out = new MetricsExporter.Text();
+        out.family("request_seconds", "summary", "seconds", "Request latency");
+        out.sample("request_seconds_count", 3);
+        out.counter("jobs", "Jobs run", 2);
+        out.gauge("queue_depth", "Queued items", 0.25);
+        out.eof();
+
+        assertEquals(List.of(
+            "# TYPE request_seconds summary",
+            "# UNIT request_seconds seconds",
+            "# HELP request_seconds Request latency",
+            "request_seconds_count 3",
+            "# TYPE jobs counter",
+            "# HELP jobs Jobs run",
+            "jobs_total 2",
+            "# TYPE queue_depth gauge",
+            "# HELP queue_depth Queued items",
+            "queue_depth 0.25",
+            "# EOF"), lines(out));
+    }
+
+    @Test
+    void labelValuesAreEscaped() {
+        MetricsExporter.Text out = new MetricsExporter.Text();
+        out.sample("m", 1, "path", "a\\b", "name", "say \"hi\"\nbye");
+
+        assertEquals("m{path=\"a\\\\b\",name=\"say \\\"hi\\\"\\nbye\"} 1\n", out.toString());
+    }
+
+    @Test
+    void largeAndFractionalValuesKeepTheirPrecision() {
+        MetricsExporter.Text out = new MetricsExporter.Text();
+        out.sample("a", 1e15);
+        out.sample("b", -3);
+        out.sample("c", 1.5e-9);
+
+        assertEquals(List.of("a 1.0E15", "b -3", "c 1.5E-9"), lines(out));
+    }
+
+    @Test
+    void httpRoutesReportQuantilesSumCountMaxAndStatusClasses() {
+        ApiMetrics metrics = new ApiMetrics(0);
+        metrics.record("GET", "/metrics", 200, 2_000_000);
+        metrics.record("GET", "/metrics", 200, 4_000_000);
+        metrics.record("GET", "/metrics", 503, 6_000_000);
+
+        MetricsExporter.Text out = new MetricsExporter.Text();
+        new MetricsExporter(metrics).writeHttp(out);
+        List<String> lines = lines(out);
+
+        String labels = "method=\"GET\",route=\"/metrics\"";
+        // Below the maximum a quantile is its bucket's upper bound, within 0.8% of the recorded value
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("http_server_request_duration_seconds{" + labels
+            + ",quantile=\"0.5\"} 0.0040")), out.toString());
+        assertTrue(lines.contains("http_server_request_duration_seconds{" + labels + ",quantile=\"0.99\"} 0.006"), out.toString());
+        assertTrue(lines.contains("http_server_request_duration_seconds_sum{" + labels + "} 0.012"), out.toString());
+        assertTrue(lines.contains("http_server_request_duration_seconds_count{" + labels + "} 3"), out.toString());
+        assertTrue(lines.contains("http_server_request_duration_max_seconds{" + labels + "} 0.006"), out.toString());
+        assertTrue(lines.contains("http_server_requests_total{" + labels + ",status=\"2xx\"} 2"), out.toString());
+        assertTrue(lines.contains("http_server_requests_total{" + labels + ",status=\"5xx\"} 1"), out.toString());
+        assertTrue(lines.stream().noneMatch(line -> line.contains("status=\"4xx\"")), out.toString());
+    }
+
+    @Test
+    void summaryOfEmptyHistogramIsZero() {
+        MetricsExporter.Text out = new MetricsExporter.Text();
+        MetricsExporter.writeSummary(out, "wait_seconds", "Wait", new LatencyHistogram());
+        MetricsExporter.writeSummary(out, "missing_seconds", "Missing", null);
+
+        assertEquals(List.of(
+            "# TYPE wait_seconds summary",
+            "# UNIT wait_seconds seconds",
+            "# HELP wait_seconds Wait",
+            "wait_seconds{quantile=\"0.5\"} 0",
+            "wait_seconds{quantile=\"0.95\"} 0",
+            "wait_seconds{quantile=\"0.99\"} 0",
+            "wait_seconds_sum 0",
+            "wait_seconds_count 0"), lines(out));
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayBufferTest {
+
+    private static long publish(ReplayBuffer buffer, String topic, String message) {
+        return publish(buffer, topic, message, null);
+    }
+
+    private static long publish(ReplayBuffer buffer, String topic, String message, String coalesceKey) {
+        long seq = buffer.nextSeq();
+        buffer.record(topic, seq, message, coalesceKey);
+        return seq;
+    }
+
+    @Test
+    void resumeReturnsMissedMessagesInSequenceOrder() {
+        ReplayBuffer buffer = new ReplayBuffer(10);
+        long seen = publish(buffer, "logs", "log-1");
+        publish(buffer, "tasks/a", "task-a");
+        publish(buffer, "logs", "log-2");
+        publish(buffer, "tasks/b", "task-b");
+
+        assertEquals(List.of("task-a", "log-2", "task-b"), buffer.since(seen, List.of("logs", "tasks/*")));
+    }
+
+    @Test
+    void resumeSkipsTopicsNotSubscribed() {
+        ReplayBuffer buffer = new ReplayBuffer(10);
+        publish(buffer, "logs", "log-1");
+        publish(buffer, "tasks/a", "task-a");
+        publish(buffer, "notifications", "note-1");
+
+        assertEquals(List.of("task-a"), buffer.since(0, List.of("tasks/*")));
+        assertEquals(List.of("log-1", "task-a", "note-1"), buffer.since(0, List.of(TopicIndex.ALL)));
+    }
+
+    @Test
+    void upToDateClientGetsNothing() {
+        ReplayBuffer buffer = new ReplayBuffer(10);
+        publish(buffer, "logs", "log-1");
+        long last = publish(buffer, "logs", "log-2");
+
+        assertEquals(last, buffer.currentSeq());
+        assertTrue(buffer.since(last, List.of("logs")).isEmpty());
+    }
+
+    @Test
+    void reportsGapWhenRingOverflowed() {
+        ReplayBuffer buffer = new ReplayBuffer(2);
+        long first = publish(buffer, "logs", "log-1");
+        long second = publish(buffer, "logs", "log-2");
+        publish(buffer, "logs", "log-3");
+        publish(buffer, "logs", "log-4");
+
+        // log-2 was pushed out, so a client that last saw log-1 cannot be caught up
+        assertNull(buffer.since(first, List.of("logs")));
+        // log-3 and log-4 are both still kept
+        assertEquals(List.of("log-3", "log-4"), buffer.since(second, List.of("logs")));
+    }
+
+    @Test
+    void overflowOnUnsubscribedTopicIsNotAGap() {
+        ReplayBuffer buffer = new ReplayBuffer(1);
+        long seen = publish(buffer, "logs", "log-1");
+        publish(buffer, "tasks/a", "task-1");
+        publish(buffer, "tasks/a", "task-2");
+        publish(buffer, "logs", "log-2");
+
+        assertEquals(List.of("log-2"), buffer.since(seen, List.of("logs")));
+        assertNull(buffer.since(seen, List.of("tasks/*")));
+    }
+
+    @Test
+    void coalescedMessagesAreNotAGap() {
+        ReplayBuffer buffer = new ReplayBuffer(2);
+        long seen = publish(buffer, "tasks/a", "progress-10", "task-a");
+        publish(buffer, "tasks/a", "progress-50", "task-a");
+        publish(buffer, "tasks/a", "progress-90", "task-a");
+        publish(buffer, "tasks/a", "done", "task-a");
+
+        assertEquals(List.of("done"), buffer.since(seen, List.of("tasks/a")));
+    }
+
+    @Test
+    void disabledBufferOnlyResumesWhenNothingWasMissed() {
+        ReplayBuffer buffer = new ReplayBuffer(0);
+        long seen = publish(buffer, "logs", "log-1");
+        assertTrue(buffer.since(seen, List.of("logs")).isEmpty());
+
+        publish(buffer, "logs", "log-2");
+        assertNull(buffer.since(seen, List.of("logs")));
+        assertEquals(0, buffer.getTopicCount());
+    }
+
+    @Test
+    void negativeSequenceIsAGap() {
+        ReplayBuffer buffer = new ReplayBuffer(10);
+        publish(buffer, "logs", "log-1");
+
+        assertNull(buffer.since(-1, List.of("logs")));
+    }
+}
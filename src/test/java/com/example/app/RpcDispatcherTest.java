@@ -0,0 +1,102 @@
+package com.example.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RpcDispatcherTest {
+
+    private final RpcDispatcher dispatcher = new RpcDispatcher();
+
+    private static int code(RpcDispatcher.RpcException e) {
+        return e.getCode();
+    }
+
+    @Test
+    void preparesRegisteredMethodWithParams() throws Exception {
+        RpcDispatcher.Method echo = params -> params.get("text");
+        dispatcher.register("test.echo", echo);
+
+        RpcDispatcher.Call call = dispatcher.prepare(Map.of("method", "test.echo", "params", Map.of("text", "hi")));
+
+        assertEquals("test.echo", call.name());
+        assertSame(echo, call.method());
+        assertEquals("hi", call.method().call(call.params()));
+    }
+
+    @Test
+    void missingParamsReadAsEmpty() throws Exception {
+        dispatcher.register("test.noop", params -> null);
+        assertEquals(Map.of(), dispatcher.prepare(Map.of("method", "test.noop")).params());
+    }
+
+    @Test
+    void malformedRequestsGetStandardCodes() {
+        dispatcher.register("test.noop", params -> null);
+
+        assertEquals(RpcDispatcher.INVALID_REQUEST, code(assertThrows(RpcDispatcher.RpcException.class,
+            () -> dispatcher.prepare(Map.of("jsonrpc", "2.0", "id", 1.0)))));
+        assertEquals(RpcDispatcher.INVALID_REQUEST, code(assertThrows(RpcDispatcher.RpcException.class,
+            () -> dispatcher.prepare(Map.of("method", 5.0)))));
+        assertEquals(RpcDispatcher.METHOD_NOT_FOUND, code(assertThrows(RpcDispatcher.RpcException.class,
+            () -> dispatcher.prepare(Map.of("method", "test.missing")))));
+        assertEquals(RpcDispatcher.INVALID_PARAMS, code(assertThrows(RpcDispatcher.RpcException.class,
+            () -> dispatcher.prepare(Map.of("method", "test.noop", "params", List.of(1.0))))));
+    }
+
+    @Test
+    void failedCallsMapToErrorCodes() {
+        RpcDispatcher.RpcException own = new RpcDispatcher.RpcException(RpcDispatcher.NOT_FOUND, "No such task");
+        assertSame(own, RpcDispatcher.toRpcException("test", own));
+
+        RpcDispatcher.RpcException invalid = RpcDispatcher.toRpcException("test", new IllegalArgumentException("bad path"));
+        assertEquals(RpcDispatcher.INVALID_PARAMS, invalid.getCode());
+        assertEquals("bad path", invalid.getMessage());
+
+        RpcDispatcher.RpcException internal = RpcDispatcher.toRpcException("test", new IllegalStateException("boom"));
+        assertEquals(RpcDispatcher.INTERNAL_ERROR, internal.getCode());
+        assertEquals("boom", internal.getMessage());
+    }
+
+    @Test
+    void responseCarriesIdAndResultOrError() {
+        assertEquals(Map.of("jsonrpc", "2.0", "id", 7L, "result", "ok"), RpcDispatcher.response(7L, "ok", null));
+        assertEquals(Map.of("jsonrpc", "2.0", "id", "a", "error", Map.of("code", RpcDispatcher.METHOD_NOT_FOUND, "message", "Unknown")),
+            RpcDispatcher.response("a", null, new RpcDispatcher.RpcException(RpcDispatcher.METHOD_NOT_FOUND, "Unknown")));
+    }
+
+    @Test
+    void notificationsGetNoResponseExceptForInvalidRequests() {
+        assertNull(RpcDispatcher.response(null, "ok", null));
+        assertNull(RpcDispatcher.response(null, null, new RpcDispatcher.RpcException(RpcDispatcher.INTERNAL_ERROR, "boom")));
+
+        Map<String, Object> invalid = RpcDispatcher.response(null, null,
+            new RpcDispatcher.RpcException(RpcDispatcher.INVALID_REQUEST, "Method is required"));
+        assertEquals(Map.of("code", RpcDispatcher.INVALID_REQUEST, "message", "Method is required"), invalid.get("error"));
+        assertNull(invalid.get("id"));
+    }
+
+    @Test
+    void integralIdsAreEchoedAsIntegers() {
+        assertEquals(7L, RpcDispatcher.normalizeId(7.0));
+        assertEquals(1.5, RpcDispatcher.normalizeId(1.5));
+        assertEquals("abc", RpcDispatcher.normalizeId("abc"));
+        assertNull(RpcDispatcher.normalizeId(null));
+    }
+
+    @Test
+    void requireStringRejectsMissingOrEmpty() throws Exception {
+        assertEquals("a.txt", RpcDispatcher.requireString(Map.of("path", "a.txt"), "path", "path is required"));
+        RpcDispatcher.RpcException e = assertThrows(RpcDispatcher.RpcException.class,
+            () -> RpcDispatcher.requireString(Map.of("path", ""), "path", "path is required"));
+        assertEquals(RpcDispatcher.INVALID_PARAMS, e.getCode());
+        assertEquals("path is required", e.getMessage());
+        assertThrows(RpcDispatcher.RpcException.class, () -> RpcDispatcher.requireString(Map.of("path", 1.0), "path", "x"));
+    }
+}
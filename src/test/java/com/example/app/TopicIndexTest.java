@@ -0,0 +1,142 @@
+package com.example.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopicIndexTest {
+
+    private static WsSession session(String id) {
+        return new WsSession(null, null, id, 8, WsSession.SlowConsumerPolicy.DROP, Runnable::run, WsFrame.Encoding.JSON);
+    }
+
+    @Test
+    void validTopicsAllowOnlyATrailingWildcardSegment() {
+        assertTrue(TopicIndex.isValid("logs"));
+        assertTrue(TopicIndex.isValid("tasks/task-1"));
+        assertTrue(TopicIndex.isValid("tasks/*"));
+        assertTrue(TopicIndex.isValid("*"));
+
+        assertFalse(TopicIndex.isValid(null));
+        assertFalse(TopicIndex.isValid(""));
+        assertFalse(TopicIndex.isValid("tasks*"));
+        assertFalse(TopicIndex.isValid("tasks/*/progress"));
+        assertFalse(TopicIndex.isValid("*/tasks"));
+        assertFalse(TopicIndex.isValid("x".repeat(201)));
+    }
+
+    @Test
+    void wildcardMatchesWholeSegmentsOnly() {
+        assertTrue(TopicIndex.matches("*", "logs"));
+        assertTrue(TopicIndex.matches("logs", "logs"));
+        assertTrue(TopicIndex.matches("tasks/*", "tasks/task-1"));
+        assertTrue(TopicIndex.matches("tasks/*", "tasks/task-1/progress"));
+
+        assertFalse(TopicIndex.matches("tasks/*", "tasks"));
+        assertFalse(TopicIndex.matches("tasks/*", "tasksx/task-1"));
+        assertFalse(TopicIndex.matches("tasks", "tasks/task-1"));
+        assertFalse(TopicIndex.matches("logs", "logs2"));
+    }
+
+    @Test
+    void subscribersOfCollectsExactAndWildcardSubscriptionsOnce() {
+        TopicIndex index = new TopicIndex();
+        WsSession exact = session("exact");
+        WsSession prefix = session("prefix");
+        WsSession nested = session("nested");
+        WsSession all = session("all");
+        WsSession other = session("other");
+
+        index.subscribe(exact, "tasks/a/progress");
+        index.subscribe(prefix, "tasks/*");
+        index.subscribe(prefix, "tasks/a/progress");
+        index.subscribe(nested, "tasks/a/*");
+        index.subscribe(all, TopicIndex.ALL);
+        index.subscribe(other, "logs");
+
+        assertEquals(Set.of(exact, prefix, nested, all), index.subscribersOf("tasks/a/progress"));
+        assertEquals(Set.of(prefix, all), index.subscribersOf("tasks/b"));
+        assertEquals(Set.of(other, all), index.subscribersOf("logs"));
+    }
+
+    @Test
+    void rejectsInvalidAndDuplicateSubscriptions() {
+        TopicIndex index = new TopicIndex();
+        WsSession session = session("s");
+
+        assertFalse(index.subscribe(session, "tasks*"));
+        assertTrue(index.subscribe(session, "logs"));
+        assertFalse(index.subscribe(session, "logs"));
+        assertEquals(1, index.getTopicCount());
+    }
+
+    @Test
+    void unsubscribeAndRemoveSessionDropEmptyTopics() {
+        TopicIndex index = new TopicIndex();
+        WsSession first = session("first");
+        WsSession second = session("second");
+        index.subscribe(first, "logs");
+        index.subscribe(first, "tasks/*");
+        index.subscribe(second, "logs");
+
+        assertTrue(index.unsubscribe(first, "logs"));
+        assertFalse(index.unsubscribe(first, "logs"));
+        assertEquals(Set.of(second), index.subscribersOf("logs"));
+
+        index.removeSession(first);
+        assertTrue(index.subscribersOf("tasks/a").isEmpty());
+        assertEquals(1, index.getTopicCount());
+    }
+
+    @Test
+    void subscribeAfterRemoveSessionIsIgnored() {
+        TopicIndex index = new TopicIndex();
+        WsSession session = session("s");
+        index.subscribe(session, "logs");
+
+        index.removeSession(session);
+
+        assertFalse(index.subscribe(session, "tasks/*"));
+        assertTrue(index.subscribersOf("tasks/a").isEmpty());
+        assertEquals(0, index.getTopicCount());
+        // Topics held before removal are kept so the session can be parked for resume
+        assertEquals(Set.of("logs"), session.getTopics());
+    }
+
+    @Test
+    void subscribeRacingRemoveSessionNeverLeavesTheSessionIndexed() throws Exception {
+        TopicIndex index = new TopicIndex();
+        for (int round = 0; round < 200; round++) {
+            WsSession session = session("s" + round);
+            CountDownLatch start = new CountDownLatch(1);
+            Thread subscriber = new Thread(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < 20; i++) {
+                    index.subscribe(session, "topic-" + i);
+                }
+            });
+            subscriber.start();
+            start.countDown();
+            index.removeSession(session);
+            subscriber.join();
+
+            for (int i = 0; i < 20; i++) {
+                assertFalse(index.subscribersOf("topic-" + i).contains(session), "round " + round);
+            }
+        }
+        assertEquals(0, index.getTopicCount());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
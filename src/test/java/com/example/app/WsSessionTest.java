@@ -0,0 +1,232 @@
+package com.example.app;
+
+import org.eclipse.jetty.util.Callback;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WsSessionTest {
+
+    // Runs sender tasks only when asked, so a test decides when the queue drains
+    private static class ManualExecutor implements Executor {
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    // Records frames; completes each write at once unless told to hold them
+    private static class FakeTransport implements WsSession.Transport {
+        private final List<String> written = new ArrayList<>();
+        private final ArrayDeque<Callback> pending = new ArrayDeque<>();
+        private boolean hold = false;
+        private Integer closeCode;
+        private boolean aborted = false;
+
+        @Override
+        public void write(WsFrame frame, Callback callback) {
+            written.add(frame.text());
+            if (hold) {
+                pending.add(callback);
+            } else {
+                callback.succeeded();
+            }
+        }
+
+        @Override
+        public void close(int code, String reason) {
+            closeCode = code;
+        }
+
+        @Override
+        public void abort() {
+            aborted = true;
+        }
+    }
+
+    private final ManualExecutor sender = new ManualExecutor();
+    private final FakeTransport transport = new FakeTransport();
+
+    private WsSession session(int capacity, WsSession.SlowConsumerPolicy policy) {
+        return new WsSession(null, transport, "test", capacity, policy, sender, WsFrame.Encoding.JSON);
+    }
+
+    private static WsFrame frame(String text) {
+        return WsFrame.text(text);
+    }
+
+    @Test
+    void sendsQueuedFramesInOrder() {
+        WsSession session = session(8, WsSession.SlowConsumerPolicy.DROP);
+        session.send(frame("a"));
+        session.send(frame("b"));
+        session.send(frame("c"));
+        sender.runAll();
+
+        assertEquals(List.of("a", "b", "c"), transport.written);
+        assertEquals(0, session.getQueueDepth());
+        assertEquals(3L, session.getStats().get("sent"));
+    }
+
+    @Test
+    void keepsOneWriteInFlight() {
+        transport.hold = true;
+        WsSession session = session(8, WsSession.SlowConsumerPolicy.DROP);
+        session.send(frame("a"));
+        session.send(frame("b"));
+        sender.runAll();
+        assertEquals(List.of("a"), transport.written);
+
+        transport.pending.poll().succeeded();
+        sender.runAll();
+        assertEquals(List.of("a", "b"), transport.written);
+    }
+
+    @Test
+    void dropPolicyDropsOldestQueuedFrame() {
+        WsSession session = session(2, WsSession.SlowConsumerPolicy.DROP);
+        assertTrue(session.send(frame("a")));
+        assertTrue(session.send(frame("b")));
+        assertTrue(session.send(frame("c")));
+        assertEquals(1, session.getDropped());
+        assertEquals(2, session.getQueueDepth());
+
+        sender.runAll();
+        assertEquals(List.of("b", "c"), transport.written);
+        assertNull(transport.closeCode);
+    }
+
+    @Test
+    void coalescePolicyReplacesFrameWithSameKey() {
+        WsSession session = session(8, WsSession.SlowConsumerPolicy.COALESCE);
+        session.send(frame("count=1"), "count");
+        session.send(frame("b"));
+        session.send(frame("count=2"), "count");
+        assertEquals(2, session.getQueueDepth());
+        assertEquals(1L, session.getStats().get("coalesced"));
+        assertEquals(0, session.getDropped());
+
+        sender.runAll();
+        // The replacement moves to the back so frames still leave in publish order
+        assertEquals(List.of("b", "count=2"), transport.written);
+    }
+
+    @Test
+    void coalescePolicyDropsOldestWhenNoKeyMatches() {
+        WsSession session = session(2, WsSession.SlowConsumerPolicy.COALESCE);
+        session.send(frame("count=1"), "count");
+        session.send(frame("b"));
+        session.send(frame("c"));
+        // The dropped frame's key no longer coalesces into anything
+        session.send(frame("count=2"), "count");
+        assertEquals(2, session.getDropped());
+
+        sender.runAll();
+        assertEquals(List.of("c", "count=2"), transport.written);
+    }
+
+    @Test
+    void disconnectPolicyClosesSessionOnOverflow() {
+        WsSession session = session(2, WsSession.SlowConsumerPolicy.DISCONNECT);
+        assertTrue(session.send(frame("a")));
+        assertTrue(session.send(frame("b")));
+        assertFalse(session.send(frame("c")));
+        assertEquals(1, session.getDropped());
+        assertEquals(0, session.getQueueDepth());
+
+        sender.runAll();
+        assertEquals(1008, transport.closeCode);
+        assertTrue(transport.written.isEmpty());
+        assertFalse(session.send(frame("d")));
+    }
+
+    @Test
+    void repliesJumpAheadAndAreNeverDropped() {
+        WsSession session = session(2, WsSession.SlowConsumerPolicy.DROP);
+        session.send(frame("a"));
+        session.send(frame("b"));
+        assertTrue(session.sendReply(frame("reply-1")));
+        assertTrue(session.sendReply(frame("reply-2")));
+        session.send(frame("c"));
+        assertEquals(1, session.getDropped());
+
+        sender.runAll();
+        assertEquals(List.of("reply-1", "reply-2", "b", "c"), transport.written);
+    }
+
+    @Test
+    void replyOverflowDisconnects() {
+        WsSession session = session(2, WsSession.SlowConsumerPolicy.DROP);
+        assertTrue(session.sendReply(frame("reply-1")));
+        assertTrue(session.sendReply(frame("reply-2")));
+        assertFalse(session.sendReply(frame("reply-3")));
+
+        sender.runAll();
+        assertEquals(1008, transport.closeCode);
+        assertTrue(transport.written.isEmpty());
+    }
+
+    @Test
+    void failedWriteClosesSession() {
+        transport.hold = true;
+        WsSession session = session(8, WsSession.SlowConsumerPolicy.DROP);
+        session.send(frame("a"));
+        session.send(frame("b"));
+        sender.runAll();
+
+        transport.pending.poll().failed(new IOException("broken pipe"));
+        sender.runAll();
+        assertEquals(1011, transport.closeCode);
+        assertEquals(List.of("a"), transport.written);
+        assertFalse(session.send(frame("c")));
+    }
+
+    @Test
+    void stalledWriteIsAborted() throws InterruptedException {
+        transport.hold = true;
+        WsSession session = session(8, WsSession.SlowConsumerPolicy.DROP);
+        session.send(frame("a"));
+        sender.runAll();
+        assertFalse(session.abortIfStalled(60_000));
+
+        Thread.sleep(20);
+        assertTrue(session.abortIfStalled(5));
+        sender.runAll();
+        assertTrue(transport.aborted);
+        assertFalse(session.send(frame("b")));
+        // Only cut off once
+        assertFalse(session.abortIfStalled(5));
+    }
+
+    @Test
+    void answersPingsOnlyAfterMatchingPong() {
+        WsSession session = session(8, WsSession.SlowConsumerPolicy.DROP);
+        assertFalse(session.answersPings());
+
+        long first = session.startPing();
+        long second = session.startPing();
+        session.pong(first);
+        assertFalse(session.answersPings());
+
+        session.pong(second);
+        assertTrue(session.answersPings());
+    }
+}